@@ -47,4 +47,6 @@ dependencies {
     annotationProcessor("com.github.bumptech.glide:compiler:5.0.5")
     implementation("androidx.media3:media3-exoplayer:1.3.1")
     implementation("androidx.media3:media3-ui:1.3.1")
+    implementation("androidx.media3:media3-datasource:1.3.1")
+    implementation("androidx.media3:media3-database:1.3.1")
 }
\ No newline at end of file
@@ -0,0 +1,40 @@
+package com.example.feedapp.common.log;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * 后台组件（落盘、上报、本机 HTTP 服务）的日志出口，由构造参数注入。
+ *
+ * 线上用 {@link #logcat(String)}；这些组件本身只依赖 java.io / java.net，
+ * 本地单元测试传 {@link #NONE} 或自己记录的实现，就不会碰到 android.util.Log。
+ */
+public interface Logger {
+
+    /** 什么都不输出 */
+    Logger NONE = (message, error) -> {
+    };
+
+    void warn(@NonNull String message, @Nullable Throwable error);
+
+    /** 默认不输出；只有 logcat 实现会打出来 */
+    default void debug(@NonNull String message) {
+    }
+
+    @NonNull
+    static Logger logcat(@NonNull String tag) {
+        return new Logger() {
+            @Override
+            public void warn(@NonNull String message, @Nullable Throwable error) {
+                Log.w(tag, message, error);
+            }
+
+            @Override
+            public void debug(@NonNull String message) {
+                Log.d(tag, message);
+            }
+        };
+    }
+}
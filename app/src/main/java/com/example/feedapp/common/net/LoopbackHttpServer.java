@@ -0,0 +1,327 @@
+package com.example.feedapp.common.net;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.example.feedapp.common.log.Logger;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 跑在本机回环地址上的极简 HTTP/1.1 服务端，联调 / 测试用的各种假服务端的公共部分：
+ * 端口由系统分配、只监听回环地址、每个请求处理完即关闭连接。
+ *
+ * 接收线程把每个连接交给一个小线程池处理，读请求有超时：播放器的某个连接停着不读
+ * （缓冲满了）或者半天发不完请求，只占住一个工作线程，不会卡住其他播放器和预取。
+ * 工作线程都忙时新连接直接关闭，由客户端重试。
+ *
+ * 子类只需实现 {@link #handle(Request)}，它会在多个工作线程上并发调用。
+ */
+public abstract class LoopbackHttpServer {
+
+    /** 请求体上限，超出直接断开 */
+    private static final int MAX_BODY_SIZE = 8 * 1024 * 1024;
+    private static final int MAX_LINE_LENGTH = 8 * 1024;
+    /** 同时处理的连接数上限：3 个 player + 预取 + 列表 / 上报请求，留一点余量 */
+    private static final int MAX_WORKERS = 8;
+    /** 读请求时最多等这么久没数据就断开 */
+    private static final int READ_TIMEOUT_MS = 10_000;
+
+    /**
+     * 请求行和头用纯 Java 解析，不依赖 android.net.Uri，本地单元测试里也能跑。
+     */
+    public static final class Request {
+        @NonNull
+        public final String method;
+        /** 请求行里的原始目标，如 /feed?cursor=0&size=10 */
+        @NonNull
+        public final String target;
+        /** header 名统一转成小写 */
+        @NonNull
+        private final Map<String, String> headers;
+        @NonNull
+        public final byte[] body;
+
+        Request(@NonNull String method, @NonNull String target,
+                @NonNull Map<String, String> headers, @NonNull byte[] body) {
+            this.method = method;
+            this.target = target;
+            this.headers = headers;
+            this.body = body;
+        }
+
+        @Nullable
+        public String getHeader(@NonNull String name) {
+            return headers.get(name.toLowerCase(Locale.US));
+        }
+
+        /** 去掉查询串和片段后的路径；目标为空时返回 null */
+        @Nullable
+        public String getPath() {
+            int end = target.length();
+            int query = target.indexOf('?');
+            if (query >= 0) end = query;
+            int fragment = target.indexOf('#');
+            if (fragment >= 0 && fragment < end) end = fragment;
+            return end == 0 ? null : target.substring(0, end);
+        }
+
+        /** 第一个同名查询参数（已 URL 解码），没有返回 null */
+        @Nullable
+        public String getQueryParameter(@NonNull String name) {
+            int start = target.indexOf('?');
+            if (start < 0) return null;
+            int end = target.indexOf('#', start);
+            String query = target.substring(start + 1, end < 0 ? target.length() : end);
+            for (String pair : query.split("&")) {
+                int eq = pair.indexOf('=');
+                String key = eq < 0 ? pair : pair.substring(0, eq);
+                if (name.equals(decode(key))) {
+                    return eq < 0 ? "" : decode(pair.substring(eq + 1));
+                }
+            }
+            return null;
+        }
+
+        private static String decode(String s) {
+            try {
+                return URLDecoder.decode(s, "UTF-8");
+            } catch (IllegalArgumentException | UnsupportedEncodingException e) {
+                return s;
+            }
+        }
+    }
+
+    public static final class Response {
+        public final int code;
+        @NonNull
+        public final String contentType;
+        @NonNull
+        public final byte[] body;
+        /** 额外的响应头，整行写出（不含换行），可为 null */
+        @Nullable
+        public final String[] extraHeaders;
+
+        public Response(int code, @NonNull String contentType, @NonNull byte[] body,
+                        @Nullable String... extraHeaders) {
+            this.code = code;
+            this.contentType = contentType;
+            this.body = body;
+            this.extraHeaders = extraHeaders;
+        }
+
+        @NonNull
+        public static Response text(int code, @NonNull String text) {
+            return new Response(code, "text/plain; charset=utf-8",
+                    text.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private final String tag;
+    private final Logger logger;
+    private final ServerSocket serverSocket;
+    private Thread acceptThread;
+    private ThreadPoolExecutor workers;
+
+    protected LoopbackHttpServer(@NonNull String tag) throws IOException {
+        this(tag, Logger.logcat(tag));
+    }
+
+    protected LoopbackHttpServer(@NonNull String tag, @NonNull Logger logger) throws IOException {
+        this.tag = tag;
+        this.logger = logger;
+        // 端口交给系统分配，只监听回环地址
+        serverSocket = new ServerSocket(0, 16, InetAddress.getLoopbackAddress());
+    }
+
+    /**
+     * 在工作线程上调用（可能并发），抛出的异常会转成 500。
+     */
+    @NonNull
+    protected abstract Response handle(@NonNull Request request) throws Exception;
+
+    @NonNull
+    public String getBaseUrl() {
+        return "http://127.0.0.1:" + serverSocket.getLocalPort();
+    }
+
+    public synchronized void start() {
+        if (acceptThread != null) return;
+        // 不排队：线程都忙时直接拒绝，不让新连接等在卡住的请求后面
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(0, MAX_WORKERS, 30, TimeUnit.SECONDS,
+                new SynchronousQueue<>(), r -> new Thread(r, tag + "-worker"));
+        workers = pool;
+        acceptThread = new Thread(() -> acceptLoop(pool), tag);
+        acceptThread.start();
+    }
+
+    public synchronized void stop() {
+        try {
+            serverSocket.close();
+        } catch (IOException ignored) {
+        }
+        if (workers != null) {
+            // 阻塞的 socket 读写中断不了：读有超时，写要等客户端断开后才退出
+            workers.shutdownNow();
+            workers = null;
+        }
+        acceptThread = null;
+    }
+
+    private void acceptLoop(ThreadPoolExecutor pool) {
+        while (!serverSocket.isClosed()) {
+            Socket socket;
+            try {
+                socket = serverSocket.accept();
+                socket.setSoTimeout(READ_TIMEOUT_MS);
+            } catch (IOException e) {
+                if (!serverSocket.isClosed()) {
+                    logger.warn("accept failed", e);
+                }
+                continue;
+            }
+            try {
+                pool.execute(() -> serveAndClose(socket));
+            } catch (RejectedExecutionException e) {
+                logger.warn("too many connections, drop one", null);
+                closeQuietly(socket);
+            }
+        }
+    }
+
+    private void serveAndClose(Socket socket) {
+        try {
+            serve(socket);
+        } catch (IOException e) {
+            if (!serverSocket.isClosed()) {
+                logger.warn("request failed", e);
+            }
+        } finally {
+            closeQuietly(socket);
+        }
+    }
+
+    private static void closeQuietly(Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    private void serve(Socket socket) throws IOException {
+        InputStream in = new BufferedInputStream(socket.getInputStream());
+        String requestLine = readLine(in);
+        if (requestLine == null || requestLine.isEmpty()) return;
+
+        Map<String, String> headers = new HashMap<>();
+        String line;
+        while ((line = readLine(in)) != null && !line.isEmpty()) {
+            int colon = line.indexOf(':');
+            if (colon > 0) {
+                headers.put(line.substring(0, colon).trim().toLowerCase(Locale.US),
+                        line.substring(colon + 1).trim());
+            }
+        }
+
+        String[] parts = requestLine.split(" ");
+        String method = parts[0];
+        String target = parts.length >= 2 ? parts[1] : "";
+        byte[] body = readBody(in, headers.get("content-length"));
+
+        Response response;
+        try {
+            response = handle(new Request(method, target, headers, body));
+        } catch (Exception e) {
+            logger.warn("handle failed: " + requestLine, e);
+            response = Response.text(500, String.valueOf(e.getMessage()));
+        }
+        write(socket.getOutputStream(), response);
+    }
+
+    @NonNull
+    private static byte[] readBody(InputStream in, @Nullable String contentLength) throws IOException {
+        int length;
+        try {
+            length = contentLength == null ? 0 : Integer.parseInt(contentLength);
+        } catch (NumberFormatException e) {
+            throw new IOException("bad Content-Length: " + contentLength);
+        }
+        if (length < 0 || length > MAX_BODY_SIZE) {
+            throw new IOException("body too large: " + length);
+        }
+        byte[] body = new byte[length];
+        int read = 0;
+        while (read < length) {
+            int n = in.read(body, read, length - read);
+            if (n < 0) throw new EOFException("body truncated");
+            read += n;
+        }
+        return body;
+    }
+
+    /**
+     * 按字节读一行（HTTP 头只有 ASCII），不能用 Reader，否则会把请求体也读进缓冲区。
+     */
+    @Nullable
+    private static String readLine(InputStream in) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream(128);
+        int b;
+        while ((b = in.read()) != -1) {
+            if (b == '\n') break;
+            if (b != '\r') line.write(b);
+            if (line.size() > MAX_LINE_LENGTH) throw new IOException("line too long");
+        }
+        if (b == -1 && line.size() == 0) return null;
+        return new String(line.toByteArray(), StandardCharsets.US_ASCII);
+    }
+
+    private static void write(OutputStream out, Response response) throws IOException {
+        StringBuilder head = new StringBuilder()
+                .append("HTTP/1.1 ").append(response.code).append(' ').append(reason(response.code))
+                .append("\r\n")
+                .append("Content-Type: ").append(response.contentType).append("\r\n")
+                .append("Content-Length: ").append(response.body.length).append("\r\n");
+        if (response.extraHeaders != null) {
+            for (String header : response.extraHeaders) {
+                head.append(header).append("\r\n");
+            }
+        }
+        head.append("Connection: close\r\n\r\n");
+        out.write(head.toString().getBytes(StandardCharsets.US_ASCII));
+        out.write(response.body);
+        out.flush();
+    }
+
+    private static String reason(int code) {
+        switch (code) {
+            case 200:
+                return "OK";
+            case 206:
+                return "Partial Content";
+            case 404:
+                return "Not Found";
+            case 416:
+                return "Range Not Satisfiable";
+            default:
+                return code < 400 ? "OK" : "Error";
+        }
+    }
+}
@@ -1,24 +1,81 @@
 package com.example.feedapp.debug;
 
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.text.Editable;
+import android.text.TextWatcher;
 import android.view.MenuItem;
 import android.widget.Button;
+import android.widget.CheckBox;
+import android.widget.EditText;
 import android.widget.TextView;
+import android.widget.Toast;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.appcompat.widget.Toolbar;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.feedapp.R;
 import com.example.feedapp.feed.exposure.ExposureLogger;
+import com.example.feedapp.feed.exposure.ExposureMetrics;
+import com.example.feedapp.feed.exposure.ExposurePipeline;
 
+import org.json.JSONException;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.List;
 
 public class DebugExposureActivity extends AppCompatActivity {
 
-    private TextView tvLogs;
+    /** 每次往下翻加载多少条更旧的记录 */
+    private static final int PAGE_SIZE = 200;
+    /** 实时追加新记录的轮询间隔 */
+    private static final long TAIL_INTERVAL_MS = 500;
+    /** 输入 item id 后多久再重新查询 */
+    private static final long FILTER_DEBOUNCE_MS = 300;
+
+    private RecyclerView rvLogs;
+    private LinearLayoutManager layoutManager;
+    private ExposureLogAdapter adapter;
     private Button btnClear;
+    private CheckBox cbShow;
+    private CheckBox cbFull;
+    private CheckBox cbHide;
+    private CheckBox cbView;
+    private EditText etItemId;
+    private TextView tvMetrics;
+    private Button btnExportMetrics;
+
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final List<ExposureLogger.Entry> readBuffer = new ArrayList<>();
+
+    // 当前过滤条件
+    private int kindMask = ExposureLogger.ALL_KINDS;
+    private String itemIdFilter = null;
+    // 更旧一页从这个序号（不含）往前读；-1 表示已经到底
+    private long olderCursor = -1;
+    // 实时追加从这个序号开始读
+    private long tailCursor = 0;
+
+    private final Runnable tailRunnable = new Runnable() {
+        @Override
+        public void run() {
+            loadNewer();
+            refreshMetrics();
+            handler.postDelayed(this, TAIL_INTERVAL_MS);
+        }
+    };
+
+    private final Runnable reloadRunnable = this::reload;
 
     @Override
     protected void onCreate(@Nullable Bundle savedInstanceState) {
@@ -31,14 +88,56 @@ public class DebugExposureActivity extends AppCompatActivity {
             getSupportActionBar().setDisplayHomeAsUpEnabled(true); // 左上角返回箭头
         }
 
-        tvLogs = findViewById(R.id.tvLogs);
+        rvLogs = findViewById(R.id.rvLogs);
         btnClear = findViewById(R.id.btnClear);
+        cbShow = findViewById(R.id.cbShow);
+        cbFull = findViewById(R.id.cbFull);
+        cbHide = findViewById(R.id.cbHide);
+        cbView = findViewById(R.id.cbView);
+        etItemId = findViewById(R.id.etItemId);
+        tvMetrics = findViewById(R.id.tvMetrics);
+        btnExportMetrics = findViewById(R.id.btnExportMetrics);
 
-        refreshLogs();
+        layoutManager = new LinearLayoutManager(this);
+        adapter = new ExposureLogAdapter();
+        rvLogs.setLayoutManager(layoutManager);
+        rvLogs.setAdapter(adapter);
+        rvLogs.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(@NonNull RecyclerView rv, int dx, int dy) {
+                // 接近底部时加载更旧的一页
+                if (dy > 0 && layoutManager.findLastVisibleItemPosition()
+                        >= adapter.getItemCount() - PAGE_SIZE / 4) {
+                    loadOlder();
+                }
+            }
+        });
 
         btnClear.setOnClickListener(v -> {
             ExposureLogger.clear();
-            refreshLogs();
+            reload();
+        });
+
+        btnExportMetrics.setOnClickListener(v -> exportMetrics());
+
+        cbShow.setOnCheckedChangeListener((v, checked) -> onFilterChanged());
+        cbFull.setOnCheckedChangeListener((v, checked) -> onFilterChanged());
+        cbHide.setOnCheckedChangeListener((v, checked) -> onFilterChanged());
+        cbView.setOnCheckedChangeListener((v, checked) -> onFilterChanged());
+        etItemId.addTextChangedListener(new TextWatcher() {
+            @Override
+            public void beforeTextChanged(CharSequence s, int start, int count, int after) {
+            }
+
+            @Override
+            public void onTextChanged(CharSequence s, int start, int before, int count) {
+            }
+
+            @Override
+            public void afterTextChanged(Editable s) {
+                handler.removeCallbacks(reloadRunnable);
+                handler.postDelayed(reloadRunnable, FILTER_DEBOUNCE_MS);
+            }
         });
     }
 
@@ -54,15 +153,88 @@ public class DebugExposureActivity extends AppCompatActivity {
     @Override
     protected void onResume() {
         super.onResume();
-        refreshLogs();
+        reload();
+        refreshMetrics();
+        handler.postDelayed(tailRunnable, TAIL_INTERVAL_MS);
+    }
+
+    @Override
+    protected void onPause() {
+        super.onPause();
+        handler.removeCallbacks(tailRunnable);
+        handler.removeCallbacks(reloadRunnable);
+    }
+
+    private void refreshMetrics() {
+        String summary = ExposureMetrics.getInstance().snapshot().toSummary();
+        tvMetrics.setText(summary.isEmpty() ? "暂无曝光统计" : summary);
+    }
+
+    /**
+     * 把当前指标快照导出成 JSON，写到应用的外部私有目录，可用 adb pull 取出。
+     */
+    private void exportMetrics() {
+        ExposureMetrics.Snapshot snapshot = ExposureMetrics.getInstance().snapshot();
+        File dir = getExternalFilesDir(null);
+        if (dir == null) dir = getFilesDir();
+        File file = new File(dir, "exposure_metrics_" + snapshot.takenAtMillis + ".json");
+        new Thread(() -> {
+            String result;
+            try (OutputStream out = new FileOutputStream(file)) {
+                out.write(snapshot.toJson().toString(2).getBytes(StandardCharsets.UTF_8));
+                result = "已导出到 " + file.getAbsolutePath();
+            } catch (IOException | JSONException e) {
+                result = "导出失败: " + e.getMessage();
+            }
+            String message = result;
+            runOnUiThread(() -> Toast.makeText(this, message, Toast.LENGTH_LONG).show());
+        }, "export-metrics").start();
+    }
+
+    private void onFilterChanged() {
+        handler.removeCallbacks(reloadRunnable);
+        reload();
+    }
+
+    /**
+     * 按当前过滤条件从最新的记录重新读第一页。
+     */
+    private void reload() {
+        kindMask = 0;
+        if (cbShow.isChecked()) kindMask |= ExposureLogger.kindBit(ExposurePipeline.EVENT_EXPOSED);
+        if (cbFull.isChecked()) kindMask |= ExposureLogger.kindBit(ExposurePipeline.EVENT_FULLY_VISIBLE);
+        if (cbHide.isChecked()) kindMask |= ExposureLogger.kindBit(ExposurePipeline.EVENT_HIDDEN);
+        if (cbView.isChecked()) kindMask |= ExposureLogger.kindBit(ExposurePipeline.EVENT_VIEWABLE);
+        String text = etItemId.getText().toString().trim();
+        itemIdFilter = text.isEmpty() ? null : text;
+
+        adapter.clear();
+        tailCursor = ExposureLogger.getNextSequence();
+        olderCursor = tailCursor;
+        loadOlder();
     }
 
-    private void refreshLogs() {
-        List<String> logs = ExposureLogger.getLogs();
-        StringBuilder sb = new StringBuilder();
-        for (String line : logs) {
-            sb.append(line).append('\n');
+    private void loadOlder() {
+        if (olderCursor < 0) return;
+        readBuffer.clear();
+        olderCursor = ExposureLogger.readOlder(olderCursor, PAGE_SIZE, kindMask, itemIdFilter, readBuffer);
+        adapter.appendOlder(readBuffer);
+        readBuffer.clear();
+    }
+
+    /**
+     * 只把上次之后的新记录插到最上面；停在顶部时保持跟随最新。
+     */
+    private void loadNewer() {
+        readBuffer.clear();
+        tailCursor = ExposureLogger.readNewer(tailCursor, kindMask, itemIdFilter, readBuffer);
+        if (readBuffer.isEmpty()) return;
+
+        boolean atTop = layoutManager.findFirstVisibleItemPosition() <= 0;
+        adapter.prependNewer(readBuffer);
+        readBuffer.clear();
+        if (atTop) {
+            rvLogs.scrollToPosition(0);
         }
-        tvLogs.setText(sb.toString());
     }
 }
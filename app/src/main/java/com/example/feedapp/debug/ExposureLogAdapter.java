@@ -0,0 +1,90 @@
+package com.example.feedapp.debug;
+
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.example.feedapp.R;
+import com.example.feedapp.feed.exposure.ExposureLogger;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 曝光日志列表，最新的在最上面。
+ *
+ * 数据分两段，都只在末尾追加，避免在几万条的列表头部插入：
+ * - tail：打开页面后实时追加的新记录，从旧到新；
+ * - pages：打开页面时读的第一页和之后往下翻加载的更旧的页，从新到旧。
+ * 只在绑定时才格式化成字符串。
+ */
+class ExposureLogAdapter extends RecyclerView.Adapter<ExposureLogAdapter.LogVH> {
+
+    private final List<ExposureLogger.Entry> tail = new ArrayList<>();
+    private final List<ExposureLogger.Entry> pages = new ArrayList<>();
+    private final SimpleDateFormat sdf = ExposureLogger.newTimeFormat();
+
+    void clear() {
+        tail.clear();
+        pages.clear();
+        notifyDataSetChanged();
+    }
+
+    /**
+     * @param newer 从旧到新，插到列表最上面
+     */
+    void prependNewer(@NonNull List<ExposureLogger.Entry> newer) {
+        if (newer.isEmpty()) return;
+        tail.addAll(newer);
+        notifyItemRangeInserted(0, newer.size());
+    }
+
+    /**
+     * @param older 从新到旧，接到列表最下面
+     */
+    void appendOlder(@NonNull List<ExposureLogger.Entry> older) {
+        if (older.isEmpty()) return;
+        int start = getItemCount();
+        pages.addAll(older);
+        notifyItemRangeInserted(start, older.size());
+    }
+
+    @Override
+    public int getItemCount() {
+        return tail.size() + pages.size();
+    }
+
+    private ExposureLogger.Entry getEntry(int position) {
+        int tailSize = tail.size();
+        return position < tailSize
+                ? tail.get(tailSize - 1 - position)
+                : pages.get(position - tailSize);
+    }
+
+    @NonNull
+    @Override
+    public LogVH onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        View view = LayoutInflater.from(parent.getContext())
+                .inflate(R.layout.item_exposure_log, parent, false);
+        return new LogVH(view);
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull LogVH holder, int position) {
+        holder.tvLine.setText(getEntry(position).format(sdf));
+    }
+
+    static class LogVH extends RecyclerView.ViewHolder {
+        final TextView tvLine;
+
+        LogVH(@NonNull View itemView) {
+            super(itemView);
+            tvLine = itemView.findViewById(R.id.tvLogLine);
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.feedapp.feed.data;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import com.example.feedapp.feed.model.FeedItem;
+
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * FeedSource 的通用实现：子类只写阻塞的 {@link #loadPage}，
+ * 这里负责把它放到有界线程池里执行、处理取消，并把结果切回主线程。
+ */
+public abstract class BackgroundFeedSource implements FeedSource {
+
+    private static final String TAG = "FeedSource";
+
+    // 所有数据源共用一个有界线程池：最多 2 个并发请求，排队的请求最多 8 个
+    private static final ThreadPoolExecutor EXECUTOR;
+
+    static {
+        AtomicInteger threadCount = new AtomicInteger();
+        EXECUTOR = new ThreadPoolExecutor(2, 2, 30, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(8),
+                r -> new Thread(r, "feed-source-" + threadCount.incrementAndGet()));
+        EXECUTOR.allowCoreThreadTimeOut(true);
+    }
+
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    /**
+     * 在后台线程执行，允许阻塞。线程被中断说明请求已经取消，直接抛出即可。
+     */
+    @NonNull
+    protected abstract List<FeedItem> loadPage(int cursor, int size) throws Exception;
+
+    @NonNull
+    @Override
+    public final Call fetchPage(int cursor, int size, @NonNull Callback callback) {
+        PageCall call = new PageCall();
+        try {
+            call.future = EXECUTOR.submit(() -> {
+                if (call.isCanceled()) return;
+                try {
+                    List<FeedItem> page = loadPage(cursor, size);
+                    deliver(call, () -> callback.onPageLoaded(cursor, page));
+                } catch (Exception e) {
+                    if (!call.isCanceled()) {
+                        Log.w(TAG, "loadPage failed, cursor=" + cursor, e);
+                    }
+                    deliver(call, () -> callback.onPageFailed(cursor, e));
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            Log.w(TAG, "too many pending requests, cursor=" + cursor);
+            deliver(call, () -> callback.onPageFailed(cursor, e));
+        }
+        return call;
+    }
+
+    private void deliver(PageCall call, Runnable action) {
+        mainHandler.post(() -> {
+            // 取消发生在结果切回主线程之前，也要丢弃
+            if (!call.isCanceled()) {
+                action.run();
+            }
+        });
+    }
+
+    private static final class PageCall implements Call {
+        private volatile boolean canceled = false;
+        private volatile Future<?> future;
+
+        @Override
+        public void cancel() {
+            canceled = true;
+            Future<?> f = future;
+            if (f != null) {
+                f.cancel(true);
+            }
+        }
+
+        @Override
+        public boolean isCanceled() {
+            return canceled;
+        }
+    }
+}
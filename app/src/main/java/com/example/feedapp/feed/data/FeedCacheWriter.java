@@ -0,0 +1,155 @@
+package com.example.feedapp.feed.data;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import com.example.feedapp.feed.model.FeedItem;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * LocalFeedCache 的后台写入器：
+ * - 主线程只提交不可变的页面快照，序列化和写盘都在单独的写线程里完成；
+ * - 一小段时间内连续提交的多页会合并成一次磁盘写；
+ * - {@link #flush()} / {@link #awaitFlush(long)} 供 onPause 和测试使用。
+ */
+public class FeedCacheWriter {
+
+    private static final String TAG = "FeedCacheWriter";
+
+    /** 提交后等待多久再落盘，这段时间内的新提交都会被合并 */
+    private static final long COALESCE_DELAY_MS = 500;
+
+    private final Context appContext;
+    private final ScheduledExecutorService executor;
+
+    // 以下状态，以及检查 / 关闭 executor 后再提交任务，都由 lock 保护：
+    // 否则 flush 和 shutdown 在不同线程上交错时，会往已关闭的 executor 提交而抛 RejectedExecutionException
+    private final Object lock = new Object();
+    private final List<List<FeedItem>> pendingPages = new ArrayList<>();
+    private boolean pendingReplace = false;
+    private ScheduledFuture<?> scheduledDrain;
+
+    public FeedCacheWriter(@NonNull Context context) {
+        this.appContext = context.getApplicationContext();
+        this.executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "feed-cache-writer");
+            t.setPriority(Thread.MIN_PRIORITY);
+            return t;
+        });
+    }
+
+    /**
+     * 刷新成功：这一页（以及之后追加的页）整体替换掉旧缓存。
+     */
+    public void submitReplace(@NonNull List<FeedItem> page) {
+        List<FeedItem> snapshot = Collections.unmodifiableList(new ArrayList<>(page));
+        synchronized (lock) {
+            // 还没落盘的旧页已经没有意义了
+            pendingPages.clear();
+            pendingReplace = true;
+            pendingPages.add(snapshot);
+            scheduleLocked();
+        }
+    }
+
+    /**
+     * 加载更多成功：这一页追加到缓存末尾。
+     */
+    public void submitAppend(@NonNull List<FeedItem> page) {
+        if (page.isEmpty()) return;
+        List<FeedItem> snapshot = Collections.unmodifiableList(new ArrayList<>(page));
+        synchronized (lock) {
+            pendingPages.add(snapshot);
+            scheduleLocked();
+        }
+    }
+
+    /**
+     * 不再等待合并窗口，立即把待写内容落盘。
+     * 返回的 Future 完成时，此前提交的所有内容都已写入文件。
+     */
+    @NonNull
+    public Future<?> flush() {
+        synchronized (lock) {
+            if (executor.isShutdown()) {
+                return CompletableFuture.completedFuture(null);
+            }
+            if (scheduledDrain != null) {
+                scheduledDrain.cancel(false);
+                scheduledDrain = null;
+            }
+            return executor.submit(this::drain);
+        }
+    }
+
+    /**
+     * 阻塞等待 flush 完成，超时返回 false。
+     */
+    public boolean awaitFlush(long timeoutMs) {
+        try {
+            flush().get(timeoutMs, TimeUnit.MILLISECONDS);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (ExecutionException | TimeoutException e) {
+            Log.w(TAG, "awaitFlush failed", e);
+            return false;
+        }
+    }
+
+    /**
+     * 写完剩余内容后关闭写线程，之后的提交会被忽略。
+     */
+    public void shutdown() {
+        synchronized (lock) {
+            flush();
+            executor.shutdown();
+        }
+    }
+
+    private void scheduleLocked() {
+        if (scheduledDrain != null || executor.isShutdown()) return;
+        scheduledDrain = executor.schedule(this::drain, COALESCE_DELAY_MS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 只在写线程执行：取走所有待写页，合并成一次 save / append。
+     */
+    private void drain() {
+        boolean replace;
+        List<FeedItem> merged = new ArrayList<>();
+        int pageCount;
+        synchronized (lock) {
+            scheduledDrain = null;
+            if (pendingPages.isEmpty()) return;
+            replace = pendingReplace;
+            pageCount = pendingPages.size();
+            for (List<FeedItem> page : pendingPages) {
+                merged.addAll(page);
+            }
+            pendingPages.clear();
+            pendingReplace = false;
+        }
+
+        Log.d(TAG, "drain: pages=" + pageCount + " items=" + merged.size() + " replace=" + replace);
+        if (replace) {
+            LocalFeedCache.save(appContext, merged);
+        } else {
+            LocalFeedCache.append(appContext, merged);
+        }
+    }
+}
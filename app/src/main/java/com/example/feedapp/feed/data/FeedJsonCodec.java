@@ -0,0 +1,72 @@
+package com.example.feedapp.feed.data;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.example.feedapp.feed.model.FeedItem;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 本地 HTTP 服务端与 HttpFeedSource 之间的分页 JSON 格式：
+ * <pre>
+ * {"cursor": 0, "items": [{"id": "...", "cardType": 1, ...}, ...]}
+ * </pre>
+ */
+final class FeedJsonCodec {
+
+    private FeedJsonCodec() {
+    }
+
+    @NonNull
+    static String encodePage(int cursor, @NonNull List<FeedItem> items) throws JSONException {
+        JSONArray array = new JSONArray();
+        for (FeedItem item : items) {
+            JSONObject o = new JSONObject();
+            o.put("id", item.id);
+            o.put("cardType", item.cardType);
+            o.put("layoutType", item.layoutType);
+            o.put("title", item.title);
+            o.put("description", item.description);
+            o.put("imageUrl", item.imageUrl);
+            o.put("imageRes", item.imageRes);
+            o.put("videoUrl", item.videoUrl);
+            array.put(o);
+        }
+        return new JSONObject()
+                .put("cursor", cursor)
+                .put("items", array)
+                .toString();
+    }
+
+    @NonNull
+    static List<FeedItem> decodePage(@NonNull String json) throws JSONException {
+        JSONArray array = new JSONObject(json).getJSONArray("items");
+        List<FeedItem> list = new ArrayList<>(array.length());
+        for (int i = 0; i < array.length(); i++) {
+            JSONObject o = array.getJSONObject(i);
+            list.add(new FeedItem(
+                    o.getString("id"),
+                    o.optInt("cardType", FeedItem.CARD_TYPE_TEXT),
+                    o.optInt("layoutType", FeedItem.LAYOUT_SINGLE_COLUMN),
+                    optNullableString(o, "title"),
+                    optNullableString(o, "description"),
+                    optNullableString(o, "imageUrl"),
+                    o.optInt("imageRes", 0),
+                    optNullableString(o, "videoUrl")
+            ));
+        }
+        return list;
+    }
+
+    @Nullable
+    private static String optNullableString(JSONObject o, String key) {
+        // put(key, null) 不会写入该字段，这里统一按 null 处理
+        return o.isNull(key) ? null : o.optString(key);
+    }
+}
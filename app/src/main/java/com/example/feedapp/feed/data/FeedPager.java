@@ -0,0 +1,187 @@
+package com.example.feedapp.feed.data;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import com.example.feedapp.feed.model.FeedItem;
+
+import java.util.ArrayDeque;
+import java.util.List;
+
+/**
+ * 分页器：在 FeedSource 之上做“下一页预取”。
+ * - 每当一页交给界面展示，就在后台开始拉下一页，结果先放进一个很小的缓冲区；
+ * - loadMore 时缓冲区有页就直接交付，没有才等在途请求；
+ * - refresh 会取消在途请求并清空缓冲区。
+ * 所有方法都只在主线程调用。
+ */
+public class FeedPager {
+
+    private static final String TAG = "FeedPager";
+
+    /** 最多提前缓冲几页 */
+    private static final int MAX_BUFFERED_PAGES = 2;
+
+    /** 触发加载更多的最小 / 最大剩余条数 */
+    private static final int MIN_TRIGGER_DISTANCE = 3;
+    private static final int MAX_TRIGGER_DISTANCE = 30;
+
+    public interface Listener {
+        void onPageLoaded(boolean isRefresh, @NonNull List<FeedItem> page);
+
+        void onPageFailed(boolean isRefresh);
+    }
+
+    private final FeedSource source;
+    private final int pageSize;
+    private final Listener listener;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    private final ArrayDeque<List<FeedItem>> buffer = new ArrayDeque<>();
+    /** 下一次请求的游标（已经算上缓冲区里的页） */
+    private int nextCursor = 0;
+    private boolean reachedEnd = false;
+
+    private FeedSource.Call inFlight;
+    private boolean inFlightIsRefresh = false;
+    /** 界面已经在等下一页（footer 转圈中），在途请求回来后直接交付 */
+    private boolean waitingForMore = false;
+
+    /** refresh / cancel 时递增，丢弃已经 post 出去的旧交付 */
+    private int generation = 0;
+
+    /** 请求耗时的滑动平均，用来估算需要提前多远触发 */
+    private long avgLatencyMs = 800;
+
+    public FeedPager(@NonNull FeedSource source, int pageSize, @NonNull Listener listener) {
+        this.source = source;
+        this.pageSize = pageSize;
+        this.listener = listener;
+    }
+
+    public void refresh() {
+        generation++;
+        cancelInFlight();
+        buffer.clear();
+        nextCursor = 0;
+        reachedEnd = false;
+        waitingForMore = false;
+        request(true);
+    }
+
+    /**
+     * 请求下一页：有预取好的页立即交付（下一帧回调），否则等在途请求或发起新请求。
+     */
+    public void loadMore() {
+        if (isRefreshing()) return;
+
+        List<FeedItem> page = buffer.poll();
+        if (page != null) {
+            Log.d(TAG, "loadMore: hit prefetch buffer, remain=" + buffer.size());
+            // 调用方通常在滚动回调里，改数据放到下一个消息里做
+            final int gen = generation;
+            mainHandler.post(() -> {
+                if (gen == generation) {
+                    deliver(false, page);
+                }
+            });
+            return;
+        }
+
+        waitingForMore = true;
+        if (inFlight == null) {
+            request(false);
+        }
+    }
+
+    public boolean isRefreshing() {
+        return inFlight != null && inFlightIsRefresh;
+    }
+
+    /**
+     * 根据当前滚动速度估算“距离底部还剩多少条时触发 loadMore”：
+     * 保证在一次请求耗时内滚过的条数之前就开始加载。
+     *
+     * @param velocityPxPerMs  最近的滚动速度（向下为正）
+     * @param avgItemHeightPx 平均每条占用的高度（双列时约为行高的一半）
+     */
+    public int getTriggerDistance(float velocityPxPerMs, float avgItemHeightPx) {
+        if (velocityPxPerMs <= 0f || avgItemHeightPx <= 0f) {
+            return MIN_TRIGGER_DISTANCE;
+        }
+        float itemsDuringFetch = velocityPxPerMs * avgLatencyMs / avgItemHeightPx;
+        int distance = MIN_TRIGGER_DISTANCE + (int) Math.ceil(itemsDuringFetch);
+        return Math.min(MAX_TRIGGER_DISTANCE, distance);
+    }
+
+    public void cancel() {
+        generation++;
+        cancelInFlight();
+        buffer.clear();
+        waitingForMore = false;
+    }
+
+    private void cancelInFlight() {
+        if (inFlight != null) {
+            inFlight.cancel();
+            inFlight = null;
+        }
+    }
+
+    private void deliver(boolean isRefresh, List<FeedItem> page) {
+        listener.onPageLoaded(isRefresh, page);
+        // 这一页已经展示，马上开始预取下一页
+        prefetchIfNeeded();
+    }
+
+    private void prefetchIfNeeded() {
+        if (inFlight != null || reachedEnd || buffer.size() >= MAX_BUFFERED_PAGES) return;
+        request(false);
+    }
+
+    private void request(boolean isRefresh) {
+        final int cursor = nextCursor;
+        final long startTime = SystemClock.uptimeMillis();
+        inFlightIsRefresh = isRefresh;
+        inFlight = source.fetchPage(cursor, pageSize, new FeedSource.Callback() {
+            @Override
+            public void onPageLoaded(int c, @NonNull List<FeedItem> page) {
+                inFlight = null;
+                long latency = SystemClock.uptimeMillis() - startTime;
+                avgLatencyMs = (avgLatencyMs * 3 + latency) / 4;
+
+                nextCursor = cursor + page.size();
+                if (page.size() < pageSize) {
+                    reachedEnd = true;
+                }
+
+                if (isRefresh) {
+                    deliver(true, page);
+                } else if (waitingForMore) {
+                    waitingForMore = false;
+                    deliver(false, page);
+                } else {
+                    buffer.add(page);
+                    Log.d(TAG, "prefetched cursor=" + cursor + ", buffered=" + buffer.size());
+                    prefetchIfNeeded();
+                }
+            }
+
+            @Override
+            public void onPageFailed(int c, @NonNull Exception error) {
+                inFlight = null;
+                if (isRefresh) {
+                    listener.onPageFailed(true);
+                } else if (waitingForMore) {
+                    waitingForMore = false;
+                    listener.onPageFailed(false);
+                }
+                // 预取失败不打扰界面，等真正 loadMore 时再重试
+            }
+        });
+    }
+}
@@ -0,0 +1,199 @@
+package com.example.feedapp.feed.data;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.example.feedapp.feed.model.FeedItem;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Feed 缓存文件的二进制编解码。
+ *
+ * 文件结构：
+ * <pre>
+ * [int MAGIC][int VERSION]                      文件头
+ * [int payloadLength][payload] ...              每条 FeedItem 一条记录，只追加不改写
+ * </pre>
+ * payload 内字段顺序固定：id / cardType / layoutType / title / description /
+ * imageUrl / imageRes / videoUrl。字符串写成 [int 字节数][UTF-8]，null 的字节数记为 -1。
+ *
+ * 旁边的索引文件只存每条记录在数据文件中的起始偏移，冷启动时不用扫数据文件就能定位任意一条：
+ * <pre>
+ * [int INDEX_MAGIC][int INDEX_VERSION][long dataLength]   索引头
+ * [int offset] ...
+ * </pre>
+ * 数据和索引是两个文件，不能一起原子提交。索引头记下它对应的数据文件长度，
+ * 每次写完索引项后更新；和实际数据文件长度对不上的索引（例如数据已提交、索引还没写就被杀）一律不用。
+ */
+final class FeedRecordCodec {
+
+    static final int MAGIC = 0x46454544; // "FEED"
+    static final int INDEX_MAGIC = 0x46494458; // "FIDX"
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 8;
+    /** 2：索引头加了数据文件长度，旧版本的索引直接丢弃重建 */
+    static final int INDEX_VERSION = 2;
+    static final int INDEX_HEADER_SIZE = 16;
+    /** 索引头里数据文件长度字段的位置 */
+    static final int INDEX_DATA_LENGTH_OFFSET = 8;
+    static final int LENGTH_PREFIX_SIZE = 4;
+
+    /** 单条记录的上限，超过视为文件损坏 */
+    static final int MAX_RECORD_SIZE = 64 * 1024;
+
+    private FeedRecordCodec() {
+    }
+
+    static byte[] encodeHeader() {
+        return ByteBuffer.allocate(HEADER_SIZE).putInt(MAGIC).putInt(VERSION).array();
+    }
+
+    static byte[] encodeIndexHeader(long dataLength) {
+        return ByteBuffer.allocate(INDEX_HEADER_SIZE)
+                .putInt(INDEX_MAGIC).putInt(INDEX_VERSION).putLong(dataLength).array();
+    }
+
+    /**
+     * @return 索引对应的数据文件长度；不是可用的索引时返回 -1
+     */
+    static long readIndexHeader(@NonNull ByteBuffer buffer) {
+        if (buffer.remaining() < INDEX_HEADER_SIZE) return -1;
+        if (buffer.getInt() != INDEX_MAGIC || buffer.getInt() != INDEX_VERSION) return -1;
+        return buffer.getLong();
+    }
+
+    /**
+     * 为 {@link #encodeRecords} 的结果生成索引项，baseOffset 是这批记录在数据文件中的起始位置。
+     */
+    static byte[] encodeIndex(@NonNull byte[] records, long baseOffset) {
+        ByteBuffer in = ByteBuffer.wrap(records);
+        ByteArrayOutputStream out = new ByteArrayOutputStream(records.length / 64 + 4);
+        while (in.remaining() >= LENGTH_PREFIX_SIZE) {
+            int recordStart = in.position();
+            int len = in.getInt();
+            writeInt(out, (int) (baseOffset + recordStart));
+            in.position(in.position() + len);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * 偏移 offset 处是否是一条完整的记录（没有越过文件尾）。
+     */
+    static boolean isCompleteRecord(@NonNull ByteBuffer buffer, int offset) {
+        int limit = buffer.limit();
+        if (offset < HEADER_SIZE || offset > limit - LENGTH_PREFIX_SIZE) return false;
+        int len = buffer.getInt(offset);
+        return len > 0 && len <= MAX_RECORD_SIZE
+                && len <= limit - offset - LENGTH_PREFIX_SIZE;
+    }
+
+    /**
+     * 校验文件头，成功时 buffer 的 position 停在第一条记录处。
+     */
+    static boolean readHeader(@NonNull ByteBuffer buffer) {
+        if (buffer.remaining() < HEADER_SIZE) return false;
+        return buffer.getInt() == MAGIC && buffer.getInt() == VERSION;
+    }
+
+    /**
+     * 把一页数据编码成连续的 [长度][内容] 记录，调用方整块写入文件。
+     */
+    static byte[] encodeRecords(@NonNull List<FeedItem> items) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(items.size() * 256);
+        for (FeedItem item : items) {
+            byte[] payload = encodePayload(item);
+            writeInt(out, payload.length);
+            out.write(payload, 0, payload.length);
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] encodePayload(@NonNull FeedItem item) {
+        byte[] id = utf8(item.id);
+        byte[] title = utf8(item.title);
+        byte[] desc = utf8(item.description);
+        byte[] imageUrl = utf8(item.imageUrl);
+        byte[] videoUrl = utf8(item.videoUrl);
+
+        int size = stringSize(id) + 4 + 4 + stringSize(title) + stringSize(desc)
+                + stringSize(imageUrl) + 4 + stringSize(videoUrl);
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        putString(buffer, id);
+        buffer.putInt(item.cardType);
+        buffer.putInt(item.layoutType);
+        putString(buffer, title);
+        putString(buffer, desc);
+        putString(buffer, imageUrl);
+        buffer.putInt(item.imageRes);
+        putString(buffer, videoUrl);
+        return buffer.array();
+    }
+
+    /**
+     * 从 buffer 的 [offset, offset + length) 解出一条 FeedItem，不改变 buffer 的 position。
+     */
+    @NonNull
+    static FeedItem decodePayload(@NonNull ByteBuffer buffer, int offset, int length) {
+        ByteBuffer in = buffer.duplicate();
+        in.limit(offset + length);
+        in.position(offset);
+
+        String id = getString(in);
+        int cardType = in.getInt();
+        int layoutType = in.getInt();
+        String title = getString(in);
+        String desc = getString(in);
+        String imageUrl = getString(in);
+        int imageRes = in.getInt();
+        String videoUrl = getString(in);
+        return new FeedItem(id, cardType, layoutType, title, desc, imageUrl, imageRes, videoUrl);
+    }
+
+    @Nullable
+    private static byte[] utf8(@Nullable String s) {
+        return s == null ? null : s.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int stringSize(@Nullable byte[] bytes) {
+        return 4 + (bytes == null ? 0 : bytes.length);
+    }
+
+    private static void putString(ByteBuffer buffer, @Nullable byte[] bytes) {
+        if (bytes == null) {
+            buffer.putInt(-1);
+        } else {
+            buffer.putInt(bytes.length);
+            buffer.put(bytes);
+        }
+    }
+
+    @Nullable
+    private static String getString(ByteBuffer in) {
+        int len = in.getInt();
+        if (len < 0) return null;
+        if (len > in.remaining()) throw new BufferUnderflowException();
+        if (in.hasArray()) {
+            String s = new String(in.array(), in.arrayOffset() + in.position(), len,
+                    StandardCharsets.UTF_8);
+            in.position(in.position() + len);
+            return s;
+        }
+        // 内存映射的 buffer 没有 backing array，只拷贝这一段
+        byte[] bytes = new byte[len];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeInt(ByteArrayOutputStream out, int v) {
+        out.write((v >>> 24) & 0xFF);
+        out.write((v >>> 16) & 0xFF);
+        out.write((v >>> 8) & 0xFF);
+        out.write(v & 0xFF);
+    }
+}
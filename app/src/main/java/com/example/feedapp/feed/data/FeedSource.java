@@ -0,0 +1,38 @@
+package com.example.feedapp.feed.data;
+
+import androidx.annotation.NonNull;
+
+import com.example.feedapp.feed.model.FeedItem;
+
+import java.util.List;
+
+/**
+ * Feed 数据源：按游标异步拉取一页数据。
+ * 实现方负责在后台线程完成生成 / 网络 / 解析，回调统一在主线程执行。
+ */
+public interface FeedSource {
+
+    interface Callback {
+        /** 主线程回调；page 为空或不足 size 条表示没有更多了 */
+        void onPageLoaded(int cursor, @NonNull List<FeedItem> page);
+
+        /** 主线程回调 */
+        void onPageFailed(int cursor, @NonNull Exception error);
+    }
+
+    /**
+     * 一次请求的句柄。取消后不会再收到任何回调。
+     */
+    interface Call {
+        void cancel();
+
+        boolean isCanceled();
+    }
+
+    /**
+     * @param cursor 本页第一条数据的下标（从 0 开始，0 表示刷新）
+     * @param size   期望的条数
+     */
+    @NonNull
+    Call fetchPage(int cursor, int size, @NonNull Callback callback);
+}
@@ -0,0 +1,64 @@
+package com.example.feedapp.feed.data;
+
+import androidx.annotation.NonNull;
+
+import com.example.feedapp.feed.model.FeedItem;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * 通过 HTTP 拉取分页 JSON 的数据源，联调时配合 {@link LocalFeedServer} 使用。
+ * 请求、读取和 JSON 解析都在后台线程完成。
+ */
+public class HttpFeedSource extends BackgroundFeedSource {
+
+    private static final int TIMEOUT_MS = 5000;
+
+    private final String feedUrl;
+
+    public HttpFeedSource(@NonNull String feedUrl) {
+        this.feedUrl = feedUrl;
+    }
+
+    @NonNull
+    @Override
+    protected List<FeedItem> loadPage(int cursor, int size) throws Exception {
+        URL url = new URL(feedUrl + "?cursor=" + cursor + "&size=" + size);
+        HttpURLConnection conn = (HttpURLConnection) url.openConnection();
+        conn.setConnectTimeout(TIMEOUT_MS);
+        conn.setReadTimeout(TIMEOUT_MS);
+        try {
+            int code = conn.getResponseCode();
+            if (code != HttpURLConnection.HTTP_OK) {
+                throw new IOException("HTTP " + code);
+            }
+            String body;
+            try (InputStream in = conn.getInputStream()) {
+                body = readFully(in);
+            }
+            // 阻塞的 socket 读不响应中断，读完再检查一次是否已被取消
+            if (Thread.interrupted()) {
+                throw new InterruptedException("canceled");
+            }
+            return FeedJsonCodec.decodePage(body);
+        } finally {
+            conn.disconnect();
+        }
+    }
+
+    private static String readFully(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buf = new byte[8192];
+        int n;
+        while ((n = in.read(buf)) != -1) {
+            out.write(buf, 0, n);
+        }
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+}
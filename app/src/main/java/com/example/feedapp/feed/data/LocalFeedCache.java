@@ -1,115 +1,253 @@
 package com.example.feedapp.feed.data;
 
 import android.content.Context;
-import android.content.SharedPreferences;
+import android.util.AtomicFile;
 import android.util.Log;
 
 import androidx.annotation.Nullable;
 
 import com.example.feedapp.feed.model.FeedItem;
 
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.util.ArrayList;
 import java.util.List;
 
 /**
- * 本地缓存：把当前 Feed 列表序列化到 SharedPreferences，
+ * 本地缓存：把 Feed 列表按页写入一个二进制文件（格式见 {@link FeedRecordCodec}），
  * 当“网络请求”失败时，从这里读出来展示。
+ * - 下拉刷新成功：{@link #save} 覆盖整个文件；
+ * - 加载更多成功：{@link #append} 只把新的一页追加到文件末尾。
+ * 写入由 {@link FeedCacheWriter} 在后台线程完成；读写方法都持有类锁，读到一半不会撞上追加。
+ * 冷启动兜底用 {@link #loadLazily}：内存映射 + 按位置解码，打开耗时与缓存条数无关。
  */
 public class LocalFeedCache {
 
-    private static final String PREF_NAME = "feed_cache";
-    private static final String KEY_FEED_ITEMS = "key_feed_items_v1";
+    private static final String TAG = "LocalFeedCache";
+    private static final String FILE_NAME = "feed_cache.bin";
+    private static final String INDEX_FILE_NAME = "feed_cache.idx";
 
-    private static SharedPreferences prefs(Context context) {
-        return context.getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE);
-    }
+    // 旧版本把整张列表拼成字符串存在 SharedPreferences 里，这里只负责清理
+    private static final String LEGACY_PREF_NAME = "feed_cache";
+    private static boolean legacyDropped = false;
 
-    private static String escape(String s) {
-        if (s == null) return "";
-        return s.replace("|", "\\|").replace("\n", "\\n");
+    static File cacheFile(Context context) {
+        return new File(context.getFilesDir(), FILE_NAME);
     }
 
-    private static String unescape(String s) {
-        if (s == null) return "";
-        return s.replace("\\n", "\n").replace("\\|", "|");
+    static File indexFile(Context context) {
+        return new File(context.getFilesDir(), INDEX_FILE_NAME);
     }
 
-    private static int safeParseInt(String s, int def) {
+    // 用这一页覆盖本地缓存（刷新成功时调用）
+    public static synchronized void save(Context context, List<FeedItem> items) {
+        if (items == null || items.isEmpty()) {
+            Log.d(TAG, "save: empty list, skip");
+            return;
+        }
+        Log.d(TAG, "save: size=" + items.size());
+        byte[] records = FeedRecordCodec.encodeRecords(items);
+        long dataLength = FeedRecordCodec.HEADER_SIZE + records.length;
+
+        // 先删旧索引再提交数据：数据提交后、新索引写完前被杀，也不会留下旧索引配新数据
+        indexFile(context).delete();
+        AtomicFile file = new AtomicFile(cacheFile(context));
+        FileOutputStream out = null;
         try {
-            return Integer.parseInt(s);
-        } catch (Exception e) {
-            return def;
+            out = file.startWrite();
+            out.write(FeedRecordCodec.encodeHeader());
+            out.write(records);
+            file.finishWrite(out);
+        } catch (IOException e) {
+            Log.w(TAG, "save failed", e);
+            if (out != null) {
+                file.failWrite(out);
+            }
+            return;
         }
+
+        AtomicFile index = new AtomicFile(indexFile(context));
+        out = null;
+        try {
+            out = index.startWrite();
+            out.write(FeedRecordCodec.encodeIndexHeader(dataLength));
+            out.write(FeedRecordCodec.encodeIndex(records, FeedRecordCodec.HEADER_SIZE));
+            index.finishWrite(out);
+        } catch (IOException e) {
+            Log.w(TAG, "save index failed", e);
+            if (out != null) {
+                index.failWrite(out);
+            }
+            // 旧索引对不上新数据，删掉让读取方退回扫描
+            indexFile(context).delete();
+        }
+        dropLegacyPrefs(context);
     }
 
-    // 保存当前列表到本地
-    public static void save(Context context, List<FeedItem> items) {
-        if (items == null || items.isEmpty()) {
-            Log.d("LocalFeedCache", "save: empty list, skip");
+    // 把新加载的一页追加到缓存末尾（加载更多成功时调用）
+    public static synchronized void append(Context context, List<FeedItem> page) {
+        if (page == null || page.isEmpty()) {
             return;
         }
-        Log.d("LocalFeedCache", "save: size=" + items.size());
-        StringBuilder sb = new StringBuilder();
-        for (FeedItem item : items) {
-            sb.append(escape(item.id)).append('|')
-                    .append(item.cardType).append('|')
-                    .append(item.layoutType).append('|')
-                    .append(escape(item.title)).append('|')
-                    .append(escape(item.description)).append('|')
-                    .append(escape(item.imageUrl)).append('|')
-                    .append(item.imageRes).append('|')
-                    .append(escape(item.videoUrl == null ? "" : item.videoUrl))
-                    .append('\n');
+        File file = cacheFile(context);
+        if (file.length() < FeedRecordCodec.HEADER_SIZE) {
+            // 还没有可用的文件头，按整页覆盖处理
+            save(context, page);
+            return;
+        }
+        Log.d(TAG, "append: size=" + page.size());
+        byte[] records = FeedRecordCodec.encodeRecords(page);
+        long baseOffset = file.length();
+        try (FileOutputStream out = new FileOutputStream(file, true)) {
+            out.write(records);
+        } catch (IOException e) {
+            Log.w(TAG, "append failed", e);
+            return;
+        }
+
+        // 数据先落盘，再追加索引项，最后把索引头的数据长度改成新长度；
+        // 中途被杀时索引头的长度和数据对不上，读取方会丢弃索引改为扫描
+        File index = indexFile(context);
+        if (index.length() < FeedRecordCodec.INDEX_HEADER_SIZE) {
+            return;
+        }
+        try (RandomAccessFile raf = new RandomAccessFile(index, "rw")) {
+            raf.seek(FeedRecordCodec.INDEX_DATA_LENGTH_OFFSET);
+            if (raf.readLong() != baseOffset) {
+                // 索引本来就和数据对不上（上次追加中途被杀），不能在它后面接着写
+                raf.close();
+                index.delete();
+                return;
+            }
+            raf.seek(raf.length());
+            raf.write(FeedRecordCodec.encodeIndex(records, baseOffset));
+            raf.seek(FeedRecordCodec.INDEX_DATA_LENGTH_OFFSET);
+            raf.writeLong(baseOffset + records.length);
+        } catch (IOException e) {
+            Log.w(TAG, "append index failed", e);
+            index.delete();
         }
-        prefs(context).edit().putString(KEY_FEED_ITEMS, sb.toString()).apply();
     }
 
-    // 从本地读取缓存，如果没有就返回 null
+    // 从本地读取全部缓存，如果没有就返回 null
     @Nullable
     public static List<FeedItem> load(Context context) {
-        String data = prefs(context).getString(KEY_FEED_ITEMS, null);
-        if (data == null || data.isEmpty()) return null;
+        return load(context, Integer.MAX_VALUE);
+    }
+
+    /**
+     * 冷启动恢复：把缓存文件映射进内存，返回按需解码的只读列表，没有缓存时返回 null。
+     * 只有 Adapter 实际取到的位置才会构造 FeedItem。
+     */
+    @Nullable
+    public static synchronized List<FeedItem> loadLazily(Context context) {
+        File file = cacheFile(context);
+        if (file.length() < FeedRecordCodec.HEADER_SIZE) return null;
+
+        ByteBuffer data = map(file);
+        if (data == null) return null;
+        File index = indexFile(context);
+        ByteBuffer indexBuffer = index.length() >= FeedRecordCodec.INDEX_HEADER_SIZE ? map(index) : null;
+
+        MappedFeedList list = MappedFeedList.open(data, indexBuffer);
+        Log.d(TAG, "loadLazily: size=" + (list == null ? 0 : list.size()));
+        return list;
+    }
+
+    @Nullable
+    private static ByteBuffer map(File file) {
+        // 映射在 channel 关闭后依然有效；之后覆盖写走的是 rename，不会改到已映射的旧文件
+        try (FileChannel channel = new RandomAccessFile(file, "r").getChannel()) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (IOException e) {
+            Log.w(TAG, "map failed: " + file.getName(), e);
+            return null;
+        }
+    }
+
+    /**
+     * 只读取前 maxCount 条记录，后面的内容不会被解析。
+     */
+    @Nullable
+    public static synchronized List<FeedItem> load(Context context, int maxCount) {
+        File file = cacheFile(context);
+        if (!file.exists()) return null;
 
         List<FeedItem> list = new ArrayList<>();
-        String[] lines = data.split("\n");
-        for (String line : lines) {
-            if (line.trim().isEmpty()) continue;
-            String[] parts = line.split("\\|", -1);
-            if (parts.length < 8) continue;
-
-            String id = unescape(parts[0]);
-            int cardType = safeParseInt(parts[1], FeedItem.CARD_TYPE_TEXT);
-            int layoutType = safeParseInt(parts[2], FeedItem.LAYOUT_SINGLE_COLUMN);
-            String title = unescape(parts[3]);
-            String desc = unescape(parts[4]);
-            String imageUrl = unescape(parts[5]);
-            int imageRes = safeParseInt(parts[6], 0);
-            String videoUrl = unescape(parts[7]);
-            if (videoUrl.isEmpty()) videoUrl = null;
-
-            FeedItem item;
-            switch (cardType) {
-                case FeedItem.CARD_TYPE_IMAGE:
-                    if (imageRes != 0) {
-                        // 本地图
-                        item = new FeedItem(id, layoutType, title, desc, imageRes);
-                    } else {
-                        // 网络图
-                        item = new FeedItem(id, layoutType, title, desc, imageUrl);
-                    }
+        long validEnd = FeedRecordCodec.HEADER_SIZE;
+        boolean reachedEnd = false;
+
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(file)))) {
+            byte[] header = new byte[FeedRecordCodec.HEADER_SIZE];
+            in.readFully(header);
+            if (!FeedRecordCodec.readHeader(ByteBuffer.wrap(header))) {
+                Log.w(TAG, "load: unknown cache header, ignore");
+                return null;
+            }
+
+            byte[] record = new byte[512];
+            while (list.size() < maxCount) {
+                int len;
+                try {
+                    len = in.readInt();
+                } catch (EOFException e) {
+                    reachedEnd = true;
                     break;
-                case FeedItem.CARD_TYPE_VIDEO:
-                    item = new FeedItem(id, layoutType, title, desc, imageUrl, imageRes, videoUrl);
+                }
+                if (len <= 0 || len > FeedRecordCodec.MAX_RECORD_SIZE) {
+                    reachedEnd = true;
                     break;
-                case FeedItem.CARD_TYPE_TEXT:
-                default:
-                    item = new FeedItem(id, layoutType, title, desc);
+                }
+                if (record.length < len) {
+                    record = new byte[len];
+                }
+                try {
+                    in.readFully(record, 0, len);
+                } catch (EOFException e) {
+                    reachedEnd = true;
                     break;
+                }
+                list.add(FeedRecordCodec.decodePayload(ByteBuffer.wrap(record), 0, len));
+                validEnd += FeedRecordCodec.LENGTH_PREFIX_SIZE + len;
             }
-            list.add(item);
+        } catch (IOException | RuntimeException e) {
+            Log.w(TAG, "load: broken cache file", e);
+            reachedEnd = true;
         }
-        Log.d("LocalFeedCache", "load: parsed size=" + list.size());
-        return list;
+
+        // 上次追加写到一半被杀掉时，文件尾部会残留半条记录，截掉以免后续追加接在垃圾数据后面
+        if (reachedEnd && validEnd < file.length()) {
+            truncate(file, validEnd);
+        }
+
+        Log.d(TAG, "load: parsed size=" + list.size());
+        return list.isEmpty() ? null : list;
+    }
+
+    private static void truncate(File file, long length) {
+        Log.w(TAG, "truncate broken tail, keep " + length + " bytes");
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(length);
+        } catch (IOException e) {
+            Log.w(TAG, "truncate failed", e);
+        }
+        // 索引里可能有指向被截掉部分的项，下次刷新时会重建
+        new File(file.getParentFile(), INDEX_FILE_NAME).delete();
+    }
+
+    private static void dropLegacyPrefs(Context context) {
+        if (legacyDropped) return;
+        legacyDropped = true;
+        context.deleteSharedPreferences(LEGACY_PREF_NAME);
     }
 
 }
@@ -0,0 +1,65 @@
+package com.example.feedapp.feed.data;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import com.example.feedapp.common.net.LoopbackHttpServer;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 跑在本机回环地址上的“真 HTTP”假服务端，给 HttpFeedSource 做联调 / 测试用。
+ * GET /feed?cursor=0&size=10 返回一页 JSON（格式见 {@link FeedJsonCodec}）。
+ *
+ * 请求可能在多个工作线程上并发处理，生成数据时锁住 MockDataGenerator，保证分页节奏状态一致。
+ */
+public class LocalFeedServer extends LoopbackHttpServer {
+
+    private static final String TAG = "LocalFeedServer";
+
+    private final MockDataGenerator generator = new MockDataGenerator();
+
+    public LocalFeedServer() throws IOException {
+        super(TAG);
+    }
+
+    @NonNull
+    public String getFeedUrl() {
+        return getBaseUrl() + "/feed";
+    }
+
+    @NonNull
+    @Override
+    protected Response handle(@NonNull Request request) {
+        if (!"GET".equals(request.method) || !"/feed".equals(request.getPath())) {
+            return Response.text(404, "not found");
+        }
+
+        int cursor = parseInt(request.getQueryParameter("cursor"), 0);
+        int size = parseInt(request.getQueryParameter("size"), 10);
+        String body;
+        try {
+            synchronized (generator) {
+                if (cursor == 0) {
+                    generator.reset();
+                }
+                body = FeedJsonCodec.encodePage(cursor, generator.generatePageData(cursor, size));
+            }
+        } catch (Exception e) {
+            Log.w(TAG, "generate failed", e);
+            return Response.text(500, String.valueOf(e.getMessage()));
+        }
+        return new Response(200, "application/json; charset=utf-8",
+                body.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static int parseInt(String s, int def) {
+        try {
+            return Integer.parseInt(s);
+        } catch (Exception e) {
+            return def;
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package com.example.feedapp.feed.data;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.example.feedapp.feed.model.FeedItem;
+
+import java.nio.ByteBuffer;
+import java.util.AbstractList;
+import java.util.RandomAccess;
+
+/**
+ * 冷启动恢复用的只读列表：数据文件整体内存映射，
+ * 只有 {@link #get(int)} 被调用到的位置才会解码成 FeedItem（解码后会记住，不会重复解）。
+ *
+ * 记录偏移优先取自索引文件（O(1) 打开）；索引缺失、损坏或者和数据文件对不上时退回扫描一遍记录长度。
+ */
+final class MappedFeedList extends AbstractList<FeedItem> implements RandomAccess {
+
+    private static final String TAG = "MappedFeedList";
+
+    private final ByteBuffer data;
+    // 二选一：映射的索引文件，或者扫描得到的偏移数组
+    @Nullable
+    private final ByteBuffer index;
+    @Nullable
+    private final int[] offsets;
+    private final int size;
+    private final FeedItem[] decoded;
+
+    private MappedFeedList(@NonNull ByteBuffer data,
+                           @Nullable ByteBuffer index,
+                           @Nullable int[] offsets,
+                           int size) {
+        this.data = data;
+        this.index = index;
+        this.offsets = offsets;
+        this.size = size;
+        this.decoded = new FeedItem[size];
+    }
+
+    /**
+     * @param data  映射好的数据文件（含文件头）
+     * @param index 映射好的索引文件，没有时传 null
+     * @return 文件头不对或没有任何完整记录时返回 null
+     */
+    @Nullable
+    static MappedFeedList open(@NonNull ByteBuffer data, @Nullable ByteBuffer index) {
+        if (!FeedRecordCodec.readHeader(data.duplicate())) {
+            Log.w(TAG, "open: unknown cache header");
+            return null;
+        }
+
+        // 索引头记的数据长度必须和数据文件一致，否则是上一份数据的旧索引，偏移全都不可信
+        if (index != null && FeedRecordCodec.readIndexHeader(index.duplicate()) == data.limit()) {
+            int count = (index.limit() - FeedRecordCodec.INDEX_HEADER_SIZE) / 4;
+            // 数据追加失败时索引可能多出几项，从尾部往前丢掉越界的
+            while (count > 0 && !FeedRecordCodec.isCompleteRecord(data, offsetAt(index, count - 1))) {
+                count--;
+            }
+            if (count > 0) {
+                return new MappedFeedList(data, index, null, count);
+            }
+        }
+
+        int[] scanned = scanOffsets(data);
+        if (scanned.length == 0) return null;
+        Log.d(TAG, "open: index unavailable, scanned " + scanned.length + " records");
+        return new MappedFeedList(data, null, scanned, scanned.length);
+    }
+
+    private static int offsetAt(@NonNull ByteBuffer index, int position) {
+        return index.getInt(FeedRecordCodec.INDEX_HEADER_SIZE + position * 4);
+    }
+
+    /**
+     * 只读每条记录的长度前缀，不解码内容。
+     */
+    private static int[] scanOffsets(@NonNull ByteBuffer data) {
+        int[] result = new int[64];
+        int count = 0;
+        int offset = FeedRecordCodec.HEADER_SIZE;
+        while (FeedRecordCodec.isCompleteRecord(data, offset)) {
+            if (count == result.length) {
+                int[] grown = new int[count * 2];
+                System.arraycopy(result, 0, grown, 0, count);
+                result = grown;
+            }
+            result[count++] = offset;
+            offset += FeedRecordCodec.LENGTH_PREFIX_SIZE + data.getInt(offset);
+        }
+        int[] trimmed = new int[count];
+        System.arraycopy(result, 0, trimmed, 0, count);
+        return trimmed;
+    }
+
+    @Override
+    public FeedItem get(int position) {
+        if (position < 0 || position >= size) {
+            throw new IndexOutOfBoundsException("position=" + position + ", size=" + size);
+        }
+        FeedItem item = decoded[position];
+        if (item == null) {
+            item = decode(position);
+            decoded[position] = item;
+        }
+        return item;
+    }
+
+    @NonNull
+    private FeedItem decode(int position) {
+        int offset = offsets != null ? offsets[position] : offsetAt(index, position);
+        try {
+            if (FeedRecordCodec.isCompleteRecord(data, offset)) {
+                int len = data.getInt(offset);
+                return FeedRecordCodec.decodePayload(data,
+                        offset + FeedRecordCodec.LENGTH_PREFIX_SIZE, len);
+            }
+        } catch (RuntimeException e) {
+            Log.w(TAG, "decode failed at " + position, e);
+        }
+        // 单条损坏不影响整张列表，用一张空文本卡占位
+        return new FeedItem("broken_" + position, FeedItem.LAYOUT_SINGLE_COLUMN, "", "");
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.feedapp.feed.data;
+
+import androidx.annotation.NonNull;
+
+import com.example.feedapp.feed.model.FeedItem;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * 本地“伪服务端”数据源：在后台线程用 MockDataGenerator 生成数据，并模拟网络耗时。
+ */
+public class MockFeedSource extends BackgroundFeedSource {
+
+    private static final long SIMULATED_LATENCY_MS = 800;
+
+    // 生成器带有单列/双列、视频、广告的节奏状态，同一时间只能有一个线程使用
+    private final MockDataGenerator generator = new MockDataGenerator();
+    private volatile boolean forceError = false;
+
+    /**
+     * 调试用：打开后每次请求都以失败结束，用于验证本地缓存兜底。
+     */
+    public void setForceError(boolean forceError) {
+        this.forceError = forceError;
+    }
+
+    @NonNull
+    @Override
+    protected List<FeedItem> loadPage(int cursor, int size) throws Exception {
+        Thread.sleep(SIMULATED_LATENCY_MS);
+        if (forceError) {
+            throw new IOException("simulated network error");
+        }
+        synchronized (generator) {
+            if (cursor == 0) {
+                // 刷新：从头开始生成布局和视频节奏
+                generator.reset();
+            }
+            return generator.generatePageData(cursor, size);
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.example.feedapp.feed.exposure;
+
+import androidx.annotation.NonNull;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * 曝光事件批次的二进制格式，落盘文件和上报请求体共用：
+ * <pre>
+ * [int MAGIC][int VERSION][int count]                       批次头
+ * [long time][byte kind][int position][float ratio]
+ * [long duration][short idLength][id UTF-8] ...            每个事件一条记录
+ * </pre>
+ * 记录之间没有分隔和索引，多个批次合并时去掉各自的头、记录直接拼接即可。
+ */
+final class ExposureBatchCodec {
+
+    static final int MAGIC = 0x45585042; // "EXPB"
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 12;
+
+    /** 事件记录中 id 之前的定长部分 */
+    private static final int FIXED_RECORD_SIZE = 8 + 1 + 4 + 4 + 8 + 2;
+
+    private ExposureBatchCodec() {
+    }
+
+    /**
+     * 逐条编码事件记录（不含批次头），由调用方攒够一批后再加头写出。
+     */
+    static final class RecordWriter implements ExposureEventRing.Sink {
+        private final ByteArrayOutputStream buffer = new ByteArrayOutputStream(16 * 1024);
+        private final DataOutputStream out = new DataOutputStream(buffer);
+        private int count = 0;
+
+        @Override
+        public void onEvent(long timeMillis, int kind, String itemId, int position,
+                            float ratio, long durationMillis) {
+            byte[] id = itemId == null ? new byte[0] : itemId.getBytes(StandardCharsets.UTF_8);
+            int idLength = Math.min(id.length, Short.MAX_VALUE);
+            try {
+                out.writeLong(timeMillis);
+                out.writeByte(kind);
+                out.writeInt(position);
+                out.writeFloat(ratio);
+                out.writeLong(durationMillis);
+                out.writeShort(idLength);
+                out.write(id, 0, idLength);
+            } catch (IOException e) {
+                // ByteArrayOutputStream 不会抛 IOException
+                throw new IllegalStateException(e);
+            }
+            count++;
+        }
+
+        int count() {
+            return count;
+        }
+
+        /**
+         * 取出目前攒下的记录并加上批次头，之后清空。
+         */
+        @NonNull
+        byte[] takeBatch() {
+            byte[] records = buffer.toByteArray();
+            byte[] batch = ByteBuffer.allocate(HEADER_SIZE + records.length)
+                    .putInt(MAGIC).putInt(VERSION).putInt(count)
+                    .put(records)
+                    .array();
+            buffer.reset();
+            count = 0;
+            return batch;
+        }
+    }
+
+    /**
+     * 校验批次头，返回事件数；格式不对返回 -1。
+     */
+    static int readCount(@NonNull byte[] batch) {
+        if (batch.length < HEADER_SIZE) return -1;
+        ByteBuffer in = ByteBuffer.wrap(batch);
+        if (in.getInt() != MAGIC || in.getInt() != VERSION) return -1;
+        int count = in.getInt();
+        return count < 0 ? -1 : count;
+    }
+
+    /**
+     * 把多个批次合并成一个（上报时一次请求发送）。调用方需先用 {@link #readCount} 过滤掉坏批次。
+     */
+    @NonNull
+    static byte[] merge(@NonNull List<byte[]> batches) {
+        int total = 0;
+        int size = HEADER_SIZE;
+        for (byte[] batch : batches) {
+            total += readCount(batch);
+            size += batch.length - HEADER_SIZE;
+        }
+        ByteBuffer out = ByteBuffer.allocate(size).putInt(MAGIC).putInt(VERSION).putInt(total);
+        for (byte[] batch : batches) {
+            out.put(batch, HEADER_SIZE, batch.length - HEADER_SIZE);
+        }
+        return out.array();
+    }
+
+    /**
+     * 逐条解码，遇到截断或格式错误时抛出 IllegalArgumentException。
+     *
+     * @return 解出的事件数
+     */
+    static int decode(@NonNull byte[] batch, @NonNull ExposureEventRing.Sink sink) {
+        int count = readCount(batch);
+        if (count < 0) throw new IllegalArgumentException("bad batch header");
+        ByteBuffer in = ByteBuffer.wrap(batch, HEADER_SIZE, batch.length - HEADER_SIZE);
+        for (int i = 0; i < count; i++) {
+            if (in.remaining() < FIXED_RECORD_SIZE) {
+                throw new IllegalArgumentException("truncated at record " + i);
+            }
+            long time = in.getLong();
+            int kind = in.get();
+            int position = in.getInt();
+            float ratio = in.getFloat();
+            long duration = in.getLong();
+            int idLength = in.getShort();
+            if (idLength < 0 || idLength > in.remaining()) {
+                throw new IllegalArgumentException("bad id length at record " + i);
+            }
+            String id = new String(batch, in.position(), idLength, StandardCharsets.UTF_8);
+            in.position(in.position() + idLength);
+            sink.onEvent(time, kind, id, position, ratio, duration);
+        }
+        return count;
+    }
+}
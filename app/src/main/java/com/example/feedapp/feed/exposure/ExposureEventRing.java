@@ -0,0 +1,100 @@
+package com.example.feedapp.feed.exposure;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 单生产者（主线程）/ 单消费者（上报线程）的无锁环形缓冲区，存放待落盘的曝光事件。
+ *
+ * 每个事件拆成几个基本类型字段分别存在并行数组里，写入不分配对象、不加锁；
+ * 写满时丢弃新事件并计数，绝不阻塞主线程。
+ */
+final class ExposureEventRing {
+
+    interface Sink {
+        void onEvent(long timeMillis, int kind, String itemId, int position,
+                     float ratio, long durationMillis);
+    }
+
+    private final int capacity;
+    private final int mask;
+
+    private final long[] times;
+    private final byte[] kinds;
+    private final String[] itemIds;
+    private final int[] positions;
+    private final float[] ratios;
+    private final long[] durations;
+
+    /** 下一个写入序号，只由生产者推进 */
+    private final AtomicLong head = new AtomicLong();
+    /** 下一个读取序号，只由消费者推进 */
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+
+    /**
+     * @param capacity 会向上取整到 2 的幂
+     */
+    ExposureEventRing(int capacity) {
+        this.capacity = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        this.mask = this.capacity - 1;
+        times = new long[this.capacity];
+        kinds = new byte[this.capacity];
+        itemIds = new String[this.capacity];
+        positions = new int[this.capacity];
+        ratios = new float[this.capacity];
+        durations = new long[this.capacity];
+    }
+
+    /**
+     * 只在生产者线程调用。
+     *
+     * @return 缓冲区已满、事件被丢弃时返回 false
+     */
+    boolean offer(long timeMillis, int kind, String itemId, int position,
+                  float ratio, long durationMillis) {
+        long h = head.get();
+        if (h - tail.get() >= capacity) {
+            dropped.incrementAndGet();
+            return false;
+        }
+        int i = (int) (h & mask);
+        times[i] = timeMillis;
+        kinds[i] = (byte) kind;
+        itemIds[i] = itemId;
+        positions[i] = position;
+        ratios[i] = ratio;
+        durations[i] = durationMillis;
+        // 字段写完再发布序号，消费者读到新 head 时一定能看到完整的事件
+        head.lazySet(h + 1);
+        return true;
+    }
+
+    /**
+     * 只在消费者线程调用：把当前已发布的事件全部交给 sink。
+     *
+     * @return 取出的事件数
+     */
+    int drain(Sink sink) {
+        long t = tail.get();
+        long h = head.get();
+        for (long seq = t; seq < h; seq++) {
+            int i = (int) (seq & mask);
+            sink.onEvent(times[i], kinds[i], itemIds[i], positions[i], ratios[i], durations[i]);
+            itemIds[i] = null;
+        }
+        tail.lazySet(h);
+        return (int) (h - t);
+    }
+
+    int size() {
+        return (int) (head.get() - tail.get());
+    }
+
+    int capacity() {
+        return capacity;
+    }
+
+    long getDroppedCount() {
+        return dropped.get();
+    }
+}
@@ -1,37 +1,302 @@
 package com.example.feedapp.feed.exposure;
 
-import android.util.Log;
-
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
+/**
+ * 曝光调试日志：定长、无锁的环形缓冲区，写满后覆盖最旧的记录。
+ *
+ * 每条记录拆成时间戳、事件类型、item id、位置、可见比例、停留时长几个字段，存在并行的基本类型数组里；
+ * item id 先驻留成 int 序号（见 {@link #internId}），记录里只存序号，读取时再换回字符串。
+ * {@link #log} 在滚动路径上调用，id 已驻留时只做一次哈希查找、两次原子操作和几次数组写入，
+ * 不分配对象、不加锁；
+ * 时间格式化和字符串拼接推迟到读取时才做：{@link #getLogs()} 一次读全部，
+ * 调试页面用 {@link #readOlder} / {@link #readNewer} 按序号分页读取和实时追加。
+ */
 public class ExposureLogger {
 
-    private static final String TAG = "Exposure";
-    private static final int MAX_LOGS = 200;
+    /** {@link #readOlder} / {@link #readNewer} 的 kindMask：不按事件类型过滤 */
+    public static final int ALL_KINDS = -1;
+
+    /** 2 的幂，方便按位取下标；QA 跑一轮需要几万条 */
+    private static final int CAPACITY = 32 * 1024;
+    private static final int MASK = CAPACITY - 1;
+
+    private static final long[] times = new long[CAPACITY];
+    private static final byte[] kinds = new byte[CAPACITY];
+    private static final int[] itemIds = new int[CAPACITY];
+    private static final int[] positions = new int[CAPACITY];
+    private static final float[] ratios = new float[CAPACITY];
+    private static final long[] durations = new long[CAPACITY];
+
+    /**
+     * 每个槽位当前记录的序号 + 1；写入过程中为负数，0 表示从未写过。
+     * 读取方在读字段前后各检查一次，不一致就说明读的过程中被覆盖了，丢弃这条。
+     * 两端都要有屏障：写入方用 getAndSet 作废旧值，后面的字段写入不会被提前到它之前；
+     * 读取方第二次检查用 compareAndSet，前面的字段读取不会被推迟到它之后。
+     */
+    private static final AtomicLongArray stamps = new AtomicLongArray(CAPACITY);
+    /** 下一条记录的序号，多个线程写入时各自抢一个 */
+    private static final AtomicLong nextSeq = new AtomicLong();
+    /** 序号小于它的记录视为已清空 */
+    private static volatile long clearedBefore = 0L;
+
+    /** 记录里表示“没有 id” */
+    private static final int NO_ID = -1;
+    /**
+     * 驻留表的容量，2 的幂。一个 id 的序号落后最新序号超过一半时重新驻留，
+     * 所以缓冲区里任何一条记录的序号，都要再分配 ID_CAPACITY / 2 = CAPACITY 个新序号
+     * （也就是至少再写 CAPACITY 条记录、这条早已被覆盖）之后才会失效。
+     */
+    private static final int ID_CAPACITY = CAPACITY * 2;
+    private static final int ID_MASK = ID_CAPACITY - 1;
+
+    /** 一个驻留的 id；槽位按序号复用，读取时核对序号 */
+    private static final class InternedId {
+        final int ord;
+        final String name;
+
+        InternedId(int ord, String name) {
+            this.ord = ord;
+            this.name = name;
+        }
+    }
+
+    private static final ConcurrentHashMap<String, InternedId> idsByName = new ConcurrentHashMap<>();
+    private static final AtomicReferenceArray<InternedId> idsByOrd = new AtomicReferenceArray<>(ID_CAPACITY);
+    private static final Object internLock = new Object();
+    /** 下一个驻留序号，只在 internLock 内递增 */
+    private static volatile int nextIdOrd = 0;
+
+    /**
+     * 读出的一条记录，只在读取时创建。
+     */
+    public static final class Entry {
+        public final long seq;
+        public final long timeMillis;
+        public final int kind;
+        public final String itemId;
+        public final int position;
+        public final float ratio;
+        public final long durationMillis;
+
+        Entry(long seq, long timeMillis, int kind, String itemId, int position,
+              float ratio, long durationMillis) {
+            this.seq = seq;
+            this.timeMillis = timeMillis;
+            this.kind = kind;
+            this.itemId = itemId;
+            this.position = position;
+            this.ratio = ratio;
+            this.durationMillis = durationMillis;
+        }
+
+        /**
+         * @param sdf 由调用方复用，见 {@link #newTimeFormat()}；SimpleDateFormat 不是线程安全的
+         */
+        public String format(SimpleDateFormat sdf) {
+            StringBuilder sb = new StringBuilder(64);
+            sb.append(sdf.format(new Date(timeMillis))).append("  ");
+            appendEvent(sb, kind, itemId, position, ratio, durationMillis);
+            return sb.toString();
+        }
+    }
+
+    private ExposureLogger() {
+    }
 
-    private static final List<String> logs = new ArrayList<>();
-    private static final SimpleDateFormat sdf =
-            new SimpleDateFormat("HH:mm:ss.SSS", Locale.getDefault());
+    /**
+     * 记录一条曝光事件，任意线程可调用。
+     *
+     * @param kind           {@link ExposurePipeline#EVENT_EXPOSED} 等
+     * @param durationMillis 只有消失事件有意义，其它传 0
+     */
+    public static void log(int kind, String itemId, int position, float ratio, long durationMillis) {
+        int id = itemId == null ? NO_ID : internId(itemId);
+        long seq = nextSeq.getAndIncrement();
+        int i = (int) (seq & MASK);
+        stamps.getAndSet(i, -(seq + 1));
+        times[i] = System.currentTimeMillis();
+        kinds[i] = (byte) kind;
+        itemIds[i] = id;
+        positions[i] = position;
+        ratios[i] = ratio;
+        durations[i] = durationMillis;
+        stamps.lazySet(i, seq + 1);
+    }
+
+    /**
+     * 读出当前所有记录并格式化，最新的在前。
+     */
+    public static List<String> getLogs() {
+        List<Entry> entries = new ArrayList<>();
+        readOlder(Long.MAX_VALUE, CAPACITY, ALL_KINDS, null, entries);
 
-    public static synchronized void log(String msg) {
-        String time = sdf.format(new Date());
-        String line = time + "  " + msg;
-        logs.add(0, line); // 最新的放前面
-        if (logs.size() > MAX_LOGS) {
-            logs.remove(MAX_LOGS);
+        SimpleDateFormat sdf = newTimeFormat();
+        List<String> logs = new ArrayList<>(entries.size());
+        for (Entry entry : entries) {
+            logs.add(entry.format(sdf));
         }
-        Log.d(TAG, line);
+        return logs;
+    }
+
+    /**
+     * 下一条记录将使用的序号，可作为 {@link #readOlder} 的起点或 {@link #readNewer} 的边界。
+     */
+    public static long getNextSequence() {
+        return nextSeq.get();
     }
 
-    public static synchronized List<String> getLogs() {
-        return new ArrayList<>(logs);
+    /**
+     * 从 beforeSeq（不含）往更旧的方向分页读取，结果按从新到旧追加到 out。
+     * 已被覆盖或清空的记录到此为止。
+     *
+     * @param kindMask   事件类型过滤，{@link #kindBit} 按位或，{@link #ALL_KINDS} 表示不过滤
+     * @param itemIdPart 只要 item id 包含该子串的记录，null 或空串表示不过滤
+     * @return 本次扫描过的最旧序号，下一页从这里继续；没有更旧的记录时返回 -1
+     */
+    public static long readOlder(long beforeSeq, int maxCount, int kindMask,
+                                 String itemIdPart, List<Entry> out) {
+        long end = Math.min(beforeSeq, nextSeq.get());
+        long start = Math.max(clearedBefore, nextSeq.get() - CAPACITY);
+        int added = 0;
+        long seq = end - 1;
+        for (; seq >= start && added < maxCount; seq--) {
+            Entry entry = read(seq, kindMask, itemIdPart);
+            if (entry != null) {
+                out.add(entry);
+                added++;
+            }
+        }
+        return seq + 1 > start ? seq + 1 : -1;
     }
 
-    public static synchronized void clear() {
-        logs.clear();
+    /**
+     * 读取序号不小于 fromSeq 的新记录（实时追加用），结果按从旧到新追加到 out。
+     * 中间跨过的记录如果已被覆盖就跳过。
+     *
+     * @return 下次应从哪个序号继续读
+     */
+    public static long readNewer(long fromSeq, int kindMask, String itemIdPart, List<Entry> out) {
+        long end = nextSeq.get();
+        long start = Math.max(Math.max(fromSeq, clearedBefore), end - CAPACITY);
+        for (long seq = start; seq < end; seq++) {
+            Entry entry = read(seq, kindMask, itemIdPart);
+            if (entry != null) {
+                out.add(entry);
+            } else if (stamps.get((int) (seq & MASK)) == -(seq + 1)) {
+                // 这条还在写，下次从它开始读，不能跳过
+                return seq;
+            }
+        }
+        return end;
+    }
+
+    public static int kindBit(int kind) {
+        return 1 << kind;
+    }
+
+    public static SimpleDateFormat newTimeFormat() {
+        return new SimpleDateFormat("HH:mm:ss.SSS", Locale.getDefault());
+    }
+
+    /**
+     * 读出一条记录；未写完、已被覆盖或不符合过滤条件时返回 null。
+     */
+    private static Entry read(long seq, int kindMask, String itemIdPart) {
+        int i = (int) (seq & MASK);
+        if (stamps.get(i) != seq + 1) return null;
+        long time = times[i];
+        int kind = kinds[i];
+        int id = itemIds[i];
+        int position = positions[i];
+        float ratio = ratios[i];
+        long duration = durations[i];
+        if (!stamps.compareAndSet(i, seq + 1, seq + 1)) return null;
+        String itemId = resolveId(id);
+
+        if ((kindMask & kindBit(kind)) == 0) return null;
+        if (itemIdPart != null && !itemIdPart.isEmpty()
+                && (itemId == null || !itemId.contains(itemIdPart))) {
+            return null;
+        }
+        return new Entry(seq, time, kind, itemId, position, ratio, duration);
+    }
+
+    public static void clear() {
+        clearedBefore = nextSeq.get();
+    }
+
+    /**
+     * 把 id 换成 int 序号。已驻留且序号不太旧时只查一次表；否则加锁分配新序号，
+     * 顶掉这个槽位上更早的 id（它的记录都已被覆盖，见 {@link #ID_CAPACITY}）。
+     */
+    private static int internId(String name) {
+        InternedId interned = idsByName.get(name);
+        if (isFresh(interned)) {
+            return interned.ord;
+        }
+        synchronized (internLock) {
+            interned = idsByName.get(name);
+            if (isFresh(interned)) {
+                return interned.ord;
+            }
+            int ord = nextIdOrd;
+            InternedId created = new InternedId(ord, name);
+            InternedId evicted = idsByOrd.getAndSet(ord & ID_MASK, created);
+            if (evicted != null) {
+                idsByName.remove(evicted.name, evicted);
+            }
+            idsByName.put(name, created);
+            // 序号保持非负，和 NO_ID 区分开
+            nextIdOrd = (ord + 1) & Integer.MAX_VALUE;
+            return ord;
+        }
+    }
+
+    private static boolean isFresh(InternedId interned) {
+        return interned != null
+                && ((nextIdOrd - interned.ord) & Integer.MAX_VALUE) <= ID_CAPACITY / 2;
+    }
+
+    private static String resolveId(int id) {
+        if (id == NO_ID) return null;
+        InternedId interned = idsByOrd.get(id & ID_MASK);
+        return interned != null && interned.ord == id ? interned.name : null;
+    }
+
+    private static void appendEvent(StringBuilder sb, int kind, String itemId, int position,
+                                    float ratio, long duration) {
+        switch (kind) {
+            case ExposurePipeline.EVENT_EXPOSED:
+                sb.append("SHOW    ");
+                break;
+            case ExposurePipeline.EVENT_FULLY_VISIBLE:
+                sb.append("FULL    ");
+                break;
+            case ExposurePipeline.EVENT_HIDDEN:
+                sb.append("HIDE    ");
+                break;
+            case ExposurePipeline.EVENT_VIEWABLE:
+                sb.append("VIEW    ");
+                break;
+            default:
+                sb.append("KIND").append(kind).append("   ");
+                break;
+        }
+        sb.append("id=").append(itemId).append(" pos=").append(position);
+        if (kind != ExposurePipeline.EVENT_FULLY_VISIBLE) {
+            sb.append(" ratio=").append(Math.round(ratio * 100)).append('%');
+        }
+        if (kind == ExposurePipeline.EVENT_HIDDEN || kind == ExposurePipeline.EVENT_VIEWABLE) {
+            sb.append(" dur=").append(duration).append("ms");
+        }
     }
 }
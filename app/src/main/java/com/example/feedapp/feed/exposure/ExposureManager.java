@@ -1,7 +1,8 @@
 package com.example.feedapp.feed.exposure;
 
-import android.graphics.Rect;
-import android.os.SystemClock;
+import android.util.Log;
+import android.view.Choreographer;
+import android.view.Display;
 import android.view.View;
 
 import androidx.annotation.NonNull;
@@ -13,20 +14,18 @@ import androidx.recyclerview.widget.StaggeredGridLayoutManager;
 import com.example.feedapp.feed.model.FeedItem;
 import com.example.feedapp.feed.ui.adapter.FeedAdapter;
 
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Map;
-import java.util.Set;
-
 /**
  * 负责 RecyclerView 中卡片的曝光统计：
  * - 进入可见区域
  * - 完全可见
  * - 离开可见区域
+ * - 满足业务注册的可见性规则（如 Banner 至少 50% 连续 1 秒）
  * 同时记录停留时长。
  */
 public class ExposureManager {
 
+    private static final String TAG = "ExposureManager";
+
     /**
      * 曝光事件回调。
      */
@@ -37,21 +36,18 @@ public class ExposureManager {
         /** 第一次达到 100% 可见 */
         void onItemFullyVisible(@NonNull FeedItem item, int position);
 
-        /** 从可视区域彻底消失 */
-        void onItemHidden(@NonNull FeedItem item, int position,
-                          float lastVisibleRatio, long totalVisibleMillis);
-    }
-
-    /**
-     * 单个 item 的曝光状态。
-     */
-    private static class ItemState {
-        float lastRatio = 0f;
-        int lastPosition = RecyclerView.NO_POSITION;
-        long visibleStartTime = 0L;
-        long totalVisibleTime = 0L;
-        boolean hasExposed = false;
-        boolean hasFullVisible = false;
+        /**
+         * 从可视区域彻底消失
+         *
+         * @param visibleMillis      本次停留时长
+         * @param totalVisibleMillis 累计停留时长（同一 item 可能多次进出屏幕）
+         */
+        void onItemHidden(@NonNull FeedItem item, int position, float lastVisibleRatio,
+                          long visibleMillis, long totalVisibleMillis);
+
+        /** 第一次满足通过 {@link #addViewabilityRule} 注册的某条可见性规则 */
+        void onViewabilityRuleMet(@NonNull FeedItem item, int position, float visibleRatio,
+                                  @NonNull ViewabilityRule rule);
     }
 
     private final RecyclerView recyclerView;
@@ -59,11 +55,44 @@ public class ExposureManager {
     private final FeedAdapter adapter;
     private final ExposureListener listener;
 
-    /** 以 item.id 作为 key 记录状态 */
-    private final Map<String, ItemState> stateMap = new HashMap<>();
+    /**
+     * 最多保留多少个 item 的曝光状态（含已离屏的）。满了淘汰最近没出现过的离屏 item，
+     * 长时间刷 Feed 内存也不会一直涨；被淘汰的 item 再次出现会当作新 item 重新上报曝光。
+     */
+    private static final int MAX_TRACKED_ITEMS = 1024;
+
+    private final ExposureStateTable<FeedItem> stateTable;
+
+    // 每轮复用的临时对象，滚动热路径上不分配
+    private final VisibleAreaCalculator areaCalculator = new VisibleAreaCalculator();
+    private final int[] listLocation = new int[2];
+    private final int[] occluderLocation = new int[2];
+    private int[] spanPositions = new int[0];
+
+    /** 浮在列表上方、会挡住卡片的视图（如悬浮的标题栏、底部操作条） */
+    private final View[] occludingViews = new View[VisibleAreaCalculator.MAX_OCCLUDERS];
+    private int occludingViewCount = 0;
+
+    /** 默认每 2 帧采样一次：配合中点插值，停留时长误差不超过 1 帧 */
+    private static final int DEFAULT_SAMPLE_INTERVAL_FRAMES = 2;
+    private static final long NANOS_PER_MS = 1_000_000L;
+
+    private final Choreographer choreographer = Choreographer.getInstance();
+    private final Choreographer.FrameCallback frameCallback = this::onFrame;
+    private boolean frameCallbackPosted = false;
+    /** 列表静止时，按规则的到期时间补采一次 */
+    private final Runnable ruleRecheckRunnable = () -> {
+        scheduledRecheckMillis = Long.MAX_VALUE;
+        sample(System.nanoTime() / NANOS_PER_MS);
+    };
+    /** 已安排的补采时刻，Long.MAX_VALUE 表示没有 */
+    private long scheduledRecheckMillis = Long.MAX_VALUE;
+    private boolean scrolling = false;
+
+    private final FrameSampler frameSampler;
 
-    /** 上一次执行曝光计算的时间，用于节流 */
-    private long lastCheckTime = 0L;
+    /** 上一次采样的时间（毫秒，与 Choreographer 帧时间同一时钟），0 表示还没采过 */
+    private long lastSampleMillis = 0L;
 
     public ExposureManager(@NonNull RecyclerView recyclerView,
                            @NonNull RecyclerView.LayoutManager layoutManager,
@@ -73,65 +102,254 @@ public class ExposureManager {
         this.layoutManager = layoutManager;
         this.adapter = adapter;
         this.listener = listener;
+        this.stateTable = new ExposureStateTable<>(MAX_TRACKED_ITEMS,
+                new ExposureStateTable.Callback<FeedItem>() {
+                    @Override
+                    public void onRuleSatisfied(FeedItem item, int position, float ratio,
+                                                ViewabilityRule rule) {
+                        ExposureListener l = ExposureManager.this.listener;
+                        if (l == null) return;
+                        if (rule == ViewabilityRule.EXPOSED) {
+                            l.onItemExposed(item, position, ratio);
+                        } else if (rule == ViewabilityRule.FULLY_VISIBLE) {
+                            l.onItemFullyVisible(item, position);
+                        } else {
+                            l.onViewabilityRuleMet(item, position, ratio, rule);
+                        }
+                    }
+
+                    @Override
+                    public void onHidden(FeedItem item, int position, float lastRatio,
+                                         long visibleMillis, long totalVisibleMillis) {
+                        if (ExposureManager.this.listener != null && item != null) {
+                            ExposureManager.this.listener.onItemHidden(item, position,
+                                    lastRatio, visibleMillis, totalVisibleMillis);
+                        }
+                    }
+                });
+        stateTable.addRule(ViewabilityRule.EXPOSED);
+        stateTable.addRule(ViewabilityRule.FULLY_VISIBLE);
+        this.frameSampler = new FrameSampler(DEFAULT_SAMPLE_INTERVAL_FRAMES,
+                readFrameIntervalNanos(recyclerView));
         attach();
     }
 
     /**
-     * 监听滚动与状态变化，触发曝光计算。
+     * 注册一条可见性规则（例如 {@link ViewabilityRule#bannerViewable()}），
+     * 满足时回调 {@link ExposureListener#onViewabilityRuleMet}。应在列表展示前注册。
+     */
+    public void addViewabilityRule(@NonNull ViewabilityRule rule) {
+        stateTable.addRule(rule);
+    }
+
+    /**
+     * 注册一个会盖住列表的视图，被它挡住的部分不算可见。最多
+     * {@link VisibleAreaCalculator#MAX_OCCLUDERS} 个；不可见（GONE / 不在窗口上）时自动忽略。
+     */
+    public void addOccludingView(@NonNull View view) {
+        for (int i = 0; i < occludingViewCount; i++) {
+            if (occludingViews[i] == view) return;
+        }
+        if (occludingViewCount < occludingViews.length) {
+            occludingViews[occludingViewCount++] = view;
+        }
+    }
+
+    /**
+     * 导出曝光状态（每个 item 已触发的规则和累计可见时长），用于 onSaveInstanceState 或写磁盘。
+     *
+     * @param maxRecords 最多写多少个 item，Bundle 有大小限制，应比写磁盘时小
+     */
+    @NonNull
+    public byte[] saveState(int maxRecords) {
+        return stateTable.saveState(System.nanoTime() / NANOS_PER_MS,
+                System.currentTimeMillis(), maxRecords);
+    }
+
+    /**
+     * 恢复 {@link #saveState} 导出的状态，已曝光过的 item 不会再次上报。
+     * 应在注册完规则之后、列表第一次展示之前调用。
+     *
+     * @return 快照格式不对时返回 false，此时按全新状态处理
+     */
+    public boolean restoreState(@NonNull byte[] data) {
+        try {
+            stateTable.restoreState(data);
+            return true;
+        } catch (IllegalArgumentException e) {
+            Log.w(TAG, "ignore bad exposure snapshot", e);
+            return false;
+        }
+    }
+
+    /**
+     * 每隔多少帧采样一次，最小为 1（每帧都采）。间隔越大开销越小，停留时长误差约为间隔的一半。
+     */
+    public void setSampleIntervalFrames(int frames) {
+        frameSampler.setSampleIntervalFrames(frames);
+    }
+
+    /**
+     * 页面销毁时调用，停止帧回调。
+     */
+    public void release() {
+        scrolling = false;
+        recyclerView.removeCallbacks(ruleRecheckRunnable);
+        scheduledRecheckMillis = Long.MAX_VALUE;
+        if (frameCallbackPosted) {
+            choreographer.removeFrameCallback(frameCallback);
+            frameCallbackPosted = false;
+        }
+    }
+
+    /**
+     * 监听滚动与状态变化：滚动期间跟着 Choreographer 逐帧采样，停下时补采一次。
      */
     private void attach() {
         recyclerView.addOnScrollListener(new RecyclerView.OnScrollListener() {
             @Override
             public void onScrolled(@NonNull RecyclerView rv, int dx, int dy) {
                 super.onScrolled(rv, dx, dy);
-                // 滚动过程中使用节流版曝光计算（只处理当前可见项）
-                checkExposure(false);
+                // 程序触发的滚动 / 数据变化后的重新布局也会走到这里，没在采样就补一帧
+                scheduleFrame();
             }
 
             @Override
             public void onScrollStateChanged(@NonNull RecyclerView rv, int newState) {
                 super.onScrollStateChanged(rv, newState);
-                if (newState == RecyclerView.SCROLL_STATE_IDLE) {
-                    // 停止滚动时强制全量结算一次（包括离屏项）
-                    checkExposure(true);
+                scrolling = newState != RecyclerView.SCROLL_STATE_IDLE;
+                if (scrolling) {
+                    // 屏幕刷新率可能变（多屏 / 动态刷新率），每次开始滚动时重读
+                    frameSampler.setFrameIntervalNanos(readFrameIntervalNanos(rv));
+                    scheduleFrame();
+                } else {
+                    // 停止滚动时立即结算一次
+                    sample(System.nanoTime() / NANOS_PER_MS);
                 }
             }
         });
 
         // 初次布局完成后也结算一次
-        recyclerView.post(() -> checkExposure(true));
+        recyclerView.post(() -> sample(System.nanoTime() / NANOS_PER_MS));
     }
 
-    private void checkExposure() {
-        checkExposure(false);
+    private static long readFrameIntervalNanos(@NonNull RecyclerView rv) {
+        Display display = rv.getDisplay();
+        float refreshRate = display != null ? display.getRefreshRate() : 60f;
+        if (refreshRate < 10f) refreshRate = 60f;
+        return (long) (1_000_000_000L / refreshRate);
+    }
+
+    private void scheduleFrame() {
+        if (frameCallbackPosted) return;
+        frameCallbackPosted = true;
+        choreographer.postFrameCallback(frameCallback);
     }
 
     /**
-     * 核心曝光计算：
+     * 帧回调：采不采由 {@link FrameSampler} 决定。静止时的帧（例如数据到达后的布局）必采，
+     * 否则第一屏要等用户碰列表才会上报曝光。
      */
-    private void checkExposure(boolean force) {
-        if (adapter.getItemCount() == 0) return;
+    private void onFrame(long frameTimeNanos) {
+        frameCallbackPosted = false;
+        if (frameSampler.onFrame(frameTimeNanos, System.nanoTime(), scrolling)) {
+            sample(frameTimeNanos / NANOS_PER_MS);
+        }
+        if (scrolling) {
+            scheduleFrame();
+        }
+    }
+
+    /**
+     * 一次采样。两次采样之间发生的可见变化，时间记为两次采样的中点；
+     * 间隔过长（例如静止了一段时间后重新开始滚动）时不插值，直接记为本次采样时间。
+     */
+    private void sample(long nowMillis) {
+        frameSampler.onSampled();
+
+        long maxGapMillis = frameSampler.maxGapMillis();
+        long changeTime = nowMillis;
+        if (lastSampleMillis > 0L && nowMillis - lastSampleMillis <= maxGapMillis) {
+            changeTime = (lastSampleMillis + nowMillis) / 2;
+        }
+        lastSampleMillis = nowMillis;
+
+        checkExposure(changeTime, nowMillis);
+        scheduleRuleRecheck(nowMillis);
+    }
+
+    /**
+     * 还有规则在计时而列表已经静止时，不会再有帧回调，到期时间点补采一次；
+     * 滚动中的逐帧采样自然会覆盖，不需要额外安排。
+     */
+    private void scheduleRuleRecheck(long nowMillis) {
+        long due = scrolling ? Long.MAX_VALUE : stateTable.getNextRuleDueTime();
+        if (due == scheduledRecheckMillis) return;
+        recyclerView.removeCallbacks(ruleRecheckRunnable);
+        scheduledRecheckMillis = due;
+        if (due != Long.MAX_VALUE) {
+            // 多等 1ms，避免毫秒取整导致到点时还差一点
+            recyclerView.postDelayed(ruleRecheckRunnable, Math.max(0L, due - nowMillis) + 1);
+        }
+    }
 
+    /**
+     * 核心曝光计算：
+     * 1. 遍历屏幕上可见的 item，按视口和遮挡物算出可见面积比例，触发曝光事件；
+     * 2. 与上一轮的可见集合做差，离屏的 item 结算停留时长。
+     * 开销只和可见数量及其变化有关，与历史上出现过多少 item 无关；整个过程不分配对象。
+     *
+     * @param changeTime 本次发现的可见变化记在哪个时刻
+     * @param nowMillis  本次采样时刻
+     */
+    private void checkExposure(long changeTime, long nowMillis) {
         RecyclerView.LayoutManager lm = recyclerView.getLayoutManager();
         if (lm == null) return;
         layoutManager = lm;
 
-        long now = SystemClock.uptimeMillis();
+        stateTable.beginRound(changeTime, nowMillis);
+        collectVisible();
+        stateTable.endRound();
+    }
 
-        if (!force) {
-            if (now - lastCheckTime < 120) {
-                return;
-            }
+    /**
+     * 每次采样算一次视口和遮挡物在列表坐标系里的矩形，之后每个子 View 只做整数运算。
+     * 视口：clipToPadding 时是去掉 padding 的内容区，否则是整个列表。
+     */
+    private void updateViewport() {
+        RecyclerView rv = recyclerView;
+        if (rv.getClipToPadding()) {
+            areaCalculator.setViewport(rv.getPaddingLeft(), rv.getPaddingTop(),
+                    rv.getWidth() - rv.getPaddingRight(), rv.getHeight() - rv.getPaddingBottom());
+        } else {
+            areaCalculator.setViewport(0, 0, rv.getWidth(), rv.getHeight());
         }
-        lastCheckTime = now;
+
+        areaCalculator.clearOccluders();
+        if (occludingViewCount == 0) return;
+        rv.getLocationInWindow(listLocation);
+        for (int i = 0; i < occludingViewCount; i++) {
+            View v = occludingViews[i];
+            if (!v.isShown() || v.getWidth() <= 0 || v.getHeight() <= 0) continue;
+            v.getLocationInWindow(occluderLocation);
+            int left = occluderLocation[0] - listLocation[0];
+            int top = occluderLocation[1] - listLocation[1];
+            areaCalculator.addOccluder(left, top, left + v.getWidth(), top + v.getHeight());
+        }
+    }
+
+    private void collectVisible() {
+        if (adapter.getItemCount() == 0) return;
 
         int firstVisibleItemPosition = RecyclerView.NO_POSITION;
         int lastVisibleItemPosition = RecyclerView.NO_POSITION;
 
         if (layoutManager instanceof StaggeredGridLayoutManager) {
             StaggeredGridLayoutManager sglm = (StaggeredGridLayoutManager) layoutManager;
-            int[] firstVisibleItems = sglm.findFirstVisibleItemPositions(null);
-            int[] lastVisibleItems = sglm.findLastVisibleItemPositions(null);
+            if (spanPositions.length != sglm.getSpanCount()) {
+                spanPositions = new int[sglm.getSpanCount()];
+            }
+            int[] firstVisibleItems = sglm.findFirstVisibleItemPositions(spanPositions);
 
             if (firstVisibleItems != null && firstVisibleItems.length > 0) {
                 firstVisibleItemPosition = firstVisibleItems[0];
@@ -141,6 +359,7 @@ public class ExposureManager {
                     }
                 }
             }
+            int[] lastVisibleItems = sglm.findLastVisibleItemPositions(spanPositions);
             if (lastVisibleItems != null && lastVisibleItems.length > 0) {
                 lastVisibleItemPosition = lastVisibleItems[0];
                 for (int pos : lastVisibleItems) {
@@ -164,10 +383,9 @@ public class ExposureManager {
             return;
         }
 
-        Set<String> currentlyVisible = new HashSet<>();
-        Rect rect = new Rect();
+        updateViewport();
 
-        // 第一圈：只处理当前屏幕上可见的 item，更新比例和事件
+        // 只处理当前屏幕上可见的 item，更新比例和事件
         for (int pos = firstVisibleItemPosition; pos <= lastVisibleItemPosition; pos++) {
             if (pos < 0 || pos >= adapter.getItemCount()) continue;
 
@@ -182,83 +400,15 @@ public class ExposureManager {
             FeedItem item = adapter.getItem(pos);
             if (item == null || item.id == null) continue;
 
-            boolean visible = child.getGlobalVisibleRect(rect);
-            if (!visible) continue;
+            // 子 View 在列表坐标系里的位置，带上动画位移
+            int left = child.getLeft() + (int) child.getTranslationX();
+            int top = child.getTop() + (int) child.getTranslationY();
+            float ratio = areaCalculator.visibleRatio(left, top,
+                    left + child.getWidth(), top + child.getHeight());
 
-            int height = child.getHeight();
-            if (height <= 0) continue;
+            if (ratio <= 0f) continue;
 
-            int visibleHeight = rect.bottom - rect.top;
-            float ratio = Math.max(0f, Math.min(1f, visibleHeight * 1f / height));
-
-            ItemState state = stateMap.get(item.id);
-            if (state == null) {
-                state = new ItemState();
-                stateMap.put(item.id, state);
-            }
-
-            state.lastPosition = pos;
-
-            if (ratio > 0f) {
-                currentlyVisible.add(item.id);
-
-                // 开始可见，记录起始时间
-                if (state.visibleStartTime == 0L) {
-                    state.visibleStartTime = now;
-                }
-
-                // 第一次曝光
-                if (!state.hasExposed) {
-                    state.hasExposed = true;
-                    if (listener != null) {
-                        listener.onItemExposed(item, pos, ratio);
-                    }
-                }
-
-                // 第一次 100% 可见
-                if (!state.hasFullVisible && ratio >= 1f) {
-                    state.hasFullVisible = true;
-                    if (listener != null) {
-                        listener.onItemFullyVisible(item, pos);
-                    }
-                }
-            }
-
-            state.lastRatio = ratio;
-        }
-
-        // 如果不是强制结算，滚动时到此结束
-        if (!force) {
-            return;
-        }
-
-        // 第二圈：只在 force=true 时处理已经离开屏幕的 item，结算停留时长并触发隐藏事件
-        for (Map.Entry<String, ItemState> entry : stateMap.entrySet()) {
-            String id = entry.getKey();
-            ItemState state = entry.getValue();
-
-            if (state.lastRatio > 0f && !currentlyVisible.contains(id)) {
-                long endTime = now;
-                long visibleTime = 0L;
-                if (state.visibleStartTime > 0L) {
-                    visibleTime = endTime - state.visibleStartTime;
-                    state.totalVisibleTime += visibleTime;
-                    state.visibleStartTime = 0L;
-                }
-
-                if (listener != null) {
-                    int pos = state.lastPosition;
-                    if (pos >= 0 && pos < adapter.getItemCount()) {
-                        FeedItem item = adapter.getItem(pos);
-                        if (item != null) {
-                            listener.onItemHidden(item, pos,
-                                    state.lastRatio, state.totalVisibleTime);
-                        }
-                    }
-                }
-
-                state.lastRatio = 0f;
-            }
+            stateTable.markVisible(item.id, item, item.cardType, pos, ratio);
         }
     }
 }
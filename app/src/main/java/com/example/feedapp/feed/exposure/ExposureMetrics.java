@@ -0,0 +1,316 @@
+package com.example.feedapp.feed.exposure;
+
+import androidx.annotation.NonNull;
+
+import com.example.feedapp.feed.model.FeedItem;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.Arrays;
+
+/**
+ * 端上曝光指标聚合：按 (cardType, layoutType) 分组统计
+ * - 曝光数、完全可见数、满足可见性规则数，及它们相对曝光数的转化率；
+ * - 每次停留时长的分布（HDR 风格直方图）。
+ *
+ * 内存固定：分组数和每个直方图的桶数都是常量，一次分配好，之后只做数组自增。
+ * 直方图按 2 的幂分段、每段再线性分 {@link #SUB_BUCKETS} 个子桶，相对误差不超过 1/8；
+ * 超出范围的时长落在最后一个桶。
+ *
+ * 只在主线程写入和取快照；快照是独立的拷贝，可以拿到任意线程上导出。
+ */
+public final class ExposureMetrics {
+
+    /** cardType 取值 1..MAX，其它（含以后新增的）归到 0 号分组 */
+    private static final int CARD_TYPE_SLOTS = 8;
+    /** layoutType 取值 1..2，其它归到 0 号分组 */
+    private static final int LAYOUT_SLOTS = 3;
+    private static final int GROUPS = CARD_TYPE_SLOTS * LAYOUT_SLOTS;
+
+    static final int SUB_BUCKET_BITS = 3;
+    static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    /** 可区分的最大时长约 2^22 ms（70 分钟） */
+    private static final int MAX_EXPONENT = 22;
+    static final int BUCKETS = (MAX_EXPONENT - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+    // 每个分组的计数器
+    private static final int COUNTER_EXPOSED = 0;
+    private static final int COUNTER_FULLY_VISIBLE = 1;
+    private static final int COUNTER_HIDDEN = 2;
+    private static final int COUNTER_DWELL_SUM = 3;
+    private static final int COUNTER_DWELL_MAX = 4;
+    private static final int COUNTER_VIEWABLE = 5;
+    private static final int COUNTERS = 6;
+
+    private static volatile ExposureMetrics instance;
+
+    private final long[] counters = new long[GROUPS * COUNTERS];
+    private final long[] histograms = new long[GROUPS * BUCKETS];
+    private long startedAtMillis = System.currentTimeMillis();
+
+    public static ExposureMetrics getInstance() {
+        if (instance == null) {
+            synchronized (ExposureMetrics.class) {
+                if (instance == null) {
+                    instance = new ExposureMetrics();
+                }
+            }
+        }
+        return instance;
+    }
+
+    ExposureMetrics() {
+    }
+
+    public void recordExposed(int cardType, int layoutType) {
+        counters[group(cardType, layoutType) * COUNTERS + COUNTER_EXPOSED]++;
+    }
+
+    public void recordFullyVisible(int cardType, int layoutType) {
+        counters[group(cardType, layoutType) * COUNTERS + COUNTER_FULLY_VISIBLE]++;
+    }
+
+    /** 满足了某条可见性规则（{@link ViewabilityRule}） */
+    public void recordViewable(int cardType, int layoutType) {
+        counters[group(cardType, layoutType) * COUNTERS + COUNTER_VIEWABLE]++;
+    }
+
+    /**
+     * @param visibleMillis 本次停留时长（不是累计值）
+     */
+    public void recordHidden(int cardType, int layoutType, long visibleMillis) {
+        int g = group(cardType, layoutType);
+        long dwell = Math.max(0L, visibleMillis);
+        int base = g * COUNTERS;
+        counters[base + COUNTER_HIDDEN]++;
+        counters[base + COUNTER_DWELL_SUM] += dwell;
+        if (dwell > counters[base + COUNTER_DWELL_MAX]) {
+            counters[base + COUNTER_DWELL_MAX] = dwell;
+        }
+        histograms[g * BUCKETS + bucketIndex(dwell)]++;
+    }
+
+    public void reset() {
+        Arrays.fill(counters, 0L);
+        Arrays.fill(histograms, 0L);
+        startedAtMillis = System.currentTimeMillis();
+    }
+
+    @NonNull
+    public Snapshot snapshot() {
+        return new Snapshot(startedAtMillis, System.currentTimeMillis(),
+                counters.clone(), histograms.clone());
+    }
+
+    private static int group(int cardType, int layoutType) {
+        int c = cardType > 0 && cardType < CARD_TYPE_SLOTS ? cardType : 0;
+        int l = layoutType > 0 && layoutType < LAYOUT_SLOTS ? layoutType : 0;
+        return c * LAYOUT_SLOTS + l;
+    }
+
+    /**
+     * 小于 SUB_BUCKETS 的值每个值一个桶；之后每个 2 的幂区间 [2^e, 2^(e+1)) 线性分 SUB_BUCKETS 个桶。
+     */
+    static int bucketIndex(long value) {
+        if (value < SUB_BUCKETS) return (int) Math.max(0L, value);
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        if (exponent >= MAX_EXPONENT) return BUCKETS - 1;
+        int sub = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + sub;
+    }
+
+    /** 桶的下界（含） */
+    static long bucketLowerBound(int index) {
+        if (index < SUB_BUCKETS) return index;
+        int exponent = index / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        int sub = index % SUB_BUCKETS;
+        return (long) (SUB_BUCKETS + sub) << (exponent - SUB_BUCKET_BITS);
+    }
+
+    /** 桶的上界（不含） */
+    static long bucketUpperBound(int index) {
+        if (index < SUB_BUCKETS) return index + 1;
+        int exponent = index / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        return bucketLowerBound(index) + (1L << (exponent - SUB_BUCKET_BITS));
+    }
+
+    /**
+     * 某一时刻的指标拷贝，可以在任意线程查询和导出。
+     */
+    public static final class Snapshot {
+        public final long startedAtMillis;
+        public final long takenAtMillis;
+        private final long[] counters;
+        private final long[] histograms;
+
+        Snapshot(long startedAtMillis, long takenAtMillis, long[] counters, long[] histograms) {
+            this.startedAtMillis = startedAtMillis;
+            this.takenAtMillis = takenAtMillis;
+            this.counters = counters;
+            this.histograms = histograms;
+        }
+
+        public long getExposedCount(int cardType, int layoutType) {
+            return counter(cardType, layoutType, COUNTER_EXPOSED);
+        }
+
+        public long getFullyVisibleCount(int cardType, int layoutType) {
+            return counter(cardType, layoutType, COUNTER_FULLY_VISIBLE);
+        }
+
+        public long getViewableCount(int cardType, int layoutType) {
+            return counter(cardType, layoutType, COUNTER_VIEWABLE);
+        }
+
+        public long getHiddenCount(int cardType, int layoutType) {
+            return counter(cardType, layoutType, COUNTER_HIDDEN);
+        }
+
+        /** 曝光 → 完全可见的转化率，没有曝光时为 0 */
+        public float getFullyVisibleRate(int cardType, int layoutType) {
+            long exposed = getExposedCount(cardType, layoutType);
+            return exposed == 0 ? 0f : getFullyVisibleCount(cardType, layoutType) / (float) exposed;
+        }
+
+        /** 曝光 → 满足可见性规则的比例，没有曝光时为 0 */
+        public float getViewableRate(int cardType, int layoutType) {
+            long exposed = getExposedCount(cardType, layoutType);
+            return exposed == 0 ? 0f : getViewableCount(cardType, layoutType) / (float) exposed;
+        }
+
+        public long getMeanDwellMillis(int cardType, int layoutType) {
+            long hidden = getHiddenCount(cardType, layoutType);
+            return hidden == 0 ? 0L : counter(cardType, layoutType, COUNTER_DWELL_SUM) / hidden;
+        }
+
+        public long getMaxDwellMillis(int cardType, int layoutType) {
+            return counter(cardType, layoutType, COUNTER_DWELL_MAX);
+        }
+
+        /**
+         * 停留时长的分位数（毫秒），取所在桶的中点；100 分位即最大值，没有数据时为 0。
+         *
+         * @param percentile 0..100
+         */
+        public long getDwellPercentile(int cardType, int layoutType, double percentile) {
+            long total = getHiddenCount(cardType, layoutType);
+            if (total == 0) return 0L;
+            long rank = Math.max(1L, (long) Math.ceil(total * Math.min(100d, percentile) / 100d));
+            if (rank >= total) return getMaxDwellMillis(cardType, layoutType);
+            int base = group(cardType, layoutType) * BUCKETS;
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += histograms[base + i];
+                if (seen >= rank) {
+                    return Math.min((bucketLowerBound(i) + bucketUpperBound(i) - 1) / 2,
+                            getMaxDwellMillis(cardType, layoutType));
+                }
+            }
+            return getMaxDwellMillis(cardType, layoutType);
+        }
+
+        /**
+         * 有数据的分组逐行输出，给调试页面展示。
+         */
+        @NonNull
+        public String toSummary() {
+            StringBuilder sb = new StringBuilder();
+            for (int c = 0; c < CARD_TYPE_SLOTS; c++) {
+                for (int l = 0; l < LAYOUT_SLOTS; l++) {
+                    long exposed = getExposedCount(c, l);
+                    long hidden = getHiddenCount(c, l);
+                    if (exposed == 0 && hidden == 0) continue;
+                    if (sb.length() > 0) sb.append('\n');
+                    sb.append(cardTypeName(c)).append('/').append(layoutTypeName(l))
+                            .append("  exp=").append(exposed)
+                            .append(" full=").append(Math.round(getFullyVisibleRate(c, l) * 100)).append('%');
+                    if (getViewableCount(c, l) > 0) {
+                        sb.append(" view=").append(Math.round(getViewableRate(c, l) * 100)).append('%');
+                    }
+                    sb.append("  dwell p50=").append(getDwellPercentile(c, l, 50))
+                            .append(" p90=").append(getDwellPercentile(c, l, 90))
+                            .append(" p99=").append(getDwellPercentile(c, l, 99))
+                            .append(" max=").append(getMaxDwellMillis(c, l)).append("ms");
+                }
+            }
+            return sb.toString();
+        }
+
+        /**
+         * 导出为 JSON：每个有数据的分组一项，直方图只列出非空桶 [下界, 上界, 次数]。
+         */
+        @NonNull
+        public JSONObject toJson() throws JSONException {
+            JSONArray groups = new JSONArray();
+            for (int c = 0; c < CARD_TYPE_SLOTS; c++) {
+                for (int l = 0; l < LAYOUT_SLOTS; l++) {
+                    long exposed = getExposedCount(c, l);
+                    long hidden = getHiddenCount(c, l);
+                    if (exposed == 0 && hidden == 0) continue;
+
+                    JSONArray buckets = new JSONArray();
+                    int base = group(c, l) * BUCKETS;
+                    for (int i = 0; i < BUCKETS; i++) {
+                        long count = histograms[base + i];
+                        if (count == 0) continue;
+                        buckets.put(new JSONArray()
+                                .put(bucketLowerBound(i))
+                                .put(bucketUpperBound(i))
+                                .put(count));
+                    }
+                    groups.put(new JSONObject()
+                            .put("cardType", c)
+                            .put("layoutType", l)
+                            .put("exposed", exposed)
+                            .put("fullyVisible", getFullyVisibleCount(c, l))
+                            .put("fullyVisibleRate", getFullyVisibleRate(c, l))
+                            .put("viewable", getViewableCount(c, l))
+                            .put("viewableRate", getViewableRate(c, l))
+                            .put("hidden", hidden)
+                            .put("dwellMeanMs", getMeanDwellMillis(c, l))
+                            .put("dwellP50Ms", getDwellPercentile(c, l, 50))
+                            .put("dwellP90Ms", getDwellPercentile(c, l, 90))
+                            .put("dwellP99Ms", getDwellPercentile(c, l, 99))
+                            .put("dwellMaxMs", getMaxDwellMillis(c, l))
+                            .put("dwellHistogram", buckets));
+                }
+            }
+            return new JSONObject()
+                    .put("startedAt", startedAtMillis)
+                    .put("takenAt", takenAtMillis)
+                    .put("groups", groups);
+        }
+
+        private long counter(int cardType, int layoutType, int counter) {
+            return counters[group(cardType, layoutType) * COUNTERS + counter];
+        }
+
+        private static String cardTypeName(int cardType) {
+            switch (cardType) {
+                case FeedItem.CARD_TYPE_TEXT:
+                    return "TEXT";
+                case FeedItem.CARD_TYPE_IMAGE:
+                    return "IMAGE";
+                case FeedItem.CARD_TYPE_VIDEO:
+                    return "VIDEO";
+                case FeedItem.CARD_TYPE_BANNER:
+                    return "BANNER";
+                default:
+                    return "TYPE" + cardType;
+            }
+        }
+
+        private static String layoutTypeName(int layoutType) {
+            switch (layoutType) {
+                case FeedItem.LAYOUT_SINGLE_COLUMN:
+                    return "1col";
+                case FeedItem.LAYOUT_DOUBLE_COLUMN:
+                    return "2col";
+                default:
+                    return "other";
+            }
+        }
+    }
+}
@@ -0,0 +1,331 @@
+package com.example.feedapp.feed.exposure;
+
+import android.content.Context;
+import android.os.SystemClock;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.example.feedapp.common.log.Logger;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * 曝光事件管道：
+ * - 主线程 {@link #record} 只往无锁环形缓冲区里写几个基本类型字段，不分配、不加锁；
+ * - 后台线程定时取出事件，攒成二进制批次写到 filesDir/exposure/ 下，进程被杀也不丢；
+ * - 再把磁盘上的若干批次合并成一次请求交给 {@link ExposureUploader}，成功才删文件，
+ *   失败按指数退避重试，服务端拒收的批次丢掉；
+ * - 积压的批次文件超过上限时删最旧的（背压），缓冲区写满时丢新事件；
+ *   落盘失败、积压超限、被拒收丢掉的事件都计数。
+ *
+ * 文件读写只用 java.io / java.nio，时钟和日志由构造参数注入，本地单元测试不依赖 Android 框架。
+ */
+public class ExposurePipeline {
+
+    private static final String TAG = "ExposurePipeline";
+
+    public static final int EVENT_EXPOSED = 1;
+    public static final int EVENT_FULLY_VISIBLE = 2;
+    public static final int EVENT_HIDDEN = 3;
+    /** 满足某条可见性规则，ratio 为达标时的可见比例 */
+    public static final int EVENT_VIEWABLE = 4;
+
+    private static final String DIR_NAME = "exposure";
+    private static final String BATCH_PREFIX = "batch_";
+    private static final String BATCH_SUFFIX = ".bin";
+
+    private static final int RING_CAPACITY = 4096;
+    private static final long TICK_MS = 1000;
+    /** 攒够这么多事件、或最早的事件等了这么久，就写一个批次文件 */
+    private static final int BATCH_EVENTS = 256;
+    private static final long BATCH_MAX_AGE_MS = 5000;
+    /** 一次上报最多合并多少事件 */
+    private static final int MAX_UPLOAD_EVENTS = 1024;
+    /** 磁盘上最多积压多少个批次文件 */
+    private static final int MAX_PENDING_BATCHES = 64;
+
+    private static final long MIN_BACKOFF_MS = 1000;
+    private static final long MAX_BACKOFF_MS = 60_000;
+
+    private final File dir;
+    @Nullable
+    private final ExposureUploader uploader;
+    private final ExposureEventRing ring = new ExposureEventRing(RING_CAPACITY);
+    private final ScheduledExecutorService executor;
+    /** 单调时钟（毫秒），决定批次攒多久、退避到什么时候 */
+    private final LongSupplier clock;
+    private final Logger logger;
+
+    // 以下状态只在后台线程访问
+    private final ExposureBatchCodec.RecordWriter writer = new ExposureBatchCodec.RecordWriter();
+    private long firstBufferedAt = 0L;
+    private int batchSeq = 0;
+    private long backoffMs = 0L;
+    private long nextUploadAt = 0L;
+    /** 落盘失败、积压超限或被服务端拒收而丢掉的事件数，只在后台线程写 */
+    private volatile long droppedBatchEvents = 0L;
+
+    /**
+     * @param uploader 为 null 时只落盘不上报（离线），积压由文件数上限兜底
+     */
+    public ExposurePipeline(@NonNull Context context, @Nullable ExposureUploader uploader) {
+        this(new File(context.getApplicationContext().getFilesDir(), DIR_NAME), uploader,
+                SystemClock::uptimeMillis, Logger.logcat(TAG), TICK_MS);
+    }
+
+    /**
+     * @param tickMs 定时 tick 的间隔，不大于 0 时不定时运行（测试里用 {@link #tickNow} 手动驱动）
+     */
+    ExposurePipeline(@NonNull File dir, @Nullable ExposureUploader uploader,
+                     @NonNull LongSupplier clock, @NonNull Logger logger, long tickMs) {
+        this.dir = dir;
+        this.uploader = uploader;
+        this.clock = clock;
+        this.logger = logger;
+        this.executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "exposure-pipeline");
+            t.setPriority(Thread.MIN_PRIORITY);
+            return t;
+        });
+        if (tickMs > 0) {
+            // 上次进程留下的批次也在第一次 tick 时开始上报
+            executor.scheduleWithFixedDelay(this::tick, tickMs, tickMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * 记录一条曝光事件。只在主线程调用（环形缓冲区是单生产者）。
+     *
+     * @return 缓冲区满、事件被丢弃时返回 false
+     */
+    public boolean record(int kind, @NonNull String itemId, int position,
+                          float ratio, long durationMillis) {
+        return ring.offer(System.currentTimeMillis(), kind, itemId, position, ratio, durationMillis);
+    }
+
+    /**
+     * 立即把缓冲中的事件写成批次并尝试上报（忽略退避），例如 onPause 时。
+     */
+    @NonNull
+    public Future<?> flush() {
+        if (executor.isShutdown()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return executor.submit(() -> {
+            drainRing();
+            writeBatch();
+            nextUploadAt = 0L;
+            uploadPending();
+        });
+    }
+
+    /**
+     * 写完缓冲中的事件后关闭后台线程；未上报的批次留在磁盘上，下次启动继续。
+     */
+    public void shutdown() {
+        if (executor.isShutdown()) return;
+        executor.submit(() -> {
+            drainRing();
+            writeBatch();
+        });
+        executor.shutdown();
+    }
+
+    /** 缓冲区满被丢弃的事件数（主线程侧的背压） */
+    public long getDroppedEventCount() {
+        return ring.getDroppedCount();
+    }
+
+    /** 写进批次之后又被丢掉的事件数：落盘失败、积压超过上限、被服务端拒收 */
+    public long getDroppedBatchEventCount() {
+        return droppedBatchEvents;
+    }
+
+    /** 在后台线程上跑一次定时任务，测试用 */
+    @NonNull
+    Future<?> tickNow() {
+        return executor.submit(this::tick);
+    }
+
+    private void tick() {
+        try {
+            drainRing();
+            long now = clock.getAsLong();
+            if (writer.count() >= BATCH_EVENTS
+                    || (writer.count() > 0 && now - firstBufferedAt >= BATCH_MAX_AGE_MS)) {
+                writeBatch();
+            }
+            if (now >= nextUploadAt) {
+                uploadPending();
+            }
+        } catch (RuntimeException e) {
+            // 周期任务抛异常会被取消，这里吞掉保证管道一直运行
+            logger.warn("tick failed", e);
+        }
+    }
+
+    private void drainRing() {
+        if (writer.count() == 0 && ring.size() > 0) {
+            firstBufferedAt = clock.getAsLong();
+        }
+        ring.drain(writer);
+    }
+
+    private void writeBatch() {
+        if (writer.count() == 0) return;
+        int count = writer.count();
+        byte[] batch = writer.takeBatch();
+
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            droppedBatchEvents += count;
+            logger.warn("mkdirs failed, drop " + count + " events", null);
+            return;
+        }
+        // 文件名按时间 + 序号排序即是写入顺序
+        String name = String.format(Locale.US, "%s%013d_%04d%s", BATCH_PREFIX,
+                System.currentTimeMillis(), batchSeq++ % 10000, BATCH_SUFFIX);
+        // 先写临时文件（后缀不匹配，不会被当成批次）再 rename，上报线程不会读到写了一半的批次
+        File file = new File(dir, name);
+        File temp = new File(dir, name + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(temp)) {
+            out.write(batch);
+            out.getFD().sync();
+        } catch (IOException e) {
+            droppedBatchEvents += count;
+            logger.warn("write batch failed, drop " + count + " events", e);
+            temp.delete();
+            return;
+        }
+        if (temp.renameTo(file)) {
+            logger.debug("wrote batch " + name + " events=" + count);
+        } else {
+            droppedBatchEvents += count;
+            logger.warn("rename batch failed: " + name + ", drop " + count + " events", null);
+            temp.delete();
+        }
+        trimPending();
+    }
+
+    /**
+     * 背压：积压的批次超过上限时删掉最旧的。
+     */
+    private void trimPending() {
+        File[] files = listBatches();
+        for (int i = 0; i < files.length - MAX_PENDING_BATCHES; i++) {
+            int count = ExposureBatchCodec.readCount(readQuietly(files[i]));
+            droppedBatchEvents += Math.max(0, count);
+            files[i].delete();
+            logger.warn("too many pending batches, dropped " + files[i].getName()
+                    + " total dropped events=" + droppedBatchEvents, null);
+        }
+    }
+
+    /**
+     * 把最旧的若干批次合并成一次请求上报，成功后删除；失败则退避。
+     * 一次 tick 内只要还有积压且上报成功就继续，尽快追平。
+     * 服务端拒收（{@link ExposureRejectedException}）时不退避：合并请求被拒就改为一批一批发，
+     * 找出被拒的那批丢掉并计数，其余照常上报，坏批次不会一直堵在最前面。
+     */
+    private void uploadPending() {
+        if (uploader == null) return;
+        boolean oneBatchPerRequest = false;
+        while (true) {
+            File[] files = listBatches();
+            if (files.length == 0) return;
+
+            List<byte[]> batches = new ArrayList<>();
+            List<File> included = new ArrayList<>();
+            int events = 0;
+            for (File f : files) {
+                byte[] batch = readQuietly(f);
+                int count = ExposureBatchCodec.readCount(batch);
+                if (count < 0) {
+                    logger.warn("drop corrupt batch " + f.getName(), null);
+                    f.delete();
+                    continue;
+                }
+                if (!batches.isEmpty()
+                        && (oneBatchPerRequest || events + count > MAX_UPLOAD_EVENTS)) {
+                    break;
+                }
+                batches.add(batch);
+                included.add(f);
+                events += count;
+            }
+            if (batches.isEmpty()) return;
+
+            try {
+                uploader.upload(ExposureBatchCodec.merge(batches), events);
+            } catch (ExposureRejectedException e) {
+                backoffMs = 0L;
+                nextUploadAt = 0L;
+                if (included.size() > 1) {
+                    logger.warn("upload of " + included.size() + " batches rejected, retry one by one", e);
+                    oneBatchPerRequest = true;
+                    continue;
+                }
+                droppedBatchEvents += events;
+                logger.warn("batch " + included.get(0).getName() + " rejected, drop " + events
+                        + " events, total dropped events=" + droppedBatchEvents, e);
+                if (!deleteAll(included)) return;
+                continue;
+            } catch (IOException | RuntimeException e) {
+                backoffMs = backoffMs == 0L ? MIN_BACKOFF_MS : Math.min(MAX_BACKOFF_MS, backoffMs * 2);
+                nextUploadAt = clock.getAsLong() + backoffMs;
+                logger.warn("upload " + events + " events failed, retry in " + backoffMs + "ms", e);
+                return;
+            }
+
+            logger.debug("uploaded " + events + " events in " + batches.size() + " batches");
+            backoffMs = 0L;
+            nextUploadAt = 0L;
+            if (!deleteAll(included)) return;
+        }
+    }
+
+    /**
+     * @return 有文件删不掉时返回 false，调用方应先停下，避免同一批反复上报
+     */
+    private boolean deleteAll(@NonNull List<File> files) {
+        for (File f : files) {
+            if (!f.delete() && f.exists()) {
+                logger.warn("delete " + f.getName() + " failed", null);
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @NonNull
+    private File[] listBatches() {
+        File[] files = dir.listFiles((d, name) ->
+                name.startsWith(BATCH_PREFIX) && name.endsWith(BATCH_SUFFIX));
+        if (files == null) return new File[0];
+        Arrays.sort(files, (a, b) -> a.getName().compareTo(b.getName()));
+        return files;
+    }
+
+    @NonNull
+    private byte[] readQuietly(@NonNull File f) {
+        try {
+            return Files.readAllBytes(f.toPath());
+        } catch (IOException e) {
+            logger.warn("read " + f.getName() + " failed", e);
+            return new byte[0];
+        }
+    }
+}
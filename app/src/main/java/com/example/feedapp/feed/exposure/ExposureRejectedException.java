@@ -0,0 +1,14 @@
+package com.example.feedapp.feed.exposure;
+
+import java.io.IOException;
+
+/**
+ * 服务端明确拒收了这次上报（如 HTTP 400），原样重试也不会成功。
+ * {@link ExposurePipeline} 收到它时不退避，直接丢掉这批并计入丢弃数。
+ */
+public class ExposureRejectedException extends IOException {
+
+    public ExposureRejectedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,288 @@
+package com.example.feedapp.feed.exposure;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 曝光状态快照的二进制格式，用于 onSaveInstanceState 的 Bundle 和进程被杀后的磁盘兜底：
+ * <pre>
+ * [int MAGIC][int VERSION][long savedAtMillis]
+ * [byte ruleCount]([short nameLength][name UTF-8]) * ruleCount     规则名，按位图的位序
+ * [int count]
+ * ([int keyHash][short keyLength][key UTF-8][int firedRules][long totalVisibleMillis]) * count
+ * </pre>
+ * 规则位图按名字重新映射，规则注册顺序变了也能正确恢复；不认识的规则丢掉。
+ *
+ * 恢复是增量的：{@link Index} 只扫一遍记录、按 keyHash 建开放寻址索引，不解码 key、不创建对象；
+ * 之后某个 item 第一次出现在列表里时才查索引、把它的状态搬进状态表，没再出现的 item 不付出任何代价。
+ */
+final class ExposureStateSnapshot {
+
+    static final int MAGIC = 0x45585053; // "EXPS"
+    static final int VERSION = 1;
+
+    private ExposureStateSnapshot() {
+    }
+
+    /**
+     * 读出快照的保存时间（墙上时钟），格式不对返回 -1。用于判断磁盘快照是否过期。
+     */
+    static long readSavedAt(byte[] data) {
+        if (data == null || data.length < 16) return -1L;
+        ByteBuffer in = ByteBuffer.wrap(data);
+        if (in.getInt() != MAGIC || in.getInt() != VERSION) return -1L;
+        return in.getLong();
+    }
+
+    /**
+     * 逐条写记录，最后补上条数。
+     */
+    static final class Writer {
+        private final ByteArrayOutputStream buffer = new ByteArrayOutputStream(16 * 1024);
+        private final DataOutputStream out = new DataOutputStream(buffer);
+        private int countOffset;
+        private int count = 0;
+
+        Writer(long savedAtMillis, ViewabilityRule[] rules, int ruleCount) {
+            try {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeLong(savedAtMillis);
+                out.writeByte(ruleCount);
+                for (int i = 0; i < ruleCount; i++) {
+                    byte[] name = rules[i].name.getBytes(StandardCharsets.UTF_8);
+                    out.writeShort(name.length);
+                    out.write(name);
+                }
+                countOffset = buffer.size();
+                out.writeInt(0);
+            } catch (IOException e) {
+                // ByteArrayOutputStream 不会抛 IOException
+                throw new IllegalStateException(e);
+            }
+        }
+
+        int count() {
+            return count;
+        }
+
+        void writeRecord(String key, int firedRules, long totalVisibleMillis) {
+            byte[] bytes = key.getBytes(StandardCharsets.UTF_8);
+            writeRecord(key.hashCode(), bytes, 0, bytes.length, firedRules, totalVisibleMillis);
+        }
+
+        void writeRecord(int keyHash, byte[] key, int keyOffset, int keyLength,
+                         int firedRules, long totalVisibleMillis) {
+            if (keyLength > Short.MAX_VALUE) return;
+            try {
+                out.writeInt(keyHash);
+                out.writeShort(keyLength);
+                out.write(key, keyOffset, keyLength);
+                out.writeInt(firedRules);
+                out.writeLong(totalVisibleMillis);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+            count++;
+        }
+
+        byte[] toByteArray() {
+            byte[] data = buffer.toByteArray();
+            ByteBuffer.wrap(data).putInt(countOffset, count);
+            return data;
+        }
+    }
+
+    /**
+     * 快照上的只读索引，按 key 查找尚未恢复的记录。只在主线程使用。
+     */
+    static final class Index {
+        private static final int RECORD_TAIL = 4 + 8;
+        /** 一条记录最少占多少字节（key 为空） */
+        private static final int MIN_RECORD_SIZE = 4 + 2 + RECORD_TAIL;
+
+        private final byte[] data;
+        private final ByteBuffer in;
+        private final int count;
+        /** 第 i 条记录的偏移；恢复过后取反（负数）表示已取走 */
+        private final int[] offsets;
+        /** 旧位序 → 当前位序，-1 表示当前没有这条规则 */
+        private final int[] ruleMap;
+        /** 桶里存 记录序号 + 1，0 表示空 */
+        private final int[] buckets;
+        private final int bucketMask;
+        private int remaining;
+
+        private Index(byte[] data, ByteBuffer in, int count, int[] offsets, int[] ruleMap) {
+            this.data = data;
+            this.in = in;
+            this.count = count;
+            this.offsets = offsets;
+            this.ruleMap = ruleMap;
+            this.remaining = count;
+
+            int bucketCount = Integer.highestOneBit(Math.max(2, count) * 2 - 1) << 1;
+            buckets = new int[bucketCount];
+            bucketMask = bucketCount - 1;
+            for (int i = 0; i < count; i++) {
+                int b = mix(in.getInt(offsets[i])) & bucketMask;
+                while (buckets[b] != 0) {
+                    b = (b + 1) & bucketMask;
+                }
+                buckets[b] = i + 1;
+            }
+        }
+
+        /**
+         * @throws IllegalArgumentException 格式不对或数据被截断
+         */
+        static Index parse(byte[] data, ViewabilityRule[] rules, int ruleCount) {
+            try {
+                ByteBuffer in = ByteBuffer.wrap(data);
+                if (in.getInt() != MAGIC || in.getInt() != VERSION) {
+                    throw new IllegalArgumentException("bad snapshot header");
+                }
+                in.getLong();
+
+                int savedRuleCount = in.get() & 0xff;
+                int[] ruleMap = new int[savedRuleCount];
+                for (int i = 0; i < savedRuleCount; i++) {
+                    int length = in.getShort();
+                    String name = new String(data, in.position(), length, StandardCharsets.UTF_8);
+                    in.position(in.position() + length);
+                    ruleMap[i] = -1;
+                    for (int r = 0; r < ruleCount; r++) {
+                        if (rules[r].name.equals(name)) {
+                            ruleMap[i] = r;
+                            break;
+                        }
+                    }
+                }
+
+                int count = in.getInt();
+                if (count < 0 || count > in.remaining() / MIN_RECORD_SIZE) {
+                    throw new IllegalArgumentException("bad record count: " + count);
+                }
+                int[] offsets = new int[count];
+                for (int i = 0; i < count; i++) {
+                    offsets[i] = in.position();
+                    in.getInt();
+                    int keyLength = in.getShort();
+                    if (keyLength < 0) throw new IllegalArgumentException("bad key length");
+                    in.position(in.position() + keyLength + RECORD_TAIL);
+                }
+                return new Index(data, in, count, offsets, ruleMap);
+            } catch (RuntimeException e) {
+                // BufferUnderflowException / IllegalArgumentException（position 越界）都算格式错误
+                if (e instanceof IllegalArgumentException) throw e;
+                throw new IllegalArgumentException("truncated snapshot", e);
+            }
+        }
+
+        int remaining() {
+            return remaining;
+        }
+
+        /**
+         * @return 记录序号；没有或已取走返回 -1
+         */
+        int find(String key) {
+            int hash = key.hashCode();
+            int b = mix(hash) & bucketMask;
+            while (true) {
+                int entry = buckets[b];
+                if (entry == 0) return -1;
+                int record = entry - 1;
+                int offset = offsets[record];
+                if (offset >= 0 && in.getInt(offset) == hash && keyEquals(offset, key)) {
+                    return record;
+                }
+                b = (b + 1) & bucketMask;
+            }
+        }
+
+        /** 已按当前规则位序重新映射 */
+        int firedRules(int record) {
+            int saved = in.getInt(tailOffset(offsetOf(record)));
+            int mapped = 0;
+            for (int i = 0; i < ruleMap.length; i++) {
+                if ((saved & (1 << i)) != 0 && ruleMap[i] >= 0) {
+                    mapped |= 1 << ruleMap[i];
+                }
+            }
+            return mapped;
+        }
+
+        long totalVisibleMillis(int record) {
+            return in.getLong(tailOffset(offsetOf(record)) + 4);
+        }
+
+        /** 标记为已恢复，之后 find 不再返回它，也不会被 {@link #writeRemaining} 写出 */
+        void consume(int record) {
+            if (offsets[record] >= 0) {
+                offsets[record] = ~offsets[record];
+                remaining--;
+            }
+        }
+
+        /**
+         * 把还没恢复的记录原样（规则位图重新映射后）写到新快照里，多次旋转屏幕也不会丢。
+         *
+         * @return 写出的条数
+         */
+        int writeRemaining(Writer writer, int maxRecords) {
+            int written = 0;
+            for (int i = 0; i < count && written < maxRecords; i++) {
+                int offset = offsets[i];
+                if (offset < 0) continue;
+                int keyLength = in.getShort(offset + 4);
+                writer.writeRecord(in.getInt(offset), data, offset + 6, keyLength,
+                        firedRules(i), totalVisibleMillis(i));
+                written++;
+            }
+            return written;
+        }
+
+        private int offsetOf(int record) {
+            int offset = offsets[record];
+            return offset >= 0 ? offset : ~offset;
+        }
+
+        private int tailOffset(int offset) {
+            return offset + 6 + in.getShort(offset + 4);
+        }
+
+        /**
+         * 逐字符比较，ASCII（item id 的常见情况）不需要解码；遇到非 ASCII 才退回解码比较。
+         */
+        private boolean keyEquals(int offset, String key) {
+            int length = in.getShort(offset + 4);
+            int start = offset + 6;
+            boolean ascii = true;
+            for (int i = 0, n = key.length(); i < n; i++) {
+                if (key.charAt(i) >= 0x80) {
+                    ascii = false;
+                    break;
+                }
+            }
+            if (!ascii) {
+                return new String(data, start, length, StandardCharsets.UTF_8).equals(key);
+            }
+            if (key.length() != length) return false;
+            for (int i = 0; i < length; i++) {
+                if (data[start + i] != (byte) key.charAt(i)) return false;
+            }
+            return true;
+        }
+
+        private static int mix(int h) {
+            h ^= h >>> 16;
+            h *= 0x85ebca6b;
+            h ^= h >>> 13;
+            return h;
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.feedapp.feed.exposure;
+
+import android.content.Context;
+import android.util.AtomicFile;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 曝光状态快照的磁盘兜底：进程被杀后 Bundle 没了，下次启动从这里恢复。
+ * 写在后台线程，用 AtomicFile 保证不会读到写了一半的文件；读取很小（几十 KB），启动时同步读。
+ */
+public class ExposureStateStore {
+
+    private static final String TAG = "ExposureStateStore";
+    private static final String FILE_NAME = "exposure_state.bin";
+
+    private final AtomicFile file;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "exposure-state-store");
+        t.setPriority(Thread.MIN_PRIORITY);
+        return t;
+    });
+
+    public ExposureStateStore(@NonNull Context context) {
+        this.file = new AtomicFile(new File(context.getApplicationContext().getFilesDir(), FILE_NAME));
+    }
+
+    /**
+     * 后台覆盖写入。连续调用时按提交顺序写，最后一次为准。
+     */
+    public void save(@NonNull byte[] snapshot) {
+        if (executor.isShutdown()) return;
+        executor.execute(() -> {
+            FileOutputStream out = null;
+            try {
+                out = file.startWrite();
+                out.write(snapshot);
+                file.finishWrite(out);
+            } catch (IOException e) {
+                Log.w(TAG, "save failed", e);
+                if (out != null) {
+                    file.failWrite(out);
+                }
+            }
+        });
+    }
+
+    /**
+     * @param maxAgeMillis 超过这么久的快照视为过期（当作新会话，重新曝光），直接删掉
+     * @return 没有、已过期或读取失败时返回 null
+     */
+    @Nullable
+    public byte[] load(long maxAgeMillis) {
+        byte[] data;
+        try {
+            data = file.readFully();
+        } catch (FileNotFoundException e) {
+            return null;
+        } catch (IOException e) {
+            Log.w(TAG, "load failed", e);
+            return null;
+        }
+        long savedAt = ExposureStateSnapshot.readSavedAt(data);
+        long age = System.currentTimeMillis() - savedAt;
+        if (savedAt < 0 || age < 0 || age > maxAgeMillis) {
+            file.delete();
+            return null;
+        }
+        return data;
+    }
+
+    /**
+     * 写完已提交的快照后关闭后台线程。
+     */
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
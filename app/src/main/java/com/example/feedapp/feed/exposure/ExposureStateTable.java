@@ -0,0 +1,417 @@
+package com.example.feedapp.feed.exposure;
+
+import java.util.Arrays;
+
+/**
+ * 曝光状态表：不依赖 Android，热路径上不分配任何对象。
+ *
+ * - item.id 通过开放寻址（线性探测）哈希表映射成槽位号，之后所有状态都按槽位存在并行的基本类型数组里；
+ * - 容量固定，创建时一次分配好；满了以后用 clock 算法淘汰最近没出现过的离屏槽位；
+ * - 每轮计算：{@link #beginRound} → 对每个可见 item 调 {@link #markVisible} → {@link #endRound()}，
+ *   endRound 只检查上一轮可见的槽位，离屏结算的开销与历史 item 总数无关；
+ * - 可见性规则（{@link ViewabilityRule}）的连续可见计时也按槽位存在基本类型数组里，
+ *   每个 item 每条规则一个开始时间，触发过的规则记在位图里，只触发一次。
+ *
+ * 时间都由调用方在 beginRound 时给出：本轮相对上一轮的可见变化，视为发生在 changeTime；
+ * 采样方可以传两次采样的中点，把停留时长的误差压到采样间隔的一半以内。
+ * 规则是否满足按本次采样时刻 now 判断：从 changeTime 起到 now 一直可见。
+ *
+ * 只在单线程（主线程）使用。
+ *
+ * @param <T> 回调里带出的 item 类型
+ */
+final class ExposureStateTable<T> {
+
+    interface Callback<T> {
+        /** 某个 item 第一次满足某条规则 */
+        void onRuleSatisfied(T item, int position, float ratio, ViewabilityRule rule);
+
+        /**
+         * @param visibleMillis      本次从出现到消失的时长
+         * @param totalVisibleMillis 该 item 累计的可见时长（含本次）
+         */
+        void onHidden(T item, int position, float lastRatio,
+                      long visibleMillis, long totalVisibleMillis);
+    }
+
+    private static final int NO_SLOT = -1;
+
+    /** 最多注册多少条规则（含两条内置规则），触发位图用一个 int */
+    static final int MAX_RULES = 8;
+    private static final long NOT_RUNNING = Long.MIN_VALUE;
+
+    private static final byte FLAG_VISIBLE = 1;
+    /** clock 淘汰用的访问位 */
+    private static final byte FLAG_REFERENCED = 1 << 1;
+
+    private final Callback<T> callback;
+    private final int maxStates;
+
+    // 哈希表：桶里存 槽位号 + 1，0 表示空
+    private final int[] buckets;
+    private final int bucketMask;
+
+    // 以槽位号为下标的并行数组
+    private final String[] keys;
+    private final Object[] items;
+    private final int[] positions;
+    private final float[] ratios;
+    private final long[] visibleStartTimes;
+    private final long[] totalVisibleTimes;
+    private final byte[] flags;
+    private final int[] seenRounds;
+    /** 每个槽位已触发的规则位图 */
+    private final int[] firedRules;
+    /** [slot * MAX_RULES + rule]：当前这段连续满足阈值的开始时间，NOT_RUNNING 表示未在计时 */
+    private final long[] ruleStartTimes;
+
+    private final ViewabilityRule[] rules = new ViewabilityRule[MAX_RULES];
+    private int ruleCount = 0;
+
+    /** 上次保存的快照里还没恢复的状态，item 第一次出现时从这里取 */
+    private ExposureStateSnapshot.Index restoreIndex;
+
+    private final int[] freeSlots;
+    private int freeCount;
+    private int clockHand = 0;
+    private int size = 0;
+
+    // 上一轮和本轮的可见槽位，endRound 时交换
+    private int[] visible;
+    private int visibleCount = 0;
+    private int[] nextVisible;
+    private int nextVisibleCount = 0;
+    private int round = 0;
+    private long changeTime = 0L;
+    private long now = 0L;
+    private long nextRuleDueTime = Long.MAX_VALUE;
+
+    ExposureStateTable(int maxStates, Callback<T> callback) {
+        this.maxStates = maxStates;
+        this.callback = callback;
+
+        int bucketCount = Integer.highestOneBit(Math.max(2, maxStates) * 2 - 1) << 1;
+        buckets = new int[bucketCount];
+        bucketMask = bucketCount - 1;
+
+        keys = new String[maxStates];
+        items = new Object[maxStates];
+        positions = new int[maxStates];
+        ratios = new float[maxStates];
+        visibleStartTimes = new long[maxStates];
+        totalVisibleTimes = new long[maxStates];
+        flags = new byte[maxStates];
+        seenRounds = new int[maxStates];
+        firedRules = new int[maxStates];
+        ruleStartTimes = new long[maxStates * MAX_RULES];
+        Arrays.fill(ruleStartTimes, NOT_RUNNING);
+
+        freeSlots = new int[maxStates];
+        for (int i = 0; i < maxStates; i++) {
+            freeSlots[i] = maxStates - 1 - i;
+        }
+        freeCount = maxStates;
+
+        visible = new int[maxStates];
+        nextVisible = new int[maxStates];
+    }
+
+    /**
+     * 规则按注册顺序检查，同一轮里先注册的先回调。
+     *
+     * @throws IllegalStateException 超过 {@link #MAX_RULES} 条
+     */
+    void addRule(ViewabilityRule rule) {
+        if (ruleCount >= MAX_RULES) {
+            throw new IllegalStateException("too many viewability rules: " + rule);
+        }
+        rules[ruleCount++] = rule;
+    }
+
+    /**
+     * @param changeTime 本轮新出现 / 消失的 item 的开始 / 结束时间（毫秒）
+     * @param now        本次采样时刻，判断规则的连续时长是否达标
+     */
+    void beginRound(long changeTime, long now) {
+        round++;
+        nextVisibleCount = 0;
+        this.changeTime = changeTime;
+        this.now = now;
+        nextRuleDueTime = Long.MAX_VALUE;
+    }
+
+    /**
+     * 本轮该 item 可见（ratio > 0）。首次满足某条规则时回调。
+     *
+     * @param cardType 用于筛选对该 item 生效的规则
+     */
+    void markVisible(String key, T item, int cardType, int position, float ratio) {
+        int slot = find(key);
+        if (slot == NO_SLOT) {
+            slot = allocate(key);
+            if (slot == NO_SLOT) return; // 所有槽位都可见，不可能出现在正常列表里
+        }
+
+        items[slot] = item;
+        positions[slot] = position;
+        ratios[slot] = ratio;
+
+        if (seenRounds[slot] != round) {
+            seenRounds[slot] = round;
+            nextVisible[nextVisibleCount++] = slot;
+        }
+
+        byte f = flags[slot];
+        if ((f & FLAG_VISIBLE) == 0) {
+            f |= FLAG_VISIBLE;
+            visibleStartTimes[slot] = changeTime;
+        }
+        f |= FLAG_REFERENCED;
+        flags[slot] = f;
+
+        evaluateRules(slot, item, cardType, position, ratio);
+    }
+
+    private void evaluateRules(int slot, T item, int cardType, int position, float ratio) {
+        int base = slot * MAX_RULES;
+        for (int r = 0; r < ruleCount; r++) {
+            int bit = 1 << r;
+            if ((firedRules[slot] & bit) != 0) continue;
+            ViewabilityRule rule = rules[r];
+            if (!rule.appliesTo(cardType)) continue;
+
+            if (ratio < rule.minVisibleRatio) {
+                // 连续计时中断
+                ruleStartTimes[base + r] = NOT_RUNNING;
+                continue;
+            }
+            long start = ruleStartTimes[base + r];
+            if (start == NOT_RUNNING) {
+                start = changeTime;
+                ruleStartTimes[base + r] = start;
+            }
+            long dueTime = start + rule.minContinuousMillis;
+            if (now >= dueTime) {
+                firedRules[slot] |= bit;
+                callback.onRuleSatisfied(item, position, ratio, rule);
+            } else if (dueTime < nextRuleDueTime) {
+                nextRuleDueTime = dueTime;
+            }
+        }
+    }
+
+    /**
+     * 上一轮可见、本轮没有 markVisible 的槽位视为离屏：结算停留时长并回调。
+     */
+    @SuppressWarnings("unchecked")
+    void endRound() {
+        for (int i = 0; i < visibleCount; i++) {
+            int slot = visible[i];
+            if (seenRounds[slot] == round) continue;
+
+            long visibleMillis = changeTime - visibleStartTimes[slot];
+            totalVisibleTimes[slot] += visibleMillis;
+            visibleStartTimes[slot] = 0L;
+            flags[slot] &= ~FLAG_VISIBLE;
+            clearRuleTimers(slot);
+
+            T item = (T) items[slot];
+            items[slot] = null;
+            float lastRatio = ratios[slot];
+            ratios[slot] = 0f;
+            callback.onHidden(item, positions[slot], lastRatio, visibleMillis, totalVisibleTimes[slot]);
+        }
+
+        int[] tmp = visible;
+        visible = nextVisible;
+        visibleCount = nextVisibleCount;
+        nextVisible = tmp;
+        nextVisibleCount = 0;
+    }
+
+    /**
+     * 写出当前状态快照：表里的状态在前，之后是上次恢复时还没用上的记录，合计不超过 maxRecords 条。
+     * 正在可见的 item 把本次已可见的时长也算进累计值；连续计时中的规则不保存，恢复后重新计时。
+     *
+     * @param nowMillis     与 beginRound 同一时钟，用于结算正在可见的时长
+     * @param savedAtMillis 墙上时钟，用于判断磁盘快照是否过期
+     */
+    byte[] saveState(long nowMillis, long savedAtMillis, int maxRecords) {
+        ExposureStateSnapshot.Writer writer =
+                new ExposureStateSnapshot.Writer(savedAtMillis, rules, ruleCount);
+        for (int slot = 0; slot < maxStates && writer.count() < maxRecords; slot++) {
+            String key = keys[slot];
+            if (key == null) continue;
+            long total = totalVisibleTimes[slot];
+            if ((flags[slot] & FLAG_VISIBLE) != 0) {
+                total += Math.max(0L, nowMillis - visibleStartTimes[slot]);
+            }
+            writer.writeRecord(key, firedRules[slot], total);
+        }
+        if (restoreIndex != null) {
+            restoreIndex.writeRemaining(writer, maxRecords - writer.count());
+        }
+        return writer.toByteArray();
+    }
+
+    /**
+     * 载入快照。只建索引，不把记录搬进状态表：item 第一次出现（分配槽位）时才按 key 取回它的状态，
+     * 所以恢复的开销与快照大小基本无关，快照里已经不在列表中的 item 也不会占用槽位。
+     * 应在规则注册之后、第一轮计算之前调用。
+     *
+     * @throws IllegalArgumentException 快照格式不对
+     */
+    void restoreState(byte[] data) {
+        restoreIndex = ExposureStateSnapshot.Index.parse(data, rules, ruleCount);
+    }
+
+    /** 快照里还没恢复的记录数 */
+    int pendingRestoreCount() {
+        return restoreIndex == null ? 0 : restoreIndex.remaining();
+    }
+
+    /**
+     * 本轮结束后，还在计时中的规则最早什么时候达标；没有则为 Long.MAX_VALUE。
+     * 列表静止时不会再采样，调用方应在这个时刻补采一次。
+     */
+    long getNextRuleDueTime() {
+        return nextRuleDueTime;
+    }
+
+    int size() {
+        return size;
+    }
+
+    int visibleCount() {
+        return visibleCount;
+    }
+
+    boolean contains(String key) {
+        return find(key) != NO_SLOT;
+    }
+
+    long getTotalVisibleMillis(String key) {
+        int slot = find(key);
+        return slot == NO_SLOT ? 0L : totalVisibleTimes[slot];
+    }
+
+    private void clearRuleTimers(int slot) {
+        int base = slot * MAX_RULES;
+        for (int r = 0; r < ruleCount; r++) {
+            ruleStartTimes[base + r] = NOT_RUNNING;
+        }
+    }
+
+    private static int mix(int h) {
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        return h;
+    }
+
+    private int find(String key) {
+        int b = mix(key.hashCode()) & bucketMask;
+        while (true) {
+            int entry = buckets[b];
+            if (entry == 0) return NO_SLOT;
+            int slot = entry - 1;
+            if (key.equals(keys[slot])) return slot;
+            b = (b + 1) & bucketMask;
+        }
+    }
+
+    private int allocate(String key) {
+        int slot;
+        if (freeCount > 0) {
+            slot = freeSlots[--freeCount];
+        } else {
+            slot = evict();
+            if (slot == NO_SLOT) return NO_SLOT;
+        }
+
+        keys[slot] = key;
+        items[slot] = null;
+        positions[slot] = -1;
+        ratios[slot] = 0f;
+        visibleStartTimes[slot] = 0L;
+        totalVisibleTimes[slot] = 0L;
+        flags[slot] = 0;
+        seenRounds[slot] = 0;
+        firedRules[slot] = 0;
+        clearRuleTimers(slot);
+        if (restoreIndex != null) {
+            rehydrate(slot, key);
+        }
+
+        int b = mix(key.hashCode()) & bucketMask;
+        while (buckets[b] != 0) {
+            b = (b + 1) & bucketMask;
+        }
+        buckets[b] = slot + 1;
+        size++;
+        return slot;
+    }
+
+    /**
+     * 快照里有这个 key 的话，把已触发的规则和累计时长搬进新分配的槽位。
+     */
+    private void rehydrate(int slot, String key) {
+        int record = restoreIndex.find(key);
+        if (record < 0) return;
+        firedRules[slot] = restoreIndex.firedRules(record);
+        totalVisibleTimes[slot] = restoreIndex.totalVisibleMillis(record);
+        restoreIndex.consume(record);
+        if (restoreIndex.remaining() == 0) {
+            restoreIndex = null;
+        }
+    }
+
+    /**
+     * clock 淘汰：跳过可见槽位；有访问位的先清掉访问位给一次机会。
+     */
+    private int evict() {
+        for (int step = 0; step < maxStates * 2; step++) {
+            int slot = clockHand;
+            clockHand = (clockHand + 1) % maxStates;
+
+            byte f = flags[slot];
+            if ((f & FLAG_VISIBLE) != 0 || seenRounds[slot] == round) continue;
+            if ((f & FLAG_REFERENCED) != 0) {
+                flags[slot] = (byte) (f & ~FLAG_REFERENCED);
+                continue;
+            }
+            removeKey(keys[slot]);
+            keys[slot] = null;
+            size--;
+            return slot;
+        }
+        return NO_SLOT;
+    }
+
+    /**
+     * 线性探测的删除：把后面同一探测链上的项往前挪，不留墓碑。
+     */
+    private void removeKey(String key) {
+        int b = mix(key.hashCode()) & bucketMask;
+        while (buckets[b] != 0 && !key.equals(keys[buckets[b] - 1])) {
+            b = (b + 1) & bucketMask;
+        }
+        if (buckets[b] == 0) return;
+
+        int hole = b;
+        int next = (hole + 1) & bucketMask;
+        while (buckets[next] != 0) {
+            int home = mix(keys[buckets[next] - 1].hashCode()) & bucketMask;
+            // home 不在 (hole, next] 之间时，这一项可以挪到 hole
+            boolean movable = hole <= next
+                    ? (home <= hole || home > next)
+                    : (home <= hole && home > next);
+            if (movable) {
+                buckets[hole] = buckets[next];
+                hole = next;
+            }
+            next = (next + 1) & bucketMask;
+        }
+        buckets[hole] = 0;
+    }
+}
@@ -0,0 +1,19 @@
+package com.example.feedapp.feed.exposure;
+
+import androidx.annotation.NonNull;
+
+import java.io.IOException;
+
+/**
+ * 曝光批次的上报通道。由 {@link ExposurePipeline} 在后台线程同步调用，
+ * 抛出异常表示这批没有送达，批次会留在磁盘上退避后重试；
+ * 抛出 {@link ExposureRejectedException} 表示服务端拒收，重试无用，批次会被丢弃。
+ */
+public interface ExposureUploader {
+
+    /**
+     * @param batch      一个或多个批次合并后的请求体，格式见 {@link ExposureBatchCodec}
+     * @param eventCount batch 里的事件数
+     */
+    void upload(@NonNull byte[] batch, int eventCount) throws IOException;
+}
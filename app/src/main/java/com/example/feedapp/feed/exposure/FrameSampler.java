@@ -0,0 +1,74 @@
+package com.example.feedapp.feed.exposure;
+
+/**
+ * ExposureManager 的帧采样节奏：每一帧决定采不采样。
+ *
+ * - 滚动中按采样间隔采；上一帧超出预算（掉帧）或本帧开始得太晚时跳过，
+ *   把这一帧的时间让给渲染，但连续跳过不超过 {@link #MAX_SKIPPED_FRAMES} 帧；
+ * - 静止时的帧（数据到达、刷新、加载更多后的布局）只会有这一帧，不会再有下一帧补采，
+ *   所以无论间隔和预算都直接采。
+ *
+ * 不依赖 Android，只在主线程使用。
+ */
+final class FrameSampler {
+
+    /** 连续因超时跳过的帧数上限，超过后无论如何都采一次 */
+    static final int MAX_SKIPPED_FRAMES = 4;
+    private static final long NANOS_PER_MS = 1_000_000L;
+
+    private int sampleIntervalFrames;
+    private long frameIntervalNanos;
+    private long lastFrameTimeNanos = 0L;
+    private int framesSinceSample = 0;
+    private int skippedFrames = 0;
+
+    FrameSampler(int sampleIntervalFrames, long frameIntervalNanos) {
+        this.sampleIntervalFrames = Math.max(1, sampleIntervalFrames);
+        this.frameIntervalNanos = frameIntervalNanos;
+    }
+
+    void setSampleIntervalFrames(int frames) {
+        sampleIntervalFrames = Math.max(1, frames);
+    }
+
+    void setFrameIntervalNanos(long nanos) {
+        frameIntervalNanos = nanos;
+    }
+
+    /**
+     * 一帧到来。
+     *
+     * @param frameTimeNanos Choreographer 给的帧时间
+     * @param nowNanos       回调实际开始执行的时间，同一时钟
+     * @param scrolling      列表是否还在滚动（之后还会有帧回调）
+     * @return 这一帧是否应采样；返回 true 后调用方采样并调用 {@link #onSampled()}
+     */
+    boolean onFrame(long frameTimeNanos, long nowNanos, boolean scrolling) {
+        long sinceLastFrame = lastFrameTimeNanos == 0L ? 0L : frameTimeNanos - lastFrameTimeNanos;
+        long lateness = nowNanos - frameTimeNanos;
+        // 静止后不再有连续的帧，下次滚动的第一帧不和这一帧比间隔
+        lastFrameTimeNanos = scrolling ? frameTimeNanos : 0L;
+        framesSinceSample++;
+
+        if (!scrolling) return true;
+        if (framesSinceSample < sampleIntervalFrames) return false;
+        boolean overBudget = sinceLastFrame > frameIntervalNanos * 3 / 2
+                || lateness > frameIntervalNanos / 2;
+        if (overBudget && skippedFrames < MAX_SKIPPED_FRAMES) {
+            skippedFrames++;
+            return false;
+        }
+        return true;
+    }
+
+    /** 采样后（不论由帧回调还是停止滚动、规则到期触发）重置计数 */
+    void onSampled() {
+        framesSinceSample = 0;
+        skippedFrames = 0;
+    }
+
+    /** 两次采样间隔超过它时不做中点插值 */
+    long maxGapMillis() {
+        return frameIntervalNanos * (sampleIntervalFrames + MAX_SKIPPED_FRAMES + 1) / NANOS_PER_MS;
+    }
+}
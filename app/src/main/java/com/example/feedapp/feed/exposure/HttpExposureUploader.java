@@ -0,0 +1,63 @@
+package com.example.feedapp.feed.exposure;
+
+import androidx.annotation.NonNull;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+
+/**
+ * 把曝光批次以 application/octet-stream POST 给上报地址，联调时配合 {@link LocalExposureServer}。
+ */
+public class HttpExposureUploader implements ExposureUploader {
+
+    private static final int TIMEOUT_MS = 5000;
+
+    private final String uploadUrl;
+
+    public HttpExposureUploader(@NonNull String uploadUrl) {
+        this.uploadUrl = uploadUrl;
+    }
+
+    @Override
+    public void upload(@NonNull byte[] batch, int eventCount) throws IOException {
+        HttpURLConnection conn = (HttpURLConnection) new URL(uploadUrl).openConnection();
+        conn.setConnectTimeout(TIMEOUT_MS);
+        conn.setReadTimeout(TIMEOUT_MS);
+        conn.setRequestMethod("POST");
+        conn.setDoOutput(true);
+        conn.setFixedLengthStreamingMode(batch.length);
+        conn.setRequestProperty("Content-Type", "application/octet-stream");
+        conn.setRequestProperty("X-Event-Count", String.valueOf(eventCount));
+        try {
+            try (OutputStream out = conn.getOutputStream()) {
+                out.write(batch);
+            }
+            int code = conn.getResponseCode();
+            if (isRejected(code)) {
+                throw new ExposureRejectedException("HTTP " + code);
+            }
+            if (code / 100 != 2) {
+                throw new IOException("HTTP " + code);
+            }
+            // 读完响应体，连接才能被复用
+            try (InputStream in = conn.getInputStream()) {
+                byte[] buf = new byte[256];
+                while (in.read(buf) != -1) {
+                    // drain
+                }
+            }
+        } finally {
+            conn.disconnect();
+        }
+    }
+
+    /**
+     * 4xx 是请求本身的问题，重发同样的内容还会被拒；408 / 429 只是暂时的，仍按失败退避重试。
+     */
+    static boolean isRejected(int code) {
+        return code >= 400 && code < 500 && code != 408 && code != 429;
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.feedapp.feed.exposure;
+
+import androidx.annotation.NonNull;
+
+import com.example.feedapp.common.log.Logger;
+import com.example.feedapp.common.net.LoopbackHttpServer;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 曝光上报的本机替身：POST /exposure 接收批次，校验并统计事件数。
+ * 可以让接下来的若干次请求返回 503，用来验证重试和退避。
+ */
+public class LocalExposureServer extends LoopbackHttpServer {
+
+    private static final String TAG = "LocalExposureServer";
+
+    private final AtomicLong receivedEvents = new AtomicLong();
+    private final AtomicInteger receivedRequests = new AtomicInteger();
+    private final AtomicInteger failNextRequests = new AtomicInteger();
+
+    public LocalExposureServer() throws IOException {
+        super(TAG);
+    }
+
+    LocalExposureServer(@NonNull Logger logger) throws IOException {
+        super(TAG, logger);
+    }
+
+    @NonNull
+    public String getUploadUrl() {
+        return getBaseUrl() + "/exposure";
+    }
+
+    /**
+     * 接下来的 count 次上报直接返回 503。
+     */
+    public void setFailNextRequests(int count) {
+        failNextRequests.set(count);
+    }
+
+    public long getReceivedEvents() {
+        return receivedEvents.get();
+    }
+
+    public int getReceivedRequests() {
+        return receivedRequests.get();
+    }
+
+    @NonNull
+    @Override
+    protected Response handle(@NonNull Request request) {
+        if (!"POST".equals(request.method) || !"/exposure".equals(request.getPath())) {
+            return Response.text(404, "not found");
+        }
+        if (failNextRequests.getAndUpdate(n -> n > 0 ? n - 1 : 0) > 0) {
+            return Response.text(503, "injected failure");
+        }
+
+        int count;
+        try {
+            count = ExposureBatchCodec.decode(request.body,
+                    (time, kind, itemId, position, ratio, duration) -> {
+                    });
+        } catch (IllegalArgumentException e) {
+            return Response.text(400, String.valueOf(e.getMessage()));
+        }
+        receivedRequests.incrementAndGet();
+        receivedEvents.addAndGet(count);
+        return Response.text(200, "accepted " + count);
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.feedapp.feed.exposure;
+
+import androidx.annotation.NonNull;
+
+import com.example.feedapp.feed.model.FeedItem;
+
+/**
+ * 可见性规则：某类卡片连续至少 {@link #minContinuousMillis} 毫秒、可见比例不低于
+ * {@link #minVisibleRatio} 时，视为满足。每个 item 每条规则只触发一次。
+ *
+ * “首次露出”和“首次完全可见”也是两条内置规则（任意卡片类型、时长为 0），
+ * 业务规则通过 {@link ExposureManager#addViewabilityRule} 注册。
+ */
+public final class ViewabilityRule {
+
+    /** 对所有卡片类型生效 */
+    public static final int ANY_CARD_TYPE = 0;
+
+    /** 内置：可见比例 > 0 即触发 */
+    static final ViewabilityRule EXPOSED =
+            new ViewabilityRule("exposed", ANY_CARD_TYPE, 0f, 0L);
+    /** 内置：100% 可见即触发 */
+    static final ViewabilityRule FULLY_VISIBLE =
+            new ViewabilityRule("fully_visible", ANY_CARD_TYPE, 1f, 0L);
+
+    @NonNull
+    public final String name;
+    public final int cardType;
+    public final float minVisibleRatio;
+    public final long minContinuousMillis;
+
+    /**
+     * @param cardType 只对该类型的卡片生效，{@link #ANY_CARD_TYPE} 表示全部
+     */
+    public ViewabilityRule(@NonNull String name, int cardType,
+                           float minVisibleRatio, long minContinuousMillis) {
+        this.name = name;
+        this.cardType = cardType;
+        this.minVisibleRatio = minVisibleRatio;
+        this.minContinuousMillis = Math.max(0L, minContinuousMillis);
+    }
+
+    /**
+     * Banner 的可见曝光口径：至少 50% 像素、连续 1 秒。
+     */
+    @NonNull
+    public static ViewabilityRule bannerViewable() {
+        return new ViewabilityRule("banner_viewable", FeedItem.CARD_TYPE_BANNER, 0.5f, 1000L);
+    }
+
+    boolean appliesTo(int itemCardType) {
+        return cardType == ANY_CARD_TYPE || cardType == itemCardType;
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return name + "(>=" + Math.round(minVisibleRatio * 100) + "% " + minContinuousMillis + "ms)";
+    }
+}
@@ -0,0 +1,146 @@
+package com.example.feedapp.feed.exposure;
+
+/**
+ * 计算卡片真实的可见面积比例：卡片矩形与视口求交，再扣掉被遮挡视图盖住的部分。
+ * 所有矩形都用同一个坐标系（RecyclerView 自身坐标），左上闭、右下开。
+ *
+ * 不依赖 Android，所有临时数组创建时分配好，计算过程不分配对象。
+ * 多个遮挡物互相重叠时，按所有矩形边界把区域切成网格，逐格判断是否被盖住，
+ * 结果是精确的并集面积；遮挡物数量很少（通常 0～2 个），网格开销可以忽略。
+ *
+ * 只在单线程（主线程）使用。
+ */
+final class VisibleAreaCalculator {
+
+    static final int MAX_OCCLUDERS = 4;
+
+    private int viewportLeft;
+    private int viewportTop;
+    private int viewportRight;
+    private int viewportBottom;
+
+    // 遮挡物矩形，每个 4 个 int：left, top, right, bottom
+    private final int[] occluders = new int[MAX_OCCLUDERS * 4];
+    private int occluderCount = 0;
+
+    // 每次计算时与卡片相交的遮挡部分，以及切网格用的边界坐标
+    private final int[] clipped = new int[MAX_OCCLUDERS * 4];
+    private final int[] xs = new int[2 + MAX_OCCLUDERS * 2];
+    private final int[] ys = new int[2 + MAX_OCCLUDERS * 2];
+
+    void setViewport(int left, int top, int right, int bottom) {
+        viewportLeft = left;
+        viewportTop = top;
+        viewportRight = right;
+        viewportBottom = bottom;
+    }
+
+    void clearOccluders() {
+        occluderCount = 0;
+    }
+
+    /**
+     * 超过 {@link #MAX_OCCLUDERS} 个时忽略多出来的；空矩形直接忽略。
+     */
+    void addOccluder(int left, int top, int right, int bottom) {
+        if (occluderCount >= MAX_OCCLUDERS || right <= left || bottom <= top) return;
+        int i = occluderCount++ * 4;
+        occluders[i] = left;
+        occluders[i + 1] = top;
+        occluders[i + 2] = right;
+        occluders[i + 3] = bottom;
+    }
+
+    /**
+     * @return 卡片可见面积 / 卡片总面积，0～1
+     */
+    float visibleRatio(int left, int top, int right, int bottom) {
+        if (right <= left || bottom <= top) return 0f;
+        long area = (long) (right - left) * (bottom - top);
+
+        int l = Math.max(left, viewportLeft);
+        int t = Math.max(top, viewportTop);
+        int r = Math.min(right, viewportRight);
+        int b = Math.min(bottom, viewportBottom);
+        if (r <= l || b <= t) return 0f;
+        long visible = (long) (r - l) * (b - t);
+
+        // 只保留与可见部分相交的遮挡物，并裁剪到可见部分之内
+        int count = 0;
+        for (int i = 0; i < occluderCount; i++) {
+            int o = i * 4;
+            int ol = Math.max(l, occluders[o]);
+            int ot = Math.max(t, occluders[o + 1]);
+            int or = Math.min(r, occluders[o + 2]);
+            int ob = Math.min(b, occluders[o + 3]);
+            if (or <= ol || ob <= ot) continue;
+            int c = count++ * 4;
+            clipped[c] = ol;
+            clipped[c + 1] = ot;
+            clipped[c + 2] = or;
+            clipped[c + 3] = ob;
+        }
+
+        if (count == 1) {
+            visible -= (long) (clipped[2] - clipped[0]) * (clipped[3] - clipped[1]);
+        } else if (count > 1) {
+            visible -= coveredArea(l, t, r, b, count);
+        }
+        return Math.max(0f, Math.min(1f, visible / (float) area));
+    }
+
+    /**
+     * 多个遮挡物的并集面积：按所有边界坐标切网格，累加被任一遮挡物完全覆盖的格子。
+     */
+    private long coveredArea(int l, int t, int r, int b, int count) {
+        int nx = 0;
+        int ny = 0;
+        xs[nx++] = l;
+        xs[nx++] = r;
+        ys[ny++] = t;
+        ys[ny++] = b;
+        for (int i = 0; i < count; i++) {
+            int c = i * 4;
+            xs[nx++] = clipped[c];
+            xs[nx++] = clipped[c + 2];
+            ys[ny++] = clipped[c + 1];
+            ys[ny++] = clipped[c + 3];
+        }
+        sort(xs, nx);
+        sort(ys, ny);
+
+        long covered = 0;
+        for (int xi = 0; xi + 1 < nx; xi++) {
+            int x0 = xs[xi];
+            int x1 = xs[xi + 1];
+            if (x1 <= x0) continue;
+            for (int yi = 0; yi + 1 < ny; yi++) {
+                int y0 = ys[yi];
+                int y1 = ys[yi + 1];
+                if (y1 <= y0) continue;
+                for (int i = 0; i < count; i++) {
+                    int c = i * 4;
+                    if (clipped[c] <= x0 && x1 <= clipped[c + 2]
+                            && clipped[c + 1] <= y0 && y1 <= clipped[c + 3]) {
+                        covered += (long) (x1 - x0) * (y1 - y0);
+                        break;
+                    }
+                }
+            }
+        }
+        return covered;
+    }
+
+    /** 元素很少，插入排序即可，也不需要装箱 */
+    private static void sort(int[] a, int n) {
+        for (int i = 1; i < n; i++) {
+            int v = a[i];
+            int j = i - 1;
+            while (j >= 0 && a[j] > v) {
+                a[j + 1] = a[j];
+                j--;
+            }
+            a[j + 1] = v;
+        }
+    }
+}
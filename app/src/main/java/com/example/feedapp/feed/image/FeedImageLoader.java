@@ -0,0 +1,264 @@
+package com.example.feedapp.feed.image;
+
+import android.content.Context;
+import android.graphics.drawable.Drawable;
+import android.util.SparseArray;
+import android.widget.ImageView;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.bumptech.glide.Glide;
+import com.bumptech.glide.Priority;
+import com.bumptech.glide.RequestBuilder;
+import com.bumptech.glide.request.Request;
+import com.bumptech.glide.request.target.Target;
+import com.example.feedapp.feed.model.FeedItem;
+import com.example.feedapp.feed.ui.adapter.FeedAdapter;
+
+import java.util.ArrayDeque;
+import java.util.List;
+
+/**
+ * Feed 图片加载调度：
+ * - 可见卡片 IMMEDIATE，下一屏 HIGH，分页到达时的预取 LOW；
+ * - 已经滑过的位置（以及反向滑动时离开窗口的位置）取消预加载；
+ * - 惯性滑动（SETTLING）期间 LOW 请求先排队，进入 SETTLING 时还没完成的 LOW 请求也取消后放回队列，
+ *   停下或重新拖动时再发；
+ * - 绑定和预加载用同一套尺寸 / 格式（见 {@link ImageSizePolicy}）+ centerCrop，预加载的结果能直接命中内存缓存。
+ *
+ * 只在主线程调用。
+ */
+public class FeedImageLoader {
+
+    private static final int DEFAULT_SPAN_COUNT = 2;
+
+    /** 最多排队的 LOW 请求，超出时丢弃最旧的 */
+    private static final int MAX_PENDING_LOW = 24;
+
+    private static volatile FeedImageLoader instance;
+
+    private final Context appContext;
+    private ImageSizePolicy sizePolicy;
+
+    private int firstVisible = RecyclerView.NO_POSITION;
+    private int lastVisible = RecyclerView.NO_POSITION;
+    private int scrollState = RecyclerView.SCROLL_STATE_IDLE;
+
+    /** position -> 预加载请求，用于取消 */
+    private final SparseArray<Target<?>> preloads = new SparseArray<>();
+    /** 其中以 LOW 发出的：position -> item，惯性滑动开始时暂停它们要用 */
+    private final SparseArray<FeedItem> lowPreloads = new SparseArray<>();
+    private final ArrayDeque<PendingLoad> pendingLow = new ArrayDeque<>();
+
+    private static final class PendingLoad {
+        final int position;
+        final FeedItem item;
+
+        PendingLoad(int position, FeedItem item) {
+            this.position = position;
+            this.item = item;
+        }
+    }
+
+    public static FeedImageLoader getInstance(Context context) {
+        if (instance == null) {
+            synchronized (FeedImageLoader.class) {
+                if (instance == null) {
+                    instance = new FeedImageLoader(context);
+                }
+            }
+        }
+        return instance;
+    }
+
+    private FeedImageLoader(Context context) {
+        appContext = context.getApplicationContext();
+        sizePolicy = new ImageSizePolicy(
+                appContext.getResources().getDisplayMetrics(), DEFAULT_SPAN_COUNT);
+    }
+
+    /**
+     * 列表创建（含旋转后重建）时调用：屏幕宽度或列数变了，解码尺寸跟着变。
+     */
+    public void updateLayout(@NonNull Context context, int spanCount) {
+        sizePolicy = new ImageSizePolicy(context.getResources().getDisplayMetrics(), spanCount);
+    }
+
+    /**
+     * 卡片绑定时加载图片：当前可见的用 IMMEDIATE，其余（RecyclerView 预取绑定的）用 HIGH。
+     * 复用 ViewHolder 时 Glide 会先取消该 ImageView 上的旧请求。
+     */
+    public void loadInto(@NonNull ImageView view, @NonNull FeedItem item, int position) {
+        Object src = sourceOf(item);
+        if (src == null) {
+            Glide.with(view).clear(view);
+            view.setImageResource(android.R.drawable.ic_menu_report_image);
+            return;
+        }
+        Priority priority = isVisible(position) ? Priority.IMMEDIATE : Priority.HIGH;
+        request(Glide.with(view).load(src), item)
+                .priority(priority)
+                .into(view);
+    }
+
+    public void clear(@NonNull ImageView view) {
+        Glide.with(view).clear(view);
+    }
+
+    /**
+     * 可见范围变化：取消滑过的预加载，并以 HIGH 预加载下一屏。
+     */
+    public void onVisibleRangeChanged(int first, int last, @NonNull FeedAdapter adapter) {
+        if (first == firstVisible && last == lastVisible) return;
+        boolean scrollingUp = first < firstVisible;
+        firstVisible = first;
+        lastVisible = last;
+        if (first == RecyclerView.NO_POSITION || last == RecyclerView.NO_POSITION) return;
+
+        int screen = last - first + 1;
+        cancelOutside(first, last + screen * 2);
+        if (scrollingUp) return;
+
+        int count = adapter.getDataItemCount();
+        int end = Math.min(count, last + 1 + screen);
+        for (int pos = last + 1; pos < end; pos++) {
+            preload(pos, adapter.getItem(pos), Priority.HIGH);
+        }
+    }
+
+    public void onScrollStateChanged(int newState) {
+        int oldState = scrollState;
+        scrollState = newState;
+        if (newState != RecyclerView.SCROLL_STATE_SETTLING) {
+            drainPendingLow();
+        } else if (oldState != RecyclerView.SCROLL_STATE_SETTLING) {
+            pauseLowPreloads();
+        }
+    }
+
+    /**
+     * 新的一页到达时低优先级预取，startPosition 是这一页第一条在列表中的位置。
+     * 惯性滑动中先排队，不和可见卡片抢带宽和解码线程。
+     */
+    public void prefetch(@NonNull List<FeedItem> page, int startPosition, int maxCount) {
+        for (int i = 0; i < page.size() && i < maxCount; i++) {
+            int pos = startPosition + i;
+            FeedItem item = page.get(i);
+            if (scrollState == RecyclerView.SCROLL_STATE_SETTLING) {
+                enqueueLow(pos, item);
+            } else {
+                preload(pos, item, Priority.LOW);
+            }
+        }
+    }
+
+    /**
+     * 列表整体替换（刷新）或页面销毁时调用：位置全部失效。
+     */
+    public void cancelAll() {
+        for (int i = 0; i < preloads.size(); i++) {
+            Glide.with(appContext).clear(preloads.valueAt(i));
+        }
+        preloads.clear();
+        lowPreloads.clear();
+        pendingLow.clear();
+        firstVisible = RecyclerView.NO_POSITION;
+        lastVisible = RecyclerView.NO_POSITION;
+    }
+
+    private void enqueueLow(int position, @NonNull FeedItem item) {
+        if (pendingLow.size() >= MAX_PENDING_LOW) {
+            pendingLow.pollFirst();
+        }
+        pendingLow.addLast(new PendingLoad(position, item));
+    }
+
+    /**
+     * 惯性滑动开始：已经发出、还没完成的 LOW 预取也会和可见卡片抢解码线程和带宽，
+     * 取消后放回队列，停下时和排队的一起重发；已完成的结果在缓存里，不用管。
+     */
+    private void pauseLowPreloads() {
+        for (int i = 0; i < lowPreloads.size(); i++) {
+            int pos = lowPreloads.keyAt(i);
+            Target<?> target = preloads.get(pos);
+            if (target == null) continue;
+            // 预加载完成后 PreloadTarget 会自己 clear，request 变成 null
+            Request request = target.getRequest();
+            if (request == null || request.isComplete()) continue;
+            Glide.with(appContext).clear(target);
+            preloads.remove(pos);
+            enqueueLow(pos, lowPreloads.valueAt(i));
+        }
+        lowPreloads.clear();
+    }
+
+    private void drainPendingLow() {
+        PendingLoad load;
+        while ((load = pendingLow.pollFirst()) != null) {
+            // 排队期间已经滑过的不再加载
+            if (firstVisible != RecyclerView.NO_POSITION && load.position < firstVisible) continue;
+            preload(load.position, load.item, Priority.LOW);
+        }
+    }
+
+    private void preload(int position, @NonNull FeedItem item, @NonNull Priority priority) {
+        if (preloads.get(position) != null) return;
+        Object src = sourceOf(item);
+        if (src == null) return;
+        Target<?> target = request(Glide.with(appContext).load(src), item)
+                .priority(priority)
+                .preload(sizePolicy.getWidth(item), sizePolicy.getHeight(item));
+        preloads.put(position, target);
+        if (priority == Priority.LOW) {
+            lowPreloads.put(position, item);
+        }
+    }
+
+    private void cancelOutside(int from, int to) {
+        for (int i = preloads.size() - 1; i >= 0; i--) {
+            int pos = preloads.keyAt(i);
+            if (pos < from || pos > to) {
+                Glide.with(appContext).clear(preloads.valueAt(i));
+                preloads.removeAt(i);
+                lowPreloads.remove(pos);
+            }
+        }
+    }
+
+    /**
+     * 绑定和预加载共用的请求参数：内存缓存 key 由尺寸、变换和解码格式决定，两边必须一致。
+     */
+    @NonNull
+    private RequestBuilder<Drawable> request(
+            @NonNull RequestBuilder<Drawable> builder,
+            @NonNull FeedItem item) {
+        return builder
+                .override(sizePolicy.getWidth(item), sizePolicy.getHeight(item))
+                .format(sizePolicy.getDecodeFormat(item))
+                .centerCrop();
+    }
+
+    private boolean isVisible(int position) {
+        return position != RecyclerView.NO_POSITION
+                && position >= firstVisible && position <= lastVisible;
+    }
+
+    /**
+     * 只调度带图的卡片（图文、视频封面、Banner），其它卡片返回 null。
+     */
+    @Nullable
+    private static Object sourceOf(@NonNull FeedItem item) {
+        if (item.cardType != FeedItem.CARD_TYPE_IMAGE
+                && item.cardType != FeedItem.CARD_TYPE_VIDEO
+                && item.cardType != FeedItem.CARD_TYPE_BANNER) {
+            return null;
+        }
+        if (item.cardType != FeedItem.CARD_TYPE_IMAGE) {
+            return item.imageUrl != null ? item.imageUrl : item.imageRes;
+        }
+        if (item.imageRes != 0) return item.imageRes;
+        return item.imageUrl;
+    }
+}
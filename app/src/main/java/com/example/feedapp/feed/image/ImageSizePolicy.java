@@ -0,0 +1,80 @@
+package com.example.feedapp.feed.image;
+
+import android.util.DisplayMetrics;
+
+import androidx.annotation.NonNull;
+
+import com.bumptech.glide.load.DecodeFormat;
+import com.example.feedapp.feed.model.FeedItem;
+
+/**
+ * 按卡片布局计算图片的解码尺寸和位图格式，绑定和预加载共用。
+ *
+ * 宽度 = 列表可用宽度 × 卡片所占列数 / spanCount − 卡片自身的边距；
+ * 双列卡只有单列卡一半宽，按实际显示尺寸解码，而不是原图的 800×600。
+ * 下面的 dp 常量需要与 activity_main 和各卡片布局保持一致。
+ */
+public final class ImageSizePolicy {
+
+    private static final int LIST_PADDING_DP = 8;
+
+    // item_image_card / item_video_card：margin 4dp + padding 8dp，图片区高 160dp
+    private static final int CARD_MARGIN_DP = 4;
+    private static final int CARD_PADDING_DP = 8;
+    private static final int CARD_IMAGE_HEIGHT_DP = 160;
+
+    // item_banner_card：margin 12dp，高 200dp；cardUseCompatPadding 按 4dp 阴影
+    // 左右各再让出 4dp、上下各 6dp
+    private static final int BANNER_MARGIN_DP = 12;
+    private static final int BANNER_SHADOW_H_DP = 4;
+    private static final int BANNER_SHADOW_V_DP = 6;
+    private static final int BANNER_HEIGHT_DP = 200;
+
+    private final int spanCount;
+    private final int listWidth;
+    private final int cardChrome;
+    private final int cardImageHeight;
+    private final int bannerWidth;
+    private final int bannerHeight;
+
+    public ImageSizePolicy(@NonNull DisplayMetrics dm, int spanCount) {
+        this.spanCount = Math.max(1, spanCount);
+        listWidth = dm.widthPixels - dp(dm, LIST_PADDING_DP * 2);
+        cardChrome = dp(dm, (CARD_MARGIN_DP + CARD_PADDING_DP) * 2);
+        cardImageHeight = dp(dm, CARD_IMAGE_HEIGHT_DP);
+        bannerWidth = Math.max(1, listWidth - dp(dm, (BANNER_MARGIN_DP + BANNER_SHADOW_H_DP) * 2));
+        bannerHeight = Math.max(1, dp(dm, BANNER_HEIGHT_DP - BANNER_SHADOW_V_DP * 2));
+    }
+
+    private static int dp(DisplayMetrics dm, int value) {
+        return Math.round(value * dm.density);
+    }
+
+    public int getWidth(@NonNull FeedItem item) {
+        if (item.cardType == FeedItem.CARD_TYPE_BANNER) {
+            return bannerWidth;
+        }
+        int spans = item.layoutType == FeedItem.LAYOUT_DOUBLE_COLUMN ? 1 : spanCount;
+        return Math.max(1, listWidth * spans / spanCount - cardChrome);
+    }
+
+    public int getHeight(@NonNull FeedItem item) {
+        return item.cardType == FeedItem.CARD_TYPE_BANNER ? bannerHeight : cardImageHeight;
+    }
+
+    /**
+     * Feed 里的封面、配图、Banner 都是不透明照片，用 RGB_565 每像素省一半内存。
+     * 带透明通道的图 Glide 会自动退回 ARGB_8888，不会出现黑底。
+     */
+    @NonNull
+    public DecodeFormat getDecodeFormat(@NonNull FeedItem item) {
+        switch (item.cardType) {
+            case FeedItem.CARD_TYPE_IMAGE:
+            case FeedItem.CARD_TYPE_VIDEO:
+            case FeedItem.CARD_TYPE_BANNER:
+                return DecodeFormat.PREFER_RGB_565;
+            default:
+                return DecodeFormat.PREFER_ARGB_8888;
+        }
+    }
+}
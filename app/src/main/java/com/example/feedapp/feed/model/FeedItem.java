@@ -1,5 +1,7 @@
 package com.example.feedapp.feed.model;
 
+import java.util.Objects;
+
 /**
  * App 中所有卡片的数据模型。
  * 支持：文本 / 图片（网络或本地）/ 视频（网络或本地封面）/ 未来任意扩展卡片。
@@ -109,4 +111,25 @@ public class FeedItem {
                 videoUrl);
     }
 
+    // 所有字段都是 final，按内容比较即可（列表 diff 用它判断卡片内容是否变化）
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof FeedItem)) return false;
+        FeedItem other = (FeedItem) o;
+        return cardType == other.cardType
+                && layoutType == other.layoutType
+                && imageRes == other.imageRes
+                && Objects.equals(id, other.id)
+                && Objects.equals(title, other.title)
+                && Objects.equals(description, other.description)
+                && Objects.equals(imageUrl, other.imageUrl)
+                && Objects.equals(videoUrl, other.videoUrl);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(id, cardType, layoutType, title, description, imageUrl, imageRes, videoUrl);
+    }
+
 }
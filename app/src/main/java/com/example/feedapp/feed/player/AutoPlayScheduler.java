@@ -0,0 +1,274 @@
+package com.example.feedapp.feed.player;
+
+import android.view.View;
+import android.widget.OverScroller;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.example.feedapp.feed.model.FeedItem;
+import com.example.feedapp.feed.ui.adapter.FeedAdapter;
+
+/**
+ * 列表自动播放的调度：决定“什么时候、播哪一个”视频，真正的播放交给 {@link Listener}。
+ *
+ * - 列表静止（IDLE）、卡片变为完全可见等触发点都只是 {@link #requestAutoPlay()}，
+ *   合并到 {@link #SETTLE_DEBOUNCE_MS} 之后统一选一次，一次停顿只会起播一次；
+ * - 惯性滑动开始时按 fling 初速度预测停下的位置，提前通知 {@link Listener#onPrepare}
+ *   把最可能停在中间的视频缓冲起来，停下时直接切换；
+ * - 选中线最近的视频只看已布局子 View 的 top/bottom（加上平移），不调 getLocationOnScreen，
+ *   遍历过程中不分配对象。
+ *
+ * 只在主线程使用。
+ */
+public class AutoPlayScheduler {
+
+    /** 静止后等这么久再选视频，期间的重复触发合并成一次 */
+    static final long SETTLE_DEBOUNCE_MS = 120L;
+    /** 预测位置附近最多往两边找几张卡片 */
+    private static final int PREDICT_SEARCH_RADIUS = 4;
+
+    /**
+     * 调度结果回调。
+     */
+    public interface Listener {
+        /** 列表停稳后选中了 holder 上的视频，应开始播放 */
+        void onPlay(@NonNull FeedAdapter.VideoVH holder, @NonNull FeedItem item, int position);
+
+        /** 惯性滑动预计会停在 item 附近，可以提前缓冲（不播放） */
+        void onPrepare(@NonNull FeedItem item, int position);
+
+        /** 停稳后屏幕上没有视频卡片 */
+        void onNoCandidate();
+    }
+
+    private final RecyclerView recyclerView;
+    private final FeedAdapter adapter;
+    private final Listener listener;
+    // 只用来算 fling 的滑行距离，和 RecyclerView 内部用的是同一套物理模型
+    private final OverScroller flingPredictor;
+
+    private final Runnable settleRunnable = this::settle;
+    private boolean settlePending = false;
+    /** 本次停顿已经起播过，直到下一次开始滚动前不再重复选 */
+    private boolean playedThisStop = false;
+    private int lastPreparedPosition = RecyclerView.NO_POSITION;
+
+    // findCenterVideo 的第二个返回值，避免为返回值分配对象
+    private int candidatePosition = RecyclerView.NO_POSITION;
+
+    private final RecyclerView.OnScrollListener scrollListener = new RecyclerView.OnScrollListener() {
+        @Override
+        public void onScrollStateChanged(@NonNull RecyclerView rv, int newState) {
+            if (newState == RecyclerView.SCROLL_STATE_IDLE) {
+                scheduleSettle();
+            } else {
+                cancelSettle();
+                playedThisStop = false;
+            }
+        }
+    };
+
+    private final RecyclerView.OnFlingListener flingListener = new RecyclerView.OnFlingListener() {
+        @Override
+        public boolean onFling(int velocityX, int velocityY) {
+            predictSettle(velocityY);
+            // 只做预测，fling 本身仍交给 RecyclerView
+            return false;
+        }
+    };
+
+    public AutoPlayScheduler(@NonNull RecyclerView recyclerView,
+                             @NonNull FeedAdapter adapter,
+                             @NonNull Listener listener) {
+        this.recyclerView = recyclerView;
+        this.adapter = adapter;
+        this.listener = listener;
+        this.flingPredictor = new OverScroller(recyclerView.getContext());
+        recyclerView.addOnScrollListener(scrollListener);
+        if (recyclerView.getOnFlingListener() == null) {
+            recyclerView.setOnFlingListener(flingListener);
+        }
+    }
+
+    /**
+     * 请求一次自动播放。列表还在滚动时忽略（停下时会自己触发），
+     * 静止时延迟 {@link #SETTLE_DEBOUNCE_MS} 合并执行。
+     */
+    public void requestAutoPlay() {
+        if (recyclerView.getScrollState() != RecyclerView.SCROLL_STATE_IDLE) return;
+        scheduleSettle();
+    }
+
+    /**
+     * 数据整体替换（刷新）后调用：之前的选择作废，停稳后重新选。
+     */
+    public void reset() {
+        playedThisStop = false;
+        lastPreparedPosition = RecyclerView.NO_POSITION;
+        requestAutoPlay();
+    }
+
+    public void release() {
+        cancelSettle();
+        recyclerView.removeOnScrollListener(scrollListener);
+        if (recyclerView.getOnFlingListener() == flingListener) {
+            recyclerView.setOnFlingListener(null);
+        }
+    }
+
+    private void scheduleSettle() {
+        if (settlePending) {
+            recyclerView.removeCallbacks(settleRunnable);
+        }
+        settlePending = true;
+        recyclerView.postDelayed(settleRunnable, SETTLE_DEBOUNCE_MS);
+    }
+
+    private void cancelSettle() {
+        if (settlePending) {
+            recyclerView.removeCallbacks(settleRunnable);
+            settlePending = false;
+        }
+    }
+
+    private void settle() {
+        settlePending = false;
+        if (playedThisStop || recyclerView.getScrollState() != RecyclerView.SCROLL_STATE_IDLE) {
+            return;
+        }
+        FeedAdapter.VideoVH holder = findCenterVideo(0);
+        if (holder == null) {
+            listener.onNoCandidate();
+            return;
+        }
+        FeedItem item = adapter.getItem(candidatePosition);
+        if (item == null || item.videoUrl == null) return;
+        playedThisStop = true;
+        listener.onPlay(holder, item, candidatePosition);
+    }
+
+    /**
+     * 在已布局的子 View 里找列表整体再滚 offsetY 之后离视口中线最近的视频卡片，
+     * 位置写进 {@link #candidatePosition}。offsetY 为 0 即当前位置。
+     */
+    @Nullable
+    private FeedAdapter.VideoVH findCenterVideo(int offsetY) {
+        candidatePosition = RecyclerView.NO_POSITION;
+        RecyclerView.LayoutManager lm = recyclerView.getLayoutManager();
+        if (lm == null) return null;
+
+        int viewportTop = recyclerView.getPaddingTop();
+        int viewportBottom = recyclerView.getHeight() - recyclerView.getPaddingBottom();
+        int centerY = (viewportTop + viewportBottom) / 2;
+
+        FeedAdapter.VideoVH best = null;
+        int bestDistance = Integer.MAX_VALUE;
+        for (int i = 0, n = lm.getChildCount(); i < n; i++) {
+            View child = lm.getChildAt(i);
+            if (child == null) continue;
+            RecyclerView.ViewHolder holder = recyclerView.getChildViewHolder(child);
+            if (!(holder instanceof FeedAdapter.VideoVH)) continue;
+            int position = holder.getBindingAdapterPosition();
+            if (position == RecyclerView.NO_POSITION) continue;
+
+            int shift = (int) child.getTranslationY() - offsetY;
+            int top = child.getTop() + shift;
+            int bottom = child.getBottom() + shift;
+            if (bottom <= viewportTop || top >= viewportBottom) continue;
+
+            int distance = Math.abs((top + bottom) / 2 - centerY);
+            if (distance < bestDistance) {
+                bestDistance = distance;
+                best = (FeedAdapter.VideoVH) holder;
+                candidatePosition = position;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * 按 fling 初速度算出滑行距离，预测停下时中间的视频并提前缓冲。
+     * 落点还在已布局范围内时直接用子 View 的位置；更远时按已布局部分的平均卡片高度估算位置，
+     * 再在附近的数据里找最近的视频。
+     */
+    private void predictSettle(int velocityY) {
+        if (velocityY == 0 || adapter.getItemCount() == 0) return;
+        int distance = predictFlingDistance(velocityY);
+        if (distance == 0) return;
+
+        int position;
+        if (findCenterVideo(distance) != null) {
+            position = candidatePosition;
+        } else {
+            position = estimateVideoPosition(distance);
+        }
+        if (position == RecyclerView.NO_POSITION || position == lastPreparedPosition) return;
+        FeedItem item = adapter.getItem(position);
+        if (item == null || item.videoUrl == null) return;
+        lastPreparedPosition = position;
+        listener.onPrepare(item, position);
+    }
+
+    private int predictFlingDistance(int velocityY) {
+        flingPredictor.fling(0, 0, 0, velocityY,
+                0, 0, Integer.MIN_VALUE, Integer.MAX_VALUE);
+        int distance = flingPredictor.getFinalY();
+        flingPredictor.forceFinished(true);
+
+        // 不会滑出列表两端
+        int offset = recyclerView.computeVerticalScrollOffset();
+        int maxOffset = recyclerView.computeVerticalScrollRange()
+                - recyclerView.computeVerticalScrollExtent();
+        return Math.max(-offset, Math.min(distance, maxOffset - offset));
+    }
+
+    private int estimateVideoPosition(int distance) {
+        RecyclerView.LayoutManager lm = recyclerView.getLayoutManager();
+        if (lm == null || lm.getChildCount() == 0) return RecyclerView.NO_POSITION;
+
+        // 已布局子 View 覆盖的高度和位置范围，得出每像素大约多少张卡片
+        int minTop = Integer.MAX_VALUE;
+        int maxBottom = Integer.MIN_VALUE;
+        int minPosition = Integer.MAX_VALUE;
+        int maxPosition = Integer.MIN_VALUE;
+        for (int i = 0, n = lm.getChildCount(); i < n; i++) {
+            View child = lm.getChildAt(i);
+            if (child == null) continue;
+            int position = recyclerView.getChildAdapterPosition(child);
+            if (position == RecyclerView.NO_POSITION) continue;
+            minTop = Math.min(minTop, child.getTop());
+            maxBottom = Math.max(maxBottom, child.getBottom());
+            minPosition = Math.min(minPosition, position);
+            maxPosition = Math.max(maxPosition, position);
+        }
+        int span = maxBottom - minTop;
+        if (span <= 0) return RecyclerView.NO_POSITION;
+        float itemsPerPixel = (maxPosition - minPosition + 1) / (float) span;
+
+        int centerY = (recyclerView.getPaddingTop()
+                + recyclerView.getHeight() - recyclerView.getPaddingBottom()) / 2;
+        // 以当前中线处的位置为起点，按滑行距离折算出落点
+        float centerPosition = minPosition + (centerY - minTop) * itemsPerPixel;
+        int target = Math.round(centerPosition + distance * itemsPerPixel);
+        // 和布局用同一份数据（后台 diff 还没应用的新列表不算）
+        int count = adapter.getItemCount();
+        target = Math.max(0, Math.min(target, count - 1));
+
+        for (int d = 0; d <= PREDICT_SEARCH_RADIUS; d++) {
+            if (isVideo(target + d, count)) return target + d;
+            if (d > 0 && isVideo(target - d, count)) return target - d;
+        }
+        return RecyclerView.NO_POSITION;
+    }
+
+    private boolean isVideo(int position, int count) {
+        if (position < 0 || position >= count
+                || adapter.getItemViewType(position) == FeedAdapter.VIEW_TYPE_FOOTER) {
+            return false;
+        }
+        FeedItem item = adapter.getItem(position);
+        return item != null && item.videoUrl != null;
+    }
+}
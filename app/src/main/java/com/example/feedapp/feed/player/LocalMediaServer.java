@@ -0,0 +1,153 @@
+package com.example.feedapp.feed.player;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.example.feedapp.common.net.LoopbackHttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 视频文件服务的本机替身：GET /media/{rawResId} 返回 res/raw 里的视频，支持 Range 请求
+ * （播放器 seek、预取开头一段都依赖它）。用来在没有真实 CDN 时验证磁盘缓存和预取。
+ *
+ * 只支持单段 Range（bytes=a-b / bytes=a- / bytes=-n），多段请求按整个文件返回。
+ */
+public class LocalMediaServer extends LoopbackHttpServer {
+
+    private static final String TAG = "LocalMediaServer";
+    private static final String PATH_PREFIX = "/media/";
+    private static final String RAW_URL_PREFIX = "android.resource://";
+    private static final String LOOPBACK_URL_PREFIX = "http://127.0.0.1:";
+    private static final String CACHE_KEY_PREFIX = "local-media/";
+
+    private final Context appContext;
+    // 读过的资源留在内存里；多个工作线程并发访问，由 files 自身加锁
+    private final Map<Integer, byte[]> files = new HashMap<>();
+
+    public LocalMediaServer(@NonNull Context context) throws IOException {
+        super(TAG);
+        this.appContext = context.getApplicationContext();
+    }
+
+    /**
+     * 把本地 raw 视频地址（android.resource://包名/资源 id）换成本服务端的 http 地址，其他原样返回。
+     */
+    @Nullable
+    public String toHttpUrl(@Nullable String videoUrl) {
+        if (videoUrl == null || !videoUrl.startsWith(RAW_URL_PREFIX)) return videoUrl;
+        String resId = videoUrl.substring(videoUrl.lastIndexOf('/') + 1);
+        for (int i = 0; i < resId.length(); i++) {
+            if (!Character.isDigit(resId.charAt(i))) return videoUrl;
+        }
+        return resId.isEmpty() ? videoUrl : getBaseUrl() + PATH_PREFIX + resId;
+    }
+
+    /**
+     * 视频磁盘缓存用的 key。本服务端的端口每次启动都由系统重新分配，按完整 url 做 key 的话
+     * 页面重建 / 进程重启后缓存全部失效、还会重复占空间，所以本服务端的地址只按资源 id 区分；
+     * 其他 url 原样返回。
+     */
+    @NonNull
+    static String cacheKeyFor(@NonNull String url) {
+        if (!url.startsWith(LOOPBACK_URL_PREFIX)) return url;
+        int path = url.indexOf('/', LOOPBACK_URL_PREFIX.length());
+        if (path < 0 || !url.startsWith(PATH_PREFIX, path)) return url;
+        return CACHE_KEY_PREFIX + url.substring(path + PATH_PREFIX.length());
+    }
+
+    @NonNull
+    @Override
+    protected Response handle(@NonNull Request request) throws IOException {
+        String path = request.getPath();
+        if (!"GET".equals(request.method) || path == null || !path.startsWith(PATH_PREFIX)) {
+            return Response.text(404, "not found");
+        }
+        int resId;
+        try {
+            resId = Integer.parseInt(path.substring(PATH_PREFIX.length()));
+        } catch (NumberFormatException e) {
+            return Response.text(404, "not found");
+        }
+        byte[] data;
+        synchronized (files) {
+            data = files.get(resId);
+            if (data == null) {
+                try {
+                    data = readRaw(resId);
+                } catch (Exception e) {
+                    Log.w(TAG, "read raw failed: " + resId, e);
+                    return Response.text(404, "not found");
+                }
+                files.put(resId, data);
+            }
+        }
+        return rangeResponse(data, "video/mp4", request.getHeader("Range"));
+    }
+
+    /**
+     * 按 Range 头切出响应：没有 Range → 200 整个文件；合法 → 206 + Content-Range；越界 → 416。
+     */
+    @NonNull
+    static Response rangeResponse(@NonNull byte[] data, @NonNull String contentType,
+                                  @Nullable String range) {
+        int length = data.length;
+        if (range == null || !range.startsWith("bytes=") || range.indexOf(',') >= 0) {
+            return new Response(200, contentType, data, "Accept-Ranges: bytes");
+        }
+        String spec = range.substring("bytes=".length()).trim();
+        int dash = spec.indexOf('-');
+        long start;
+        long end;
+        try {
+            if (dash < 0) throw new NumberFormatException(spec);
+            String first = spec.substring(0, dash).trim();
+            String last = spec.substring(dash + 1).trim();
+            if (first.isEmpty()) {
+                // bytes=-n：最后 n 个字节
+                long suffix = Long.parseLong(last);
+                if (suffix <= 0) return notSatisfiable(length);
+                start = Math.max(0, length - suffix);
+                end = length - 1;
+            } else {
+                start = Long.parseLong(first);
+                end = last.isEmpty() ? length - 1 : Math.min(Long.parseLong(last), length - 1);
+            }
+        } catch (NumberFormatException e) {
+            // 格式不对的 Range 按规范忽略
+            return new Response(200, contentType, data, "Accept-Ranges: bytes");
+        }
+        if (start >= length || start > end) {
+            return notSatisfiable(length);
+        }
+        byte[] body = Arrays.copyOfRange(data, (int) start, (int) end + 1);
+        return new Response(206, contentType, body,
+                "Accept-Ranges: bytes",
+                "Content-Range: bytes " + start + "-" + end + "/" + length);
+    }
+
+    private static Response notSatisfiable(int length) {
+        return new Response(416, "text/plain; charset=utf-8", new byte[0],
+                "Content-Range: bytes */" + length);
+    }
+
+    private byte[] readRaw(int resId) throws IOException {
+        try (InputStream in = appContext.getResources().openRawResource(resId)) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream(512 * 1024);
+            byte[] buffer = new byte[16 * 1024];
+            int n;
+            while ((n = in.read(buffer)) > 0) {
+                out.write(buffer, 0, n);
+            }
+            return out.toByteArray();
+        }
+    }
+}
@@ -0,0 +1,467 @@
+package com.example.feedapp.feed.player;
+
+import android.content.Context;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.example.feedapp.common.log.Logger;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 每个视频的播放进度（毫秒），按最近使用淘汰，最多 capacity 条，定期落盘，进程被杀后还能续播。
+ *
+ * 内存里是开放寻址 + 双向链表的 LRU，全部是基本类型数组，读写不装箱、不分配。
+ * 磁盘上是一张现成的哈希表，冷启动时只做内存映射，不整体反序列化：
+ * <pre>
+ * [int MAGIC][int VERSION][int bucketCount][int count]
+ * ([int keyHash][int recordOffset]) * bucketCount          recordOffset 为 0 表示空桶
+ * ([short keyLength][key UTF-8][long positionMs]) * count  最近使用的在前
+ * </pre>
+ * 内存里查不到的 key 才去映射的文件里按哈希探测，命中后搬进内存；没有绑定过的 key 永远不会被解码。
+ *
+ * 读写只在主线程；落盘在后台线程，先写临时文件再 rename 整体替换。
+ * 文件读写只用 java.io / java.nio，日志通过 {@link Logger} 注入，本地单元测试不依赖 Android 框架。
+ */
+public final class PlaybackPositionStore {
+
+    private static final String TAG = "PlaybackPositionStore";
+
+    /** {@link #get} 查不到时的返回值 */
+    public static final long NO_POSITION = -1L;
+
+    static final int DEFAULT_CAPACITY = 512;
+    private static final String FILE_NAME = "playback_positions.bin";
+
+    static final int MAGIC = 0x50504F53; // "PPOS"
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 16;
+    private static final int BUCKET_SIZE = 8;
+    private static final int NIL = -1;
+    /** key 的长度上限（字符），UTF-8 编码后保证放得进 short */
+    private static final int MAX_KEY_LENGTH = 1024;
+
+    private static volatile PlaybackPositionStore instance;
+
+    private final File file;
+    private final File tempFile;
+    private final Logger logger;
+    private final int capacity;
+
+    // LRU 表：槽位按下标存，链表从 head（最近）到 tail（最久）
+    private final String[] keys;
+    private final int[] hashes;
+    private final long[] positions;
+    private final int[] prev;
+    private final int[] next;
+    /** 桶里存 槽位 + 1，0 表示空 */
+    private final int[] buckets;
+    private final int bucketMask;
+    private int head = NIL;
+    private int tail = NIL;
+    private int size = 0;
+    /** 有上次落盘之后的修改 */
+    private boolean dirty = false;
+
+    // 上次落盘的文件，懒映射；后台写完新文件后通过 freshMapped 交给主线程换上
+    @Nullable
+    private ByteBuffer mapped;
+    private boolean mappedLoaded = false;
+    @Nullable
+    private volatile ByteBuffer freshMapped;
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "playback-position-store");
+        t.setPriority(Thread.MIN_PRIORITY);
+        return t;
+    });
+
+    /**
+     * 进程内共享：播放器实例随页面重建，进度和落盘线程不跟着重建，避免新实例读到还没写完的旧文件。
+     */
+    public static PlaybackPositionStore getInstance(Context context) {
+        if (instance == null) {
+            synchronized (PlaybackPositionStore.class) {
+                if (instance == null) {
+                    instance = new PlaybackPositionStore(
+                            new File(context.getApplicationContext().getFilesDir(), FILE_NAME),
+                            DEFAULT_CAPACITY, Logger.logcat(TAG));
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * @param capacity 最多记住多少个视频的进度，超出淘汰最久没用的
+     */
+    PlaybackPositionStore(@NonNull File file, int capacity, @NonNull Logger logger) {
+        this.file = file;
+        this.tempFile = new File(file.getPath() + ".tmp");
+        this.logger = logger;
+        this.capacity = Math.max(1, capacity);
+        keys = new String[this.capacity];
+        hashes = new int[this.capacity];
+        positions = new long[this.capacity];
+        prev = new int[this.capacity];
+        next = new int[this.capacity];
+        int bucketCount = tableSize(this.capacity);
+        buckets = new int[bucketCount];
+        bucketMask = bucketCount - 1;
+    }
+
+    /**
+     * @return 进度（毫秒），没有记录返回 {@link #NO_POSITION}
+     */
+    public long get(@NonNull String key) {
+        int hash = key.hashCode();
+        int slot = find(key, hash);
+        if (slot != NIL) {
+            moveToFront(slot);
+            return positions[slot];
+        }
+        long position = lookupFile(key, hash);
+        if (position != NO_POSITION) {
+            // 文件里已经有了，搬进内存不算修改
+            insert(key, hash, position);
+        }
+        return position;
+    }
+
+    public void put(@NonNull String key, long positionMs) {
+        if (key.length() > MAX_KEY_LENGTH) return;
+        int hash = key.hashCode();
+        int slot = find(key, hash);
+        if (slot != NIL) {
+            positions[slot] = positionMs;
+            moveToFront(slot);
+        } else {
+            insert(key, hash, positionMs);
+        }
+        dirty = true;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * 有修改时在后台写一份新文件；没有修改直接返回。
+     */
+    public void persist() {
+        if (!dirty || executor.isShutdown()) return;
+        Runnable write = prepareWrite();
+        executor.execute(write);
+    }
+
+    /** 同步落盘，测试用 */
+    void persistBlocking() {
+        if (!dirty) return;
+        prepareWrite().run();
+    }
+
+    /**
+     * 在主线程拷出最近使用顺序的快照，真正的合并和写文件交给返回的 Runnable。
+     */
+    private Runnable prepareWrite() {
+        ensureMapped();
+        String[] snapshotKeys = new String[size];
+        long[] snapshotPositions = new long[size];
+        int i = 0;
+        for (int slot = head; slot != NIL; slot = next[slot]) {
+            snapshotKeys[i] = keys[slot];
+            snapshotPositions[i] = positions[slot];
+            i++;
+        }
+        ByteBuffer previous = mapped;
+        dirty = false;
+        return () -> write(snapshotKeys, snapshotPositions, previous);
+    }
+
+    /**
+     * 内存里的条目在前，之后补上旧文件里还没被覆盖的条目，合计不超过 capacity。
+     */
+    private void write(String[] memoryKeys, long[] memoryPositions, @Nullable ByteBuffer previous) {
+        List<String> outKeys = new ArrayList<>(capacity);
+        List<Long> outPositions = new ArrayList<>(capacity);
+        Set<String> seen = new HashSet<>();
+        for (int i = 0; i < memoryKeys.length && outKeys.size() < capacity; i++) {
+            seen.add(memoryKeys[i]);
+            outKeys.add(memoryKeys[i]);
+            outPositions.add(memoryPositions[i]);
+        }
+        if (previous != null) {
+            try {
+                int bucketCount = previous.getInt(8);
+                int count = previous.getInt(12);
+                int offset = HEADER_SIZE + bucketCount * BUCKET_SIZE;
+                for (int i = 0; i < count && outKeys.size() < capacity; i++) {
+                    int keyLength = previous.getShort(offset);
+                    byte[] keyBytes = new byte[keyLength];
+                    for (int j = 0; j < keyLength; j++) {
+                        keyBytes[j] = previous.get(offset + 2 + j);
+                    }
+                    String key = new String(keyBytes, StandardCharsets.UTF_8);
+                    long position = previous.getLong(offset + 2 + keyLength);
+                    offset += 2 + keyLength + 8;
+                    if (seen.add(key)) {
+                        outKeys.add(key);
+                        outPositions.add(position);
+                    }
+                }
+            } catch (IndexOutOfBoundsException | NegativeArraySizeException e) {
+                logger.warn("previous file broken, keep what was read", e);
+            }
+        }
+
+        byte[] encoded = encode(outKeys, outPositions);
+        try (FileOutputStream out = new FileOutputStream(tempFile)) {
+            out.write(encoded);
+            // 先落到磁盘再 rename，断电时要么是旧文件要么是完整的新文件
+            out.getFD().sync();
+        } catch (IOException e) {
+            logger.warn("persist failed", e);
+            tempFile.delete();
+            return;
+        }
+        if (!tempFile.renameTo(file)) {
+            logger.warn("rename failed: " + tempFile.getName(), null);
+            tempFile.delete();
+            return;
+        }
+        freshMapped = map(file, logger);
+    }
+
+    static byte[] encode(List<String> keys, List<Long> positions) {
+        int count = keys.size();
+        int bucketCount = tableSize(count);
+        int mask = bucketCount - 1;
+        byte[][] keyBytes = new byte[count][];
+        int recordsSize = 0;
+        for (int i = 0; i < count; i++) {
+            keyBytes[i] = keys.get(i).getBytes(StandardCharsets.UTF_8);
+            recordsSize += 2 + keyBytes[i].length + 8;
+        }
+        int recordsStart = HEADER_SIZE + bucketCount * BUCKET_SIZE;
+        ByteBuffer out = ByteBuffer.allocate(recordsStart + recordsSize);
+        out.putInt(MAGIC).putInt(VERSION).putInt(bucketCount).putInt(count);
+
+        int offset = recordsStart;
+        for (int i = 0; i < count; i++) {
+            int hash = keys.get(i).hashCode();
+            int b = mix(hash) & mask;
+            while (out.getInt(HEADER_SIZE + b * BUCKET_SIZE + 4) != 0) {
+                b = (b + 1) & mask;
+            }
+            out.putInt(HEADER_SIZE + b * BUCKET_SIZE, hash);
+            out.putInt(HEADER_SIZE + b * BUCKET_SIZE + 4, offset);
+
+            out.position(offset);
+            out.putShort((short) keyBytes[i].length);
+            out.put(keyBytes[i]);
+            out.putLong(positions.get(i));
+            offset = out.position();
+        }
+        return out.array();
+    }
+
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    // ---- 映射文件 ----
+
+    private void ensureMapped() {
+        ByteBuffer fresh = freshMapped;
+        if (fresh != null) {
+            freshMapped = null;
+            mapped = fresh;
+            mappedLoaded = true;
+            return;
+        }
+        if (!mappedLoaded) {
+            mappedLoaded = true;
+            mapped = map(file, logger);
+        }
+    }
+
+    private long lookupFile(String key, int hash) {
+        ensureMapped();
+        ByteBuffer buffer = mapped;
+        if (buffer == null) return NO_POSITION;
+        try {
+            int bucketCount = buffer.getInt(8);
+            int mask = bucketCount - 1;
+            int b = mix(hash) & mask;
+            for (int probe = 0; probe < bucketCount; probe++) {
+                int at = HEADER_SIZE + b * BUCKET_SIZE;
+                int offset = buffer.getInt(at + 4);
+                if (offset == 0) return NO_POSITION;
+                if (buffer.getInt(at) == hash && keyEquals(buffer, offset, key)) {
+                    return buffer.getLong(offset + 2 + buffer.getShort(offset));
+                }
+                b = (b + 1) & mask;
+            }
+        } catch (IndexOutOfBoundsException | NegativeArraySizeException e) {
+            logger.warn("broken position file, ignore", e);
+            mapped = null;
+        }
+        return NO_POSITION;
+    }
+
+    /**
+     * 逐字节比较，ASCII（item id 的常见情况）不需要解码；遇到非 ASCII 才退回解码比较。
+     */
+    private static boolean keyEquals(ByteBuffer buffer, int offset, String key) {
+        int length = buffer.getShort(offset);
+        int start = offset + 2;
+        for (int i = 0, n = key.length(); i < n; i++) {
+            if (key.charAt(i) >= 0x80) {
+                byte[] bytes = new byte[length];
+                for (int j = 0; j < length; j++) {
+                    bytes[j] = buffer.get(start + j);
+                }
+                return new String(bytes, StandardCharsets.UTF_8).equals(key);
+            }
+        }
+        if (key.length() != length) return false;
+        for (int i = 0; i < length; i++) {
+            if (buffer.get(start + i) != (byte) key.charAt(i)) return false;
+        }
+        return true;
+    }
+
+    @Nullable
+    private static ByteBuffer map(File file, Logger logger) {
+        if (file.length() < HEADER_SIZE) return null;
+        // 映射在 channel 关闭后依然有效；之后覆盖写走的是 rename，不会改到已映射的旧文件
+        try (FileChannel channel = new RandomAccessFile(file, "r").getChannel()) {
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            int bucketCount = buffer.getInt(8);
+            if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION
+                    || bucketCount <= 0 || Integer.bitCount(bucketCount) != 1
+                    || HEADER_SIZE + (long) bucketCount * BUCKET_SIZE > buffer.limit()) {
+                logger.warn("unknown position file header, ignore", null);
+                return null;
+            }
+            return buffer;
+        } catch (IOException e) {
+            logger.warn("map failed: " + file.getName(), e);
+            return null;
+        }
+    }
+
+    // ---- 内存 LRU 表 ----
+
+    private int find(String key, int hash) {
+        int b = mix(hash) & bucketMask;
+        while (true) {
+            int entry = buckets[b];
+            if (entry == 0) return NIL;
+            int slot = entry - 1;
+            if (hashes[slot] == hash && key.equals(keys[slot])) return slot;
+            b = (b + 1) & bucketMask;
+        }
+    }
+
+    private void insert(String key, int hash, long position) {
+        int slot;
+        if (size < capacity) {
+            slot = size++;
+        } else {
+            // 满了淘汰最久没用的
+            slot = tail;
+            removeBucket(slot);
+            unlink(slot);
+        }
+        keys[slot] = key;
+        hashes[slot] = hash;
+        positions[slot] = position;
+
+        int b = mix(hash) & bucketMask;
+        while (buckets[b] != 0) {
+            b = (b + 1) & bucketMask;
+        }
+        buckets[b] = slot + 1;
+        linkFront(slot);
+    }
+
+    /**
+     * 线性探测下的删除：把后面探测链上的项往前挪，填上空洞，不需要墓碑。
+     */
+    private void removeBucket(int slot) {
+        int hole = mix(hashes[slot]) & bucketMask;
+        while (buckets[hole] != slot + 1) {
+            hole = (hole + 1) & bucketMask;
+        }
+        int i = (hole + 1) & bucketMask;
+        while (buckets[i] != 0) {
+            int home = mix(hashes[buckets[i] - 1]) & bucketMask;
+            // home 不在 (hole, i] 之间时，这一项可以挪到空洞里
+            if (((i - home) & bucketMask) >= ((i - hole) & bucketMask)) {
+                buckets[hole] = buckets[i];
+                hole = i;
+            }
+            i = (i + 1) & bucketMask;
+        }
+        buckets[hole] = 0;
+    }
+
+    private void moveToFront(int slot) {
+        if (slot == head) return;
+        unlink(slot);
+        linkFront(slot);
+    }
+
+    private void linkFront(int slot) {
+        prev[slot] = NIL;
+        next[slot] = head;
+        if (head != NIL) {
+            prev[head] = slot;
+        }
+        head = slot;
+        if (tail == NIL) {
+            tail = slot;
+        }
+    }
+
+    private void unlink(int slot) {
+        int p = prev[slot];
+        int n = next[slot];
+        if (p != NIL) {
+            next[p] = n;
+        } else {
+            head = n;
+        }
+        if (n != NIL) {
+            prev[n] = p;
+        } else {
+            tail = p;
+        }
+    }
+
+    /** 不小于 2 * count 的 2 的幂，装载因子不超过 0.5 */
+    private static int tableSize(int count) {
+        return Integer.highestOneBit(Math.max(2, count) * 2 - 1) << 1;
+    }
+
+    private static int mix(int h) {
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        return h;
+    }
+}
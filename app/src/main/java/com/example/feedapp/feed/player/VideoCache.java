@@ -0,0 +1,266 @@
+package com.example.feedapp.feed.player;
+
+import android.content.Context;
+import android.net.Uri;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.OptIn;
+import androidx.media3.common.C;
+import androidx.media3.common.util.UnstableApi;
+import androidx.media3.database.StandaloneDatabaseProvider;
+import androidx.media3.datasource.DataSource;
+import androidx.media3.datasource.DataSpec;
+import androidx.media3.datasource.DefaultDataSource;
+import androidx.media3.datasource.DefaultHttpDataSource;
+import androidx.media3.datasource.TransferListener;
+import androidx.media3.datasource.cache.CacheDataSource;
+import androidx.media3.datasource.cache.CacheKeyFactory;
+import androidx.media3.datasource.cache.ContentMetadata;
+import androidx.media3.datasource.cache.LeastRecentlyUsedCacheEvictor;
+import androidx.media3.datasource.cache.SimpleCache;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 视频的磁盘缓存：进程内唯一的 SimpleCache，按 LRU 淘汰，总量不超过 {@link #MAX_CACHE_BYTES}。
+ *
+ * - {@link #getDataSourceFactory()} 给播放器用：http(s) 视频先读缓存、没有再走网络并顺手写入缓存；
+ *   本地资源（android.resource 等）直接读，不进缓存。
+ * - {@link #createPrefetchDataSource()} 给 {@link VideoPrefetcher} 用，预取的流量不计入命中统计。
+ *
+ * 命中 / 未命中按字节计数：播放时从缓存读出的算命中，从网络读的算未命中。
+ * 缓存 key 由 {@link LocalMediaServer#cacheKeyFor} 生成，本机替身服务端换了端口也能命中。
+ */
+@OptIn(markerClass = UnstableApi.class)
+public final class VideoCache {
+
+    private static final String CACHE_DIR = "video_cache";
+    /** 缓存上限 256MB，超出按最近最少使用淘汰 */
+    private static final long MAX_CACHE_BYTES = 256L * 1024 * 1024;
+
+    private static volatile VideoCache instance;
+
+    /**
+     * 统计数据的快照。
+     */
+    public static final class Stats {
+        /** 播放时从磁盘缓存读到的字节数 */
+        public final long hitBytes;
+        /** 播放时从网络读到的字节数 */
+        public final long missBytes;
+        /** 预取写入缓存的字节数 */
+        public final long prefetchedBytes;
+        /** 完成的预取次数 / 因已缓存跳过的预取次数 */
+        public final long prefetchCount;
+        public final long prefetchSkipped;
+        /** 缓存当前占用的磁盘空间 */
+        public final long cacheBytes;
+
+        Stats(long hitBytes, long missBytes, long prefetchedBytes,
+              long prefetchCount, long prefetchSkipped, long cacheBytes) {
+            this.hitBytes = hitBytes;
+            this.missBytes = missBytes;
+            this.prefetchedBytes = prefetchedBytes;
+            this.prefetchCount = prefetchCount;
+            this.prefetchSkipped = prefetchSkipped;
+            this.cacheBytes = cacheBytes;
+        }
+
+        /** 字节命中率，0～1；还没有播放过网络视频时为 0 */
+        public float getHitRate() {
+            long total = hitBytes + missBytes;
+            return total == 0 ? 0f : hitBytes / (float) total;
+        }
+
+        @NonNull
+        @Override
+        public String toString() {
+            return "hit=" + hitBytes / 1024 + "KB miss=" + missBytes / 1024 + "KB"
+                    + " hitRate=" + Math.round(getHitRate() * 100) + "%"
+                    + " prefetched=" + prefetchedBytes / 1024 + "KB(" + prefetchCount
+                    + ", skipped " + prefetchSkipped + ")"
+                    + " size=" + cacheBytes / 1024 + "KB";
+        }
+    }
+
+    private final SimpleCache cache;
+    private final DataSource.Factory playbackFactory;
+    private final CacheDataSource.Factory prefetchFactory;
+
+    private static final CacheKeyFactory CACHE_KEY_FACTORY = dataSpec ->
+            dataSpec.key != null ? dataSpec.key : LocalMediaServer.cacheKeyFor(dataSpec.uri.toString());
+
+    private final AtomicLong hitBytes = new AtomicLong();
+    private final AtomicLong missBytes = new AtomicLong();
+    final AtomicLong prefetchedBytes = new AtomicLong();
+    final AtomicLong prefetchCount = new AtomicLong();
+    final AtomicLong prefetchSkipped = new AtomicLong();
+
+    private VideoCache(Context context) {
+        Context appCtx = context.getApplicationContext();
+        cache = new SimpleCache(new File(appCtx.getCacheDir(), CACHE_DIR),
+                new LeastRecentlyUsedCacheEvictor(MAX_CACHE_BYTES),
+                new StandaloneDatabaseProvider(appCtx));
+
+        // 只统计网络上实际读到的字节，本地资源的读取 isNetwork 为 false
+        TransferListener missCounter = new TransferListener() {
+            @Override
+            public void onTransferInitializing(@NonNull DataSource source, @NonNull DataSpec dataSpec,
+                                               boolean isNetwork) {
+            }
+
+            @Override
+            public void onTransferStart(@NonNull DataSource source, @NonNull DataSpec dataSpec,
+                                        boolean isNetwork) {
+            }
+
+            @Override
+            public void onBytesTransferred(@NonNull DataSource source, @NonNull DataSpec dataSpec,
+                                           boolean isNetwork, int bytesTransferred) {
+                if (isNetwork) {
+                    missBytes.addAndGet(bytesTransferred);
+                }
+            }
+
+            @Override
+            public void onTransferEnd(@NonNull DataSource source, @NonNull DataSpec dataSpec,
+                                      boolean isNetwork) {
+            }
+        };
+        DefaultHttpDataSource.Factory httpFactory = new DefaultHttpDataSource.Factory()
+                .setAllowCrossProtocolRedirects(true);
+        DefaultDataSource.Factory upstream = new DefaultDataSource.Factory(appCtx, httpFactory)
+                .setTransferListener(missCounter);
+
+        CacheDataSource.Factory cachedFactory = new CacheDataSource.Factory()
+                .setCache(cache)
+                .setCacheKeyFactory(CACHE_KEY_FACTORY)
+                .setUpstreamDataSourceFactory(upstream)
+                // 缓存读写出错时直接走网络，不让播放失败
+                .setFlags(CacheDataSource.FLAG_IGNORE_CACHE_ON_ERROR)
+                .setEventListener(new CacheDataSource.EventListener() {
+                    @Override
+                    public void onCachedBytesRead(long cacheSizeBytes, long cachedBytesRead) {
+                        hitBytes.addAndGet(cachedBytesRead);
+                    }
+
+                    @Override
+                    public void onCacheIgnored(int reason) {
+                    }
+                });
+        DefaultDataSource.Factory localFactory = new DefaultDataSource.Factory(appCtx);
+        playbackFactory = () -> new SchemeRoutingDataSource(
+                cachedFactory.createDataSource(), localFactory.createDataSource());
+
+        prefetchFactory = new CacheDataSource.Factory()
+                .setCache(cache)
+                .setCacheKeyFactory(CACHE_KEY_FACTORY)
+                .setUpstreamDataSourceFactory(new DefaultDataSource.Factory(appCtx, httpFactory));
+    }
+
+    public static VideoCache getInstance(Context context) {
+        if (instance == null) {
+            synchronized (VideoCache.class) {
+                if (instance == null) {
+                    instance = new VideoCache(context);
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * 播放器用的数据源工厂（交给 DefaultMediaSourceFactory）。
+     */
+    @NonNull
+    public DataSource.Factory getDataSourceFactory() {
+        return playbackFactory;
+    }
+
+    @NonNull
+    CacheDataSource createPrefetchDataSource() {
+        return prefetchFactory.createDataSourceForDownloading();
+    }
+
+    /** 从 position 开始的 length 字节（不超过文件末尾）是否已经全部在缓存里 */
+    boolean isCached(@NonNull String url, long position, long length) {
+        String key = LocalMediaServer.cacheKeyFor(url);
+        long contentLength = ContentMetadata.getContentLength(cache.getContentMetadata(key));
+        if (contentLength != C.LENGTH_UNSET) {
+            length = Math.min(length, contentLength - position);
+            if (length <= 0) return true;
+        }
+        return cache.isCached(key, position, length);
+    }
+
+    @NonNull
+    public Stats getStats() {
+        return new Stats(hitBytes.get(), missBytes.get(), prefetchedBytes.get(),
+                prefetchCount.get(), prefetchSkipped.get(), cache.getCacheSpace());
+    }
+
+    static boolean isCacheable(@Nullable String url) {
+        return url != null && (url.startsWith("http://") || url.startsWith("https://"));
+    }
+
+    /**
+     * 按 url 的 scheme 选数据源：http(s) 走缓存，其他直接读。
+     * DefaultMediaSourceFactory 只接受一个工厂，所以在 open 时再分流。
+     */
+    private static final class SchemeRoutingDataSource implements DataSource {
+        private final DataSource cached;
+        private final DataSource local;
+        @Nullable
+        private DataSource opened;
+
+        SchemeRoutingDataSource(DataSource cached, DataSource local) {
+            this.cached = cached;
+            this.local = local;
+        }
+
+        @Override
+        public void addTransferListener(@NonNull TransferListener transferListener) {
+            cached.addTransferListener(transferListener);
+            local.addTransferListener(transferListener);
+        }
+
+        @Override
+        public long open(@NonNull DataSpec dataSpec) throws IOException {
+            opened = isCacheable(dataSpec.uri.toString()) ? cached : local;
+            return opened.open(dataSpec);
+        }
+
+        @Override
+        public int read(@NonNull byte[] buffer, int offset, int length) throws IOException {
+            if (opened == null) throw new IOException("read before open");
+            return opened.read(buffer, offset, length);
+        }
+
+        @Nullable
+        @Override
+        public Uri getUri() {
+            return opened == null ? null : opened.getUri();
+        }
+
+        @NonNull
+        @Override
+        public Map<String, List<String>> getResponseHeaders() {
+            return opened == null ? Collections.emptyMap() : opened.getResponseHeaders();
+        }
+
+        @Override
+        public void close() throws IOException {
+            DataSource source = opened;
+            opened = null;
+            if (source != null) {
+                source.close();
+            }
+        }
+    }
+}
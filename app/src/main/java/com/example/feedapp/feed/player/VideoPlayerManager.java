@@ -1,72 +1,157 @@
 package com.example.feedapp.feed.player;
 
+import android.content.ComponentCallbacks2;
 import android.content.Context;
+import android.content.res.Configuration;
 import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
 import android.view.View;
-import android.view.ViewGroup;
-
-import java.util.Map;
-import java.util.HashMap;
 
+import androidx.annotation.NonNull;
 import androidx.annotation.OptIn;
 import androidx.media3.common.MediaItem;
 import androidx.media3.common.Player;
 import androidx.media3.common.util.UnstableApi;
 import androidx.media3.datasource.RawResourceDataSource;
+import androidx.media3.exoplayer.DefaultLoadControl;
 import androidx.media3.exoplayer.ExoPlayer;
-import androidx.media3.ui.AspectRatioFrameLayout;
+import androidx.media3.exoplayer.source.DefaultMediaSourceFactory;
 import androidx.media3.ui.PlayerView;
 
 import com.example.feedapp.feed.ui.adapter.FeedAdapter;
 
+/**
+ * 列表视频播放：每张视频卡片自带的 PlayerView（渲染 surface）+ 一个小的 ExoPlayer 池。
+ *
+ * 当前播放的视频占一个 player，其余的用来提前 prepare 滚动方向上的下一个视频（{@link #prefetch}），
+ * 轮到它播放时把这个已经缓冲好的 player 绑到目标卡片的 PlayerView 上，不用等解码器初始化和首段数据。
+ * 卡片的 surface 随卡片常驻，切换视频只改绑 player 的视频输出，不增删 View、不触发布局；
+ * 封面一直盖着，直到新 surface 上真正渲染出第一帧才隐藏，不会闪黑。
+ * “surface 上已有画面”按卡片单独记录：surface 被销毁（卡片移出窗口、退到后台）或换了内容就作废，
+ * 卡片移出窗口 / 被回收时由 {@link #unbindView} 解绑 player。
+ * 每个 prepare 过的 player 都占着一个解码器和一段缓冲，所以池子有上限，闲置太久或内存紧张时释放。
+ * 只在主线程使用。
+ */
 @OptIn(markerClass = UnstableApi.class)
 public class VideoPlayerManager {
 
     private static volatile VideoPlayerManager instance;
 
-    private final ExoPlayer player;
-    private final PlayerView playerView;
+    /** 最多同时存在的 player 数：1 个在播 + 2 个预缓冲，硬件解码器实例数有限，不宜再多 */
+    private static final int MAX_PLAYERS = 3;
+    /** 预缓冲的 player 这么久没被用上就释放，归还解码器和缓冲内存 */
+    private static final long IDLE_RELEASE_MS = 15_000L;
+    /** 进度有变化后最晚多久落盘一次 */
+    private static final long PERSIST_POSITIONS_DELAY_MS = 10_000L;
+
+    // 预缓冲只需要够起播的数据，缓冲上限也比默认小，几个 player 同时存在时内存可控
+    private static final int MIN_BUFFER_MS = 2_500;
+    private static final int MAX_BUFFER_MS = 15_000;
+    private static final int BUFFER_FOR_PLAYBACK_MS = 500;
+    private static final int BUFFER_FOR_PLAYBACK_AFTER_REBUFFER_MS = 1_000;
+
+    /**
+     * 池里的一个 player，以及它当前 prepare 的视频。
+     */
+    private final class PooledPlayer {
+        final ExoPlayer player;
+        /** 已 setMediaItem 的 url，null 表示空闲 */
+        String videoUrl;
+        /** 播放进度属于哪个 item；同一个 url 可能被多个 item 使用 */
+        String itemKey;
+        long lastUsedMillis;
+
+        PooledPlayer(ExoPlayer player) {
+            this.player = player;
+            player.addListener(new Player.Listener() {
+                @Override
+                public void onRenderedFirstFrame() {
+                    // 第一帧已经画到当前卡片的 surface 上，这时再撤掉封面
+                    if (active != PooledPlayer.this || currentViewHolder == null
+                            || currentViewHolder.playerView.getPlayer() != PooledPlayer.this.player) {
+                        return;
+                    }
+                    framedViewHolder = currentViewHolder;
+                    framedPlayer = PooledPlayer.this;
+                    if (PooledPlayer.this.player.getPlayWhenReady()) {
+                        hideCover(currentViewHolder);
+                    }
+                }
+
+                @Override
+                public void onSurfaceSizeChanged(int width, int height) {
+                    // 0x0 表示输出 surface 被拿掉或销毁了，上面的画面不再可信
+                    if (width == 0 && height == 0 && framedPlayer == PooledPlayer.this) {
+                        clearFrame();
+                    }
+                }
+
+                @Override
+                public void onIsPlayingChanged(boolean isPlaying) {
+                    // 根据是否在播放，控制进度条显隐
+                    if (active != PooledPlayer.this || currentViewHolder == null) return;
+                    if (isPlaying) {
+                        currentViewHolder.playerView.hideController();
+                    } else {
+                        currentViewHolder.playerView.showController();
+                    }
+                }
+            });
+        }
+    }
+
+    private final Context appContext;
+    private final PooledPlayer[] pool = new PooledPlayer[MAX_PLAYERS];
+    private int poolSize = 0;
+    /** 当前播放（或暂停中）的 player，绑在 currentViewHolder 的 PlayerView 上 */
+    private PooledPlayer active;
+
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Runnable idleReleaseRunnable = this::releaseIdlePlayers;
+    // 内存紧张时先放掉预缓冲的 player
+    private final ComponentCallbacks2 memoryCallbacks = new ComponentCallbacks2() {
+        @Override
+        public void onTrimMemory(int level) {
+            if (level >= TRIM_MEMORY_RUNNING_LOW) {
+                handler.post(() -> trimIdlePlayers(0L));
+            }
+        }
 
-    // 当前绑定的 ViewHolder 和视频 url
+        @Override
+        public void onLowMemory() {
+            handler.post(() -> trimIdlePlayers(0L));
+        }
+
+        @Override
+        public void onConfigurationChanged(@NonNull Configuration newConfig) {
+        }
+    };
+
+    // 当前绑定 player 的 ViewHolder
     private FeedAdapter.VideoVH currentViewHolder;
-    private String currentVideoUrl;
+    // 自上次接上 surface 以来真正渲染过一帧的卡片和 player，封面可以直接撤掉；null 表示要等第一帧
+    private FeedAdapter.VideoVH framedViewHolder;
+    private PooledPlayer framedPlayer;
     // 用来区分每一条 FeedItem，例如用 item.id 转成字符串
     private String currentItemKey;
-    // 记录每个 item 的上次播放进度
-    private final Map<String, Long> positionStore = new HashMap<>();
+    // 记录每个 item 的上次播放进度：有上限的 LRU，定期落盘，冷启动后也能续播
+    private final PlaybackPositionStore positionStore;
+    private final Runnable persistRunnable = () -> {
+        persistScheduled = false;
+        positionStore.persist();
+    };
+    private boolean persistScheduled = false;
 
     private VideoPlayerManager(Context context) {
 
-        Context appCtx = context.getApplicationContext();
-        player = new ExoPlayer.Builder(appCtx).build();
-
-        playerView = new PlayerView(appCtx);
-        playerView.setResizeMode(AspectRatioFrameLayout.RESIZE_MODE_FIT);
-        playerView.setUseController(true);
-        // 让控制条不要自动消失，由用户控制显示/隐藏
-        playerView.setControllerShowTimeoutMs(0);
-        playerView.setPlayer(player);
-
-        // 根据是否在播放，控制进度条显隐
-        player.addListener(new Player.Listener() {
-            @Override
-            public void onPlaybackStateChanged(int state) {
-                if (state == Player.STATE_READY && player.getPlayWhenReady() && currentViewHolder != null) {
-                    currentViewHolder.ivCover.setVisibility(View.INVISIBLE);
-                    currentViewHolder.ivPlayButton.setVisibility(View.INVISIBLE);
-                    playerView.hideController();
-                }
-            }
+        appContext = context.getApplicationContext();
+        positionStore = PlaybackPositionStore.getInstance(appContext);
 
-            @Override
-            public void onIsPlayingChanged(boolean isPlaying) {
-                if (isPlaying) {
-                    playerView.hideController();
-                } else {
-                    playerView.showController();
-                }
-            }
-        });
+        active = obtainPlayer(null);
+
+        appContext.registerComponentCallbacks(memoryCallbacks);
     }
 
     public FeedAdapter.VideoVH getCurrentViewHolder() {
@@ -86,82 +171,116 @@ public class VideoPlayerManager {
 
     /**
      * 播放指定 ViewHolder 上的视频。
-     * 同一个 videoUrl 再次调用时，不会重置进度，只会接续播放。
+     * 同一个 item 再次调用时，不会重置进度，只会接续播放；
+     * 已经通过 {@link #prefetch} 预缓冲过的视频直接换上对应的 player，几乎立刻出首帧。
+     * player 按 (url, item) 匹配：同一个 url 的另一个 item 用另一个 player，不去 seek 正在播的那个。
      */
     public void play(FeedAdapter.VideoVH vh, String itemKey, String videoUrl) {
         if (vh == null || videoUrl == null || itemKey == null) return;
 
         // 保存上一个 item 的进度
-        if (currentItemKey != null) {
-            long pos = player.getCurrentPosition();
-            positionStore.put(currentItemKey, pos);
-        }
-
-        boolean sameUrl = videoUrl.equals(currentVideoUrl);
-        boolean sameItem = itemKey.equals(currentItemKey);
-
-        // 移动 PlayerView
-        attachPlayerViewTo(vh);
+        saveCurrentPosition();
 
         currentItemKey = itemKey;
 
-        if (!sameUrl) {
-            // 完全不同视频
-            currentVideoUrl = videoUrl;
-
-            MediaItem mediaItem;
-            if (videoUrl.startsWith("rawresource://")) {
-                try {
-                    int resId = Integer.parseInt(
-                            videoUrl.substring("rawresource://".length())
-                    );
-                    Uri uri = RawResourceDataSource.buildRawResourceUri(resId);
-                    mediaItem = new MediaItem.Builder().setUri(uri).build();
-                } catch (Exception e) {
-                    mediaItem = MediaItem.fromUri(Uri.parse(videoUrl));
-                }
-            } else {
-                mediaItem = MediaItem.fromUri(Uri.parse(videoUrl));
-            }
-
-            player.setMediaItem(mediaItem);
-            player.prepare();
+        PooledPlayer target = findPlayer(videoUrl, itemKey);
+        if (target == null) {
+            // 没有预缓冲：优先用空闲的 player，当前的留给用户可能滑回去时复用
+            target = active.videoUrl == null ? active : obtainPlayer(active);
+            prepare(target, videoUrl);
         }
-
-        // 根据 itemKey 决定续播位置
-        Long savedPos = positionStore.get(itemKey);
-        if (savedPos != null) {
-            player.seekTo(savedPos);
-        } else {
-            // new item
-            player.seekTo(0);
+        if (target != active) {
+            active.player.setPlayWhenReady(false);
+            active.lastUsedMillis = SystemClock.uptimeMillis();
+            active = target;
+        }
+        // 新 prepare 的 player 还没有 item，需要 seek 到它的进度；已匹配上的保持已缓冲的位置
+        boolean sameItem = itemKey.equals(target.itemKey);
+        // 这张卡片的 surface 自接上以来已经渲染过这个 player、这个 item 的画面时，才能直接撤封面
+        boolean frameOnSurface = sameItem && framedViewHolder == vh && framedPlayer == target;
+        bindSurface(vh, target, frameOnSurface);
+        if (!sameItem) {
+            seekToSavedPosition(target, itemKey);
         }
 
         // 播放
-        player.setPlayWhenReady(true);
+        target.player.setPlayWhenReady(true);
+        target.lastUsedMillis = SystemClock.uptimeMillis();
 
-        vh.ivCover.setVisibility(View.INVISIBLE);
-        vh.ivPlayButton.setVisibility(View.INVISIBLE);
+        if (frameOnSurface) {
+            hideCover(vh);
+        } else {
+            // 封面先盖着，等 onRenderedFirstFrame；只藏播放按钮表示已经开始加载
+            vh.ivCover.setVisibility(View.VISIBLE);
+            vh.ivPlayButton.setVisibility(View.INVISIBLE);
+        }
+        scheduleIdleRelease();
     }
 
     /**
-     * 把全局唯一的 PlayerView 移动到当前 ViewHolder 的容器。
+     * 提前 prepare 下一个很可能要播的视频（只缓冲不播放），之后 {@link #play} 同一个 item 时直接切换。
+     * 池满时顶掉最久没用的预缓冲 player，不会动当前播放的那个；
+     * 当前 player 放的是同一个 url 的另一个 item 时不算预缓冲过，另起一个 player。
      */
-    private void attachPlayerViewTo(FeedAdapter.VideoVH vh) {
-        // 从旧容器卸载
-        if (playerView.getParent() != null) {
-            ((ViewGroup) playerView.getParent()).removeView(playerView);
+    public void prefetch(String itemKey, String videoUrl) {
+        if (videoUrl == null || itemKey == null) return;
+        PooledPlayer existing = findPlayer(videoUrl, itemKey);
+        if (existing != null) {
+            existing.lastUsedMillis = SystemClock.uptimeMillis();
+            return;
         }
+        PooledPlayer target = obtainPlayer(active);
+        if (target == active) return; // 池子只有一个位置时不抢当前播放
+        prepare(target, videoUrl);
+        seekToSavedPosition(target, itemKey);
+        target.player.setPlayWhenReady(false);
+        scheduleIdleRelease();
+    }
 
-        // 挂到新容器
-        vh.playerContainer.removeAllViews();
-        vh.playerContainer.addView(playerView,
-                new ViewGroup.LayoutParams(
-                        ViewGroup.LayoutParams.MATCH_PARENT,
-                        ViewGroup.LayoutParams.MATCH_PARENT
-                ));
-
+    /**
+     * 把 player 的视频输出改绑到 vh 自己的 PlayerView 上：只换 surface，不增删 View。
+     * 控制条只在当前卡片上打开，其他卡片的点击仍由卡片自己处理。
+     *
+     * @param keepFrame surface 上已有 target 的画面，已接着时不用重新接
+     */
+    private void bindSurface(FeedAdapter.VideoVH vh, PooledPlayer target, boolean keepFrame) {
+        FeedAdapter.VideoVH old = currentViewHolder;
+        if (old != null && old != vh) {
+            unbindSurface(old);
+        }
         currentViewHolder = vh;
+
+        PlayerView view = vh.playerView;
+        view.setUseController(true);
+        if (view.getPlayer() == target.player) {
+            if (keepFrame) return;
+            // 接着但画面不可信（surface 重建过或要换进度）：重新接一次输出，保证会再回调 onRenderedFirstFrame
+            view.setPlayer(null);
+        }
+        if (framedViewHolder == vh) {
+            clearFrame();
+        }
+        // setPlayer 会先把之前那个 player 从这个 surface 上解绑
+        view.setPlayer(target.player);
+    }
+
+    private void unbindSurface(FeedAdapter.VideoVH vh) {
+        if (framedViewHolder == vh) {
+            clearFrame();
+        }
+        vh.playerView.setUseController(false);
+        vh.playerView.setPlayer(null);
+    }
+
+    private void clearFrame() {
+        framedViewHolder = null;
+        framedPlayer = null;
+    }
+
+    private static void hideCover(FeedAdapter.VideoVH vh) {
+        vh.ivCover.setVisibility(View.INVISIBLE);
+        vh.ivPlayButton.setVisibility(View.INVISIBLE);
+        vh.playerView.hideController();
     }
 
     /**
@@ -170,12 +289,10 @@ public class VideoPlayerManager {
      */
     public void stop() {
         // 先记一下当前位置
-        if (currentItemKey != null) {
-            long pos = player.getCurrentPosition();
-            positionStore.put(currentItemKey, pos);
-        }
+        saveCurrentPosition();
 
-        player.setPlayWhenReady(false);
+        active.player.setPlayWhenReady(false);
+        active.lastUsedMillis = SystemClock.uptimeMillis();
 
         if (currentViewHolder != null) {
             currentViewHolder.ivCover.setVisibility(View.VISIBLE);
@@ -183,13 +300,182 @@ public class VideoPlayerManager {
         }
     }
 
+    /**
+     * 卡片移出窗口或被回收时调用：解绑它的 surface，恢复封面。是当前播放的卡片时先记进度并暂停，
+     * 下次 {@link #play} 到这张卡片会重新接上 surface、等第一帧再撤封面。
+     */
+    public void unbindView(FeedAdapter.VideoVH vh) {
+        if (vh == null) return;
+        if (vh == currentViewHolder) {
+            if (active != null) {
+                saveCurrentPosition();
+                active.player.setPlayWhenReady(false);
+                active.lastUsedMillis = SystemClock.uptimeMillis();
+            }
+            currentViewHolder = null;
+        }
+        unbindSurface(vh);
+        vh.ivCover.setVisibility(View.VISIBLE);
+        vh.ivPlayButton.setVisibility(View.VISIBLE);
+    }
+
+    /**
+     * 立即把播放进度落盘（后台线程写），退到后台时调用；平时有变化后 10 秒内也会自动落盘。
+     */
+    public void persistPositions() {
+        handler.removeCallbacks(persistRunnable);
+        persistScheduled = false;
+        positionStore.persist();
+    }
+
+    /**
+     * 释放所有没在播放、且闲置超过 {@link #IDLE_RELEASE_MS} 的 player。
+     */
+    public void releaseIdlePlayers() {
+        trimIdlePlayers(IDLE_RELEASE_MS);
+    }
 
     public void release() {
-        currentVideoUrl = null;
+        handler.removeCallbacks(idleReleaseRunnable);
+        // 进度存储是进程级的，不跟着释放，只把还没落盘的写掉
+        persistPositions();
+        appContext.unregisterComponentCallbacks(memoryCallbacks);
+        if (currentViewHolder != null) {
+            currentViewHolder.playerView.setPlayer(null);
+        }
         currentViewHolder = null;
+        currentItemKey = null;
+        clearFrame();
 
-        playerView.setPlayer(null);
-        player.release();
+        for (int i = 0; i < poolSize; i++) {
+            pool[i].player.release();
+            pool[i] = null;
+        }
+        poolSize = 0;
+        active = null;
         instance = null;
     }
+
+    private void saveCurrentPosition() {
+        if (currentItemKey != null && currentItemKey.equals(active.itemKey)) {
+            positionStore.put(currentItemKey, active.player.getCurrentPosition());
+            if (!persistScheduled) {
+                persistScheduled = true;
+                handler.postDelayed(persistRunnable, PERSIST_POSITIONS_DELAY_MS);
+            }
+        }
+    }
+
+    private void seekToSavedPosition(PooledPlayer target, String itemKey) {
+        // 根据 itemKey 决定续播位置
+        long savedPos = positionStore.get(itemKey);
+        target.player.seekTo(savedPos != PlaybackPositionStore.NO_POSITION ? savedPos : 0L);
+        target.itemKey = itemKey;
+        if (framedPlayer == target) {
+            clearFrame();
+        }
+    }
+
+    private void prepare(PooledPlayer target, String videoUrl) {
+        if (framedPlayer == target) {
+            clearFrame();
+        }
+        target.videoUrl = videoUrl;
+        target.itemKey = null;
+        target.player.setMediaItem(buildMediaItem(videoUrl));
+        target.player.prepare();
+        target.lastUsedMillis = SystemClock.uptimeMillis();
+    }
+
+    /**
+     * 找已经 prepare 了 videoUrl 且进度属于 itemKey 的 player。只比 url 不够：
+     * 同一个 url 的另一个 item 会把正在播的 player seek 走、重新缓冲。
+     */
+    private PooledPlayer findPlayer(String videoUrl, String itemKey) {
+        for (int i = 0; i < poolSize; i++) {
+            PooledPlayer p = pool[i];
+            if (videoUrl.equals(p.videoUrl) && itemKey.equals(p.itemKey)) return p;
+        }
+        return null;
+    }
+
+    /**
+     * 取一个可以装新视频的 player：空闲的 → 还有名额就新建 → 最久没用的（跳过 exclude）。
+     * 只有池子里只剩 exclude 一个时才返回它。
+     */
+    private PooledPlayer obtainPlayer(PooledPlayer exclude) {
+        for (int i = 0; i < poolSize; i++) {
+            if (pool[i] != exclude && pool[i].videoUrl == null) return pool[i];
+        }
+        if (poolSize < MAX_PLAYERS) {
+            PooledPlayer created = new PooledPlayer(createPlayer());
+            pool[poolSize++] = created;
+            return created;
+        }
+        PooledPlayer oldest = exclude;
+        for (int i = 0; i < poolSize; i++) {
+            PooledPlayer p = pool[i];
+            if (p == exclude) continue;
+            if (oldest == exclude || p.lastUsedMillis < oldest.lastUsedMillis) {
+                oldest = p;
+            }
+        }
+        return oldest;
+    }
+
+    private ExoPlayer createPlayer() {
+        DefaultLoadControl loadControl = new DefaultLoadControl.Builder()
+                .setBufferDurationsMs(MIN_BUFFER_MS, MAX_BUFFER_MS,
+                        BUFFER_FOR_PLAYBACK_MS, BUFFER_FOR_PLAYBACK_AFTER_REBUFFER_MS)
+                .build();
+        return new ExoPlayer.Builder(appContext)
+                .setLoadControl(loadControl)
+                // 网络视频经过磁盘缓存，滑回来不用重新下载
+                .setMediaSourceFactory(new DefaultMediaSourceFactory(
+                        VideoCache.getInstance(appContext).getDataSourceFactory()))
+                .build();
+    }
+
+    private void scheduleIdleRelease() {
+        handler.removeCallbacks(idleReleaseRunnable);
+        handler.postDelayed(idleReleaseRunnable, IDLE_RELEASE_MS);
+    }
+
+    /**
+     * 释放闲置至少 idleMillis 的非当前 player；当前 player 始终保留，下次 play 不用重建。
+     */
+    private void trimIdlePlayers(long idleMillis) {
+        if (active == null) return;
+        long now = SystemClock.uptimeMillis();
+        boolean hasIdle = false;
+        for (int i = poolSize - 1; i >= 0; i--) {
+            PooledPlayer p = pool[i];
+            if (p == active) continue;
+            if (now - p.lastUsedMillis >= idleMillis) {
+                p.player.release();
+                pool[i] = pool[--poolSize];
+                pool[poolSize] = null;
+            } else {
+                hasIdle = true;
+            }
+        }
+        if (hasIdle) {
+            scheduleIdleRelease();
+        }
+    }
+
+    private static MediaItem buildMediaItem(String videoUrl) {
+        if (videoUrl.startsWith("rawresource://")) {
+            try {
+                int resId = Integer.parseInt(
+                        videoUrl.substring("rawresource://".length())
+                );
+                Uri uri = RawResourceDataSource.buildRawResourceUri(resId);
+                return new MediaItem.Builder().setUri(uri).build();
+            } catch (Exception e) {
+                return MediaItem.fromUri(Uri.parse(videoUrl));
+            }
+        }
+        return MediaItem.fromUri(Uri.parse(videoUrl));
+    }
 }
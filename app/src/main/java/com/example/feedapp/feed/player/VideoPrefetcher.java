@@ -0,0 +1,126 @@
+package com.example.feedapp.feed.player;
+
+import android.net.Uri;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.OptIn;
+import androidx.media3.common.util.UnstableApi;
+import androidx.media3.datasource.DataSpec;
+import androidx.media3.datasource.cache.CacheWriter;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 后台把即将出现的视频的开头一段（约前几秒）拉进 {@link VideoCache}，滑到时起播不用等网络。
+ *
+ * 单个低优先级线程顺序执行；队列很短，新的请求挤掉最旧的，方向变了之前排队的也很快被替换掉。
+ * 本地资源不需要预取，直接忽略。{@link #prefetch} / {@link #cancelAll} 只在主线程调用。
+ */
+@OptIn(markerClass = UnstableApi.class)
+public class VideoPrefetcher {
+
+    private static final String TAG = "VideoPrefetcher";
+
+    /** 每个视频预取的字节数：1MB，按 2～3Mbps 的码率约是开头 3～4 秒 */
+    private static final long PREFETCH_BYTES = 1024 * 1024;
+    /** 排队上限，多出来丢最旧的 */
+    private static final int MAX_PENDING = 3;
+
+    private final VideoCache cache;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "video-prefetch");
+        t.setPriority(Thread.MIN_PRIORITY);
+        return t;
+    });
+
+    private final Object lock = new Object();
+    // 以下字段由 lock 保护
+    private final ArrayDeque<String> pending = new ArrayDeque<>();
+    @Nullable
+    private String running;
+    @Nullable
+    private CacheWriter runningWriter;
+    private boolean drainScheduled = false;
+
+    public VideoPrefetcher(@NonNull VideoCache cache) {
+        this.cache = cache;
+    }
+
+    /**
+     * 排队预取 url 的开头一段。已在排队或正在预取的 url 不重复添加。
+     */
+    public void prefetch(@Nullable String url) {
+        if (!VideoCache.isCacheable(url) || executor.isShutdown()) return;
+        synchronized (lock) {
+            if (url.equals(running) || pending.contains(url)) return;
+            if (pending.size() >= MAX_PENDING) {
+                pending.pollFirst();
+            }
+            pending.addLast(url);
+            if (!drainScheduled) {
+                drainScheduled = true;
+                executor.execute(this::drain);
+            }
+        }
+    }
+
+    /**
+     * 清空队列并中断正在进行的预取，已写入缓存的部分保留。
+     */
+    public void cancelAll() {
+        synchronized (lock) {
+            pending.clear();
+            if (runningWriter != null) {
+                runningWriter.cancel();
+            }
+        }
+    }
+
+    public void shutdown() {
+        cancelAll();
+        executor.shutdown();
+    }
+
+    private void drain() {
+        while (true) {
+            String url;
+            CacheWriter writer;
+            synchronized (lock) {
+                url = pending.pollFirst();
+                if (url == null) {
+                    running = null;
+                    runningWriter = null;
+                    drainScheduled = false;
+                    return;
+                }
+                if (cache.isCached(url, 0, PREFETCH_BYTES)) {
+                    cache.prefetchSkipped.incrementAndGet();
+                    continue;
+                }
+                DataSpec dataSpec = new DataSpec.Builder()
+                        .setUri(Uri.parse(url))
+                        .setLength(PREFETCH_BYTES)
+                        .build();
+                writer = new CacheWriter(cache.createPrefetchDataSource(), dataSpec, null,
+                        (requestLength, bytesCached, newBytesCached) ->
+                                cache.prefetchedBytes.addAndGet(newBytesCached));
+                running = url;
+                runningWriter = writer;
+            }
+            try {
+                writer.cache();
+                cache.prefetchCount.incrementAndGet();
+            } catch (InterruptedIOException e) {
+                // cancelAll 取消，正常情况
+            } catch (IOException e) {
+                Log.w(TAG, "prefetch failed: " + url, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.feedapp.feed.ui.adapter;
+
+import android.util.SparseArray;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * 进程级的卡片类型注册表：cardType -> CardFactory。
+ * 所有 FeedAdapter 共用同一份注册信息，新增 Tab / 详情页相关推荐列表时不用重复注册。
+ * 只在主线程访问。
+ */
+public class CardRegistry {
+
+    private static CardRegistry instance;
+
+    private final SparseArray<FeedAdapter.CardFactory> factories = new SparseArray<>();
+
+    public static CardRegistry getInstance() {
+        if (instance == null) {
+            instance = new CardRegistry();
+            FeedAdapter.registerBuiltInCards(instance);
+        }
+        return instance;
+    }
+
+    /**
+     * 同一 cardType 重复注册时以后注册的为准。
+     */
+    public void register(@NonNull FeedAdapter.CardFactory factory) {
+        factories.put(factory.getCardType(), factory);
+    }
+
+    @Nullable
+    public FeedAdapter.CardFactory get(int cardType) {
+        return factories.get(cardType);
+    }
+
+    /**
+     * 按已注册的各个 CardFactory 配置回收池容量和预创建数量。
+     */
+    public void configureViewPool(@NonNull FeedViewPool pool) {
+        for (int i = 0; i < factories.size(); i++) {
+            FeedAdapter.CardFactory factory = factories.valueAt(i);
+            pool.configure(factory.getCardType(),
+                    factory.getMaxRecycledViews(), factory.getPrewarmCount());
+        }
+    }
+}
@@ -1,6 +1,8 @@
 package com.example.feedapp.feed.ui.adapter;
 
 import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -11,17 +13,20 @@ import android.widget.TextView;
 
 import androidx.annotation.NonNull;
 import androidx.appcompat.app.AlertDialog;
+import androidx.media3.ui.PlayerView;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.RecyclerView;
 import androidx.recyclerview.widget.StaggeredGridLayoutManager;
 
-import com.bumptech.glide.Glide;
 import com.example.feedapp.R;
+import com.example.feedapp.feed.image.FeedImageLoader;
 import com.example.feedapp.feed.model.FeedItem;
 
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
-import android.util.SparseArray;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
 public class FeedAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
     public static final int VIEW_TYPE_FOOTER = 100;
 
@@ -31,7 +36,16 @@ public class FeedAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
     public static final int FOOTER_STATE_ERROR = 1;
     public static final int FOOTER_STATE_NO_MORE = 2;
     private final Context context;
-    private final List<FeedItem> items = new ArrayList<>();
+    // 一般是 ArrayList；缓存恢复时可能是按需解码的只读列表，第一次增删前再拷贝
+    private List<FeedItem> items = new ArrayList<>();
+    // 正在后台 diff 的目标列表，diff 完成前为非 null
+    private List<FeedItem> pendingItems;
+    private int diffGeneration = 0;
+
+    // 所有 FeedAdapter 共用一个 diff 线程
+    private static final Executor DIFF_EXECUTOR = Executors.newSingleThreadExecutor(
+            r -> new Thread(r, "feed-diff"));
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
 
     private int footerState = FOOTER_STATE_HIDDEN;
 
@@ -59,23 +73,57 @@ public class FeedAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
     public void setOnVideoClickListener(OnVideoClickListener listener) {
         this.videoClickListener = listener;
     }
+
+    // 视频卡片移出窗口或被回收时回调，用来解绑它 surface 上的 player
+    public interface OnVideoViewReleasedListener {
+        void onVideoViewReleased(VideoVH vh);
+    }
+    private OnVideoViewReleasedListener videoViewReleasedListener;
+
+    public void setOnVideoViewReleasedListener(OnVideoViewReleasedListener listener) {
+        this.videoViewReleasedListener = listener;
+    }
     public interface CardFactory {
         int getCardType();
 
         @NonNull
         RecyclerView.ViewHolder onCreateViewHolder(@NonNull LayoutInflater inflater,
                                                    @NonNull ViewGroup parent);
+
+        /** 回收池里最多保留多少个该类型的 ViewHolder */
+        default int getMaxRecycledViews() {
+            return 5;
+        }
+
+        /** 空闲时提前创建多少个，按该类型在信息流里的出现频率来定 */
+        default int getPrewarmCount() {
+            return 1;
+        }
     }
 
-    private final SparseArray<CardFactory> cardFactories = new SparseArray<>();
+    private final CardRegistry cardRegistry;
 
+    /**
+     * 注册到进程级的 {@link CardRegistry}，所有 FeedAdapter 都能使用该卡片类型。
+     */
     public void registerCardFactory(@NonNull CardFactory factory) {
-        cardFactories.put(factory.getCardType(), factory);
+        cardRegistry.register(factory);
     }
 
     public FeedAdapter(Context context) {
+        this(context, CardRegistry.getInstance());
+    }
+
+    public FeedAdapter(Context context, @NonNull CardRegistry cardRegistry) {
         this.context = context;
-        registerCardFactory(new CardFactory() {
+        this.cardRegistry = cardRegistry;
+    }
+
+    /**
+     * 内置的文本 / 图文 / 视频卡片，由 {@link CardRegistry} 在创建时注册。
+     */
+    static void registerBuiltInCards(@NonNull CardRegistry registry) {
+        registry.register(new CardFactory() {
             @Override
             public int getCardType() {
                 return FeedItem.CARD_TYPE_TEXT;
@@ -85,12 +133,21 @@ public class FeedAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
             @Override
             public RecyclerView.ViewHolder onCreateViewHolder(@NonNull LayoutInflater inflater,
                                                               @NonNull ViewGroup parent) {
-                // 复用原来的创建方法
-                return createTextVH(parent);
+                return new TextVH(inflater.inflate(R.layout.item_text_card, parent, false));
+            }
+
+            @Override
+            public int getMaxRecycledViews() {
+                return 6;
+            }
+
+            @Override
+            public int getPrewarmCount() {
+                return 3;
             }
         });
 
-        registerCardFactory(new CardFactory() {
+        registry.register(new CardFactory() {
             @Override
             public int getCardType() {
                 return FeedItem.CARD_TYPE_IMAGE;
@@ -100,11 +157,22 @@ public class FeedAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
             @Override
             public RecyclerView.ViewHolder onCreateViewHolder(@NonNull LayoutInflater inflater,
                                                               @NonNull ViewGroup parent) {
-                return createImageVH(parent);
+                return new ImageVH(inflater.inflate(R.layout.item_image_card, parent, false));
+            }
+
+            // 图文卡占内容池的大头，双列时一屏能有 6~8 张
+            @Override
+            public int getMaxRecycledViews() {
+                return 10;
+            }
+
+            @Override
+            public int getPrewarmCount() {
+                return 6;
             }
         });
 
-        registerCardFactory(new CardFactory() {
+        registry.register(new CardFactory() {
             @Override
             public int getCardType() {
                 return FeedItem.CARD_TYPE_VIDEO;
@@ -114,20 +182,87 @@ public class FeedAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
             @Override
             public RecyclerView.ViewHolder onCreateViewHolder(@NonNull LayoutInflater inflater,
                                                               @NonNull ViewGroup parent) {
-                return createVideoVH(parent);
+                return new VideoVH(inflater.inflate(R.layout.item_video_card, parent, false));
+            }
+
+            // 8~10 张卡片才出一个视频，一屏最多一两个
+            @Override
+            public int getMaxRecycledViews() {
+                return 3;
+            }
+
+            @Override
+            public int getPrewarmCount() {
+                return 2;
             }
         });
     }
 
+    /**
+     * 整体替换列表（下拉刷新）：新旧列表在后台线程做 diff（按 id 对齐、按内容比较），
+     * 回到主线程只派发最小的增删改通知，没变化的卡片不会重新绑定。
+     */
     public void setItems(List<FeedItem> newItems) {
-        items.clear();
-        items.addAll(newItems);
+        final List<FeedItem> oldList = items;
+        final List<FeedItem> newList = new ArrayList<>(newItems);
+        final int generation = ++diffGeneration;
+
+        if (oldList.isEmpty()) {
+            pendingItems = null;
+            items = newList;
+            notifyItemRangeInserted(0, newList.size());
+            return;
+        }
+
+        pendingItems = newList;
+        DIFF_EXECUTOR.execute(() -> {
+            DiffUtil.DiffResult result =
+                    DiffUtil.calculateDiff(new ItemDiffCallback(oldList, newList), false);
+            mainHandler.post(() -> {
+                // 计算期间列表又被改过（再次刷新 / 增删），这次结果作废
+                if (generation != diffGeneration) return;
+                pendingItems = null;
+                items = newList;
+                result.dispatchUpdatesTo(FeedAdapter.this);
+            });
+        });
+    }
+
+    /**
+     * 增删前如果还有没应用的 diff，直接切到目标列表并整体刷新，保证后续操作基于最新数据。
+     */
+    private void applyPendingItemsNow() {
+        if (pendingItems == null) return;
+        diffGeneration++;
+        // 拷贝一份：原列表可能还在被后台 diff 读取
+        items = new ArrayList<>(pendingItems);
+        pendingItems = null;
+        notifyDataSetChanged();
+    }
+
+    /**
+     * 直接以传入的列表作为数据源，不做拷贝、不遍历。
+     * 用于冷启动恢复的按需解码列表，只有绑定到的位置才会真正解码。
+     */
+    public void setItemsNoCopy(List<FeedItem> source) {
+        diffGeneration++;
+        pendingItems = null;
+        items = source;
         notifyDataSetChanged();
     }
 
+    private List<FeedItem> mutableItems() {
+        applyPendingItemsNow();
+        if (!(items instanceof ArrayList)) {
+            items = new ArrayList<>(items);
+        }
+        return items;
+    }
+
     public void addItems(List<FeedItem> more) {
-        int start = items.size();
-        items.addAll(more);
+        List<FeedItem> target = mutableItems();
+        int start = target.size();
+        target.addAll(more);
         notifyItemRangeInserted(start, more.size());
     }
 
@@ -153,9 +288,12 @@ public class FeedAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
             return createFooterVH(parent);
         }
 
-        CardFactory factory = cardFactories.get(viewType);
+        CardFactory factory = cardRegistry.get(viewType);
         if (factory != null) {
-            return factory.onCreateViewHolder(LayoutInflater.from(context), parent);
+            RecyclerView.ViewHolder holder =
+                    factory.onCreateViewHolder(LayoutInflater.from(context), parent);
+            attachCardListeners(holder);
+            return holder;
         }
 
         throw new IllegalArgumentException("Unknown viewType = " + viewType);
@@ -172,6 +310,38 @@ public class FeedAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
         }
     }
 
+    /**
+     * 回收时取消图片请求并释放位图：快速滑过的卡片不再继续下载和解码。
+     * 视频卡片同时解绑 player，回收池里的 PlayerView 不能还接着别的视频。
+     */
+    @Override
+    public void onViewRecycled(@NonNull RecyclerView.ViewHolder holder) {
+        super.onViewRecycled(holder);
+        if (holder instanceof ImageVH) {
+            FeedImageLoader.getInstance(context).clear(((ImageVH) holder).ivImage);
+        } else if (holder instanceof VideoVH) {
+            FeedImageLoader.getInstance(context).clear(((VideoVH) holder).ivCover);
+            releaseVideoView((VideoVH) holder);
+        }
+    }
+
+    /**
+     * 移出窗口时 surface 随之销毁，上面的画面没了，视频卡片在这里就解绑 player。
+     */
+    @Override
+    public void onViewDetachedFromWindow(@NonNull RecyclerView.ViewHolder holder) {
+        super.onViewDetachedFromWindow(holder);
+        if (holder instanceof VideoVH) {
+            releaseVideoView((VideoVH) holder);
+        }
+    }
+
+    private void releaseVideoView(@NonNull VideoVH vh) {
+        if (videoViewReleasedListener != null) {
+            videoViewReleasedListener.onVideoViewReleased(vh);
+        }
+    }
+
     @Override
     public void onViewAttachedToWindow(@NonNull RecyclerView.ViewHolder holder) {
         super.onViewAttachedToWindow(holder);
@@ -197,50 +367,49 @@ public class FeedAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
         }
     }
 
-    private TextVH createTextVH(ViewGroup parent) {
-        View view = LayoutInflater.from(context).inflate(R.layout.item_text_card, parent, false);
-        TextVH holder = new TextVH(view);
-        bindLongClickDelete(holder);
-        return holder;
+    private FooterVH createFooterVH(ViewGroup parent) {
+        View view = LayoutInflater.from(context).inflate(R.layout.item_load_more_footer, parent, false);
+        return new FooterVH(view);
     }
 
-    private ImageVH createImageVH(ViewGroup parent) {
-        View view = LayoutInflater.from(context).inflate(R.layout.item_image_card, parent, false);
-        ImageVH holder = new ImageVH(view);
-        bindLongClickDelete(holder);
-        return holder;
+    /**
+     * 点击 / 长按回调里通过 getBindingAdapter() 找当前绑定它的 Adapter，而不是捕获创建它的那个：
+     * 共享回收池里的 ViewHolder 可能被另一个 FeedAdapter 复用。
+     */
+    private static void attachCardListeners(@NonNull RecyclerView.ViewHolder holder) {
+        if (holder instanceof TextVH || holder instanceof ImageVH || holder instanceof VideoVH) {
+            bindLongClickDelete(holder);
+        }
+        if (holder instanceof VideoVH) {
+            VideoVH vh = (VideoVH) holder;
+            vh.playerContainer.setOnClickListener(v -> {
+                FeedAdapter adapter = boundAdapter(vh);
+                int pos = vh.getBindingAdapterPosition();
+                if (adapter == null || pos == RecyclerView.NO_POSITION
+                        || pos >= adapter.items.size() || adapter.videoClickListener == null) {
+                    return;
+                }
+                adapter.videoClickListener.onVideoClick(vh, adapter.items.get(pos));
+            });
+        }
     }
 
-    private VideoVH createVideoVH(ViewGroup parent) {
-        View view = LayoutInflater.from(context).inflate(R.layout.item_video_card, parent, false);
-        VideoVH holder = new VideoVH(view);
-        bindLongClickDelete(holder);
-
-        holder.playerContainer.setOnClickListener(v -> {
-            int pos = holder.getBindingAdapterPosition();
-            if (pos != RecyclerView.NO_POSITION && videoClickListener != null) {
-                videoClickListener.onVideoClick(holder, items.get(pos));
-            }
-        });
-
-        return holder;
+    private static FeedAdapter boundAdapter(@NonNull RecyclerView.ViewHolder holder) {
+        RecyclerView.Adapter<?> adapter = holder.getBindingAdapter();
+        return adapter instanceof FeedAdapter ? (FeedAdapter) adapter : null;
     }
 
-    private FooterVH createFooterVH(ViewGroup parent) {
-        View view = LayoutInflater.from(context).inflate(R.layout.item_load_more_footer, parent, false);
-        return new FooterVH(view);
-    }
-
-    private void bindLongClickDelete(@NonNull RecyclerView.ViewHolder holder) {
+    private static void bindLongClickDelete(@NonNull RecyclerView.ViewHolder holder) {
         holder.itemView.setOnLongClickListener(v -> {
+            FeedAdapter adapter = boundAdapter(holder);
             int pos = holder.getBindingAdapterPosition();
-            if (pos == RecyclerView.NO_POSITION || pos >= items.size()) {
+            if (adapter == null || pos == RecyclerView.NO_POSITION || pos >= adapter.items.size()) {
                 return true;
             }
-            new AlertDialog.Builder(context)
+            new AlertDialog.Builder(v.getContext())
                     .setTitle("删除卡片")
                     .setMessage("确定要删除这张卡片吗？")
-                    .setPositiveButton("删除", (dialog, which) -> removeItem(pos))
+                    .setPositiveButton("删除", (dialog, which) -> adapter.removeItem(pos))
                     .setNegativeButton("取消", null)
                     .show();
             return true;
@@ -248,11 +417,19 @@ public class FeedAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
     }
 
     public void removeItem(int position) {
-        if (position < 0 || position >= items.size()) return;
-        items.remove(position);
+        List<FeedItem> target = mutableItems();
+        if (position < 0 || position >= target.size()) return;
+        target.remove(position);
         notifyItemRemoved(position);
     }
 
+    /**
+     * 数据条数，不含 footer；后台 diff 未完成时按即将生效的新列表算。
+     */
+    public int getDataItemCount() {
+        return pendingItems != null ? pendingItems.size() : items.size();
+    }
+
     @Override
     public int getItemCount() {
         int count = items.size();
@@ -321,28 +498,25 @@ public class FeedAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
                 ivPlayButton.setVisibility(View.GONE);
             }
 
-            Glide.with(itemView.getContext()).clear(ivImage);
-            if (item.imageRes != 0) {
-                Glide.with(itemView.getContext()).load(item.imageRes).into(ivImage);
-            } else if (item.imageUrl != null) {
-                Glide.with(itemView.getContext()).load(item.imageUrl).into(ivImage);
-            } else {
-                ivImage.setImageResource(android.R.drawable.ic_menu_report_image);
-            }
+            FeedImageLoader.getInstance(itemView.getContext())
+                    .loadInto(ivImage, item, getBindingAdapterPosition());
         }
     }
 
 
     public static class VideoVH extends RecyclerView.ViewHolder implements IBindableVH {
         FrameLayout playerContainer;
-        ImageView ivCover;
-        ImageView ivPlayButton;
+        // 每张视频卡片自带渲染 surface，切换视频时 VideoPlayerManager 只改绑 player，不挪 View
+        public PlayerView playerView;
+        public ImageView ivCover;
+        public ImageView ivPlayButton;
         TextView tvTitle;
         TextView tvDesc;
 
         public VideoVH(@NonNull View itemView) {
             super(itemView);
             playerContainer = itemView.findViewById(R.id.playerContainer);
+            playerView = itemView.findViewById(R.id.playerView);
             ivCover = itemView.findViewById(R.id.ivCover);
             ivPlayButton = itemView.findViewById(R.id.ivPlayButton);
             tvTitle = itemView.findViewById(R.id.tvTitle);
@@ -354,12 +528,44 @@ public class FeedAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
             tvTitle.setText(item.title);
             tvDesc.setText(item.description);
 
-            Object coverSource = item.imageUrl != null ? item.imageUrl : item.imageRes;
-            Glide.with(itemView.getContext()).load(coverSource).into(ivCover);
+            FeedImageLoader.getInstance(itemView.getContext())
+                    .loadInto(ivCover, item, getBindingAdapterPosition());
 
             // 每次绑定时，都恢复初始状态，显示封面和播放按钮
             ivCover.setVisibility(View.VISIBLE);
             ivPlayButton.setVisibility(View.VISIBLE);
+            playerView.hideController();
+        }
+    }
+
+    private static class ItemDiffCallback extends DiffUtil.Callback {
+        private final List<FeedItem> oldList;
+        private final List<FeedItem> newList;
+
+        ItemDiffCallback(List<FeedItem> oldList, List<FeedItem> newList) {
+            this.oldList = oldList;
+            this.newList = newList;
+        }
+
+        @Override
+        public int getOldListSize() {
+            return oldList.size();
+        }
+
+        @Override
+        public int getNewListSize() {
+            return newList.size();
+        }
+
+        @Override
+        public boolean areItemsTheSame(int oldPos, int newPos) {
+            String oldId = oldList.get(oldPos).id;
+            return oldId != null && oldId.equals(newList.get(newPos).id);
+        }
+
+        @Override
+        public boolean areContentsTheSame(int oldPos, int newPos) {
+            return oldList.get(oldPos).equals(newList.get(newPos));
         }
     }
 
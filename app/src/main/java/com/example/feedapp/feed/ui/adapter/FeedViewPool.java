@@ -0,0 +1,91 @@
+package com.example.feedapp.feed.ui.adapter;
+
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.res.Configuration;
+import android.util.Log;
+import android.util.SparseIntArray;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.RecyclerView;
+
+/**
+ * 按卡片类型配置容量的 RecycledViewPool：
+ * - maxRecycled：该类型最多回收多少个 ViewHolder；
+ * - prewarmCount：空闲时提前创建多少个（见 {@link ViewHolderPrewarmer}）。
+ *
+ * {@link #getShared} 返回进程内共享的实例，多个 Feed 列表挂同一个池，加 Tab 不会成倍增加 inflate 和内存。
+ * 池里的 View 持有创建时的 Activity，宿主 Activity 销毁时需要调用 {@link #clear()}。
+ */
+public class FeedViewPool extends RecyclerView.RecycledViewPool implements ComponentCallbacks2 {
+
+    private static final String TAG = "FeedViewPool";
+
+    private static FeedViewPool shared;
+
+    private final SparseIntArray prewarmTargets = new SparseIntArray();
+
+    /**
+     * 进程共享的回收池，首次获取时注册内存回调。只在主线程调用。
+     */
+    @NonNull
+    public static FeedViewPool getShared(@NonNull Context context) {
+        if (shared == null) {
+            shared = new FeedViewPool();
+            context.getApplicationContext().registerComponentCallbacks(shared);
+        }
+        return shared;
+    }
+
+    public void configure(int viewType, int maxRecycled, int prewarmCount) {
+        setMaxRecycledViews(viewType, maxRecycled);
+        prewarmTargets.put(viewType, Math.min(prewarmCount, maxRecycled));
+    }
+
+    /**
+     * 已配置的类型个数，配合 {@link #getViewTypeAt} / {@link #getPrewarmTargetAt} 遍历。
+     */
+    public int getConfiguredTypeCount() {
+        return prewarmTargets.size();
+    }
+
+    public int getViewTypeAt(int index) {
+        return prewarmTargets.keyAt(index);
+    }
+
+    public int getPrewarmTargetAt(int index) {
+        return prewarmTargets.valueAt(index);
+    }
+
+    /**
+     * 内存压力下的回收策略：
+     * - 界面不可见 / 内存偏低：每种类型只留预创建的数量，多出来的丢弃；
+     * - 内存紧张或进程即将被回收：整池清空。
+     */
+    @Override
+    public void onTrimMemory(int level) {
+        if (level >= TRIM_MEMORY_MODERATE || level == TRIM_MEMORY_RUNNING_CRITICAL) {
+            Log.d(TAG, "onTrimMemory level=" + level + ", clear");
+            clear();
+        } else if (level >= TRIM_MEMORY_RUNNING_LOW) {
+            Log.d(TAG, "onTrimMemory level=" + level + ", shrink to prewarm size");
+            for (int i = 0; i < prewarmTargets.size(); i++) {
+                int viewType = prewarmTargets.keyAt(i);
+                int keep = prewarmTargets.valueAt(i);
+                while (getRecycledViewCount(viewType) > keep) {
+                    // 取出即从池中移除，交给 GC
+                    getRecycledView(viewType);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void onLowMemory() {
+        clear();
+    }
+
+    @Override
+    public void onConfigurationChanged(@NonNull Configuration newConfig) {
+    }
+}
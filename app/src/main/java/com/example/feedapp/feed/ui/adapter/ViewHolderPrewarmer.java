@@ -0,0 +1,85 @@
+package com.example.feedapp.feed.ui.adapter;
+
+import android.os.Looper;
+import android.os.MessageQueue;
+import android.os.SystemClock;
+import android.util.Log;
+import android.util.SparseIntArray;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.RecyclerView;
+
+/**
+ * 在主线程空闲时提前 inflate 卡片，放进 {@link FeedViewPool}：
+ * 每次空闲只创建一个 ViewHolder，优先补齐缺口最大的类型，
+ * 这样第一张视频 / Banner 卡出现时不用再同步 inflate。
+ */
+public class ViewHolderPrewarmer implements MessageQueue.IdleHandler {
+
+    private static final String TAG = "VHPrewarmer";
+
+    private final RecyclerView recyclerView;
+    private final RecyclerView.Adapter<? extends RecyclerView.ViewHolder> adapter;
+    private final FeedViewPool pool;
+
+    // 每种类型已经预创建的个数
+    private final SparseIntArray created = new SparseIntArray();
+    private boolean running = false;
+
+    public ViewHolderPrewarmer(@NonNull RecyclerView recyclerView,
+                               @NonNull RecyclerView.Adapter<? extends RecyclerView.ViewHolder> adapter,
+                               @NonNull FeedViewPool pool) {
+        this.recyclerView = recyclerView;
+        this.adapter = adapter;
+        this.pool = pool;
+    }
+
+    /** 只能在主线程调用 */
+    public void start() {
+        if (running) return;
+        running = true;
+        Looper.myQueue().addIdleHandler(this);
+    }
+
+    public void stop() {
+        if (!running) return;
+        running = false;
+        Looper.myQueue().removeIdleHandler(this);
+    }
+
+    @Override
+    public boolean queueIdle() {
+        if (!running) return false;
+
+        int viewType = nextViewType();
+        if (viewType == RecyclerView.INVALID_TYPE) {
+            running = false;
+            return false;
+        }
+
+        long start = SystemClock.uptimeMillis();
+        RecyclerView.ViewHolder holder = adapter.createViewHolder(recyclerView, viewType);
+        pool.putRecycledView(holder);
+        created.put(viewType, created.get(viewType) + 1);
+        Log.d(TAG, "prewarm viewType=" + viewType + " cost="
+                + (SystemClock.uptimeMillis() - start) + "ms");
+        return true;
+    }
+
+    /**
+     * 缺口最大的类型；全部补齐时返回 INVALID_TYPE。
+     */
+    private int nextViewType() {
+        int bestType = RecyclerView.INVALID_TYPE;
+        int bestGap = 0;
+        for (int i = 0; i < pool.getConfiguredTypeCount(); i++) {
+            int viewType = pool.getViewTypeAt(i);
+            int gap = pool.getPrewarmTargetAt(i) - created.get(viewType);
+            if (gap > bestGap) {
+                bestGap = gap;
+                bestType = viewType;
+            }
+        }
+        return bestType;
+    }
+}
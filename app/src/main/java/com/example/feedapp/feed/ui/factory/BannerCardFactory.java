@@ -8,8 +8,8 @@ import android.widget.ImageView;
 import androidx.annotation.NonNull;
 import androidx.recyclerview.widget.RecyclerView;
 
-import com.bumptech.glide.Glide;
 import com.example.feedapp.R;
+import com.example.feedapp.feed.image.FeedImageLoader;
 import com.example.feedapp.feed.model.FeedItem;
 import com.example.feedapp.feed.ui.adapter.FeedAdapter;
 
@@ -31,6 +31,17 @@ public class BannerCardFactory implements FeedAdapter.CardFactory {
         return new BannerVH(view);
     }
 
+    // 每 8~15 张内容才插一条，一屏最多一条
+    @Override
+    public int getMaxRecycledViews() {
+        return 2;
+    }
+
+    @Override
+    public int getPrewarmCount() {
+        return 1;
+    }
+
     /**
      * ViewHolder：只要实现 FeedAdapter.IBindableVH，就能被 FeedAdapter 复用
      */
@@ -46,8 +57,8 @@ public class BannerCardFactory implements FeedAdapter.CardFactory {
 
         @Override
         public void bind(FeedItem item) {
-            Object src = item.imageUrl != null ? item.imageUrl : item.imageRes;
-            Glide.with(itemView.getContext()).load(src).into(ivBanner);
+            FeedImageLoader.getInstance(itemView.getContext())
+                    .loadInto(ivBanner, item, getBindingAdapterPosition());
         }
     }
 }
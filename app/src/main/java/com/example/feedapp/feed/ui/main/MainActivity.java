@@ -2,12 +2,10 @@ package com.example.feedapp.feed.ui.main;
 
 import android.content.Intent;
 import android.os.Bundle;
-import android.os.Handler;
-import android.os.Looper;
+import android.os.SystemClock;
 import android.util.Log;
 import android.view.Menu;
 import android.view.MenuItem;
-import android.view.View;
 import android.widget.Toast;
 
 import androidx.annotation.NonNull;
@@ -18,19 +16,39 @@ import androidx.recyclerview.widget.GridLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 import androidx.swiperefreshlayout.widget.SwipeRefreshLayout;
 
-import com.bumptech.glide.Glide;
 import com.bumptech.glide.load.engine.DiskCacheStrategy;
 import com.example.feedapp.R;
+import com.example.feedapp.feed.data.FeedCacheWriter;
 import com.example.feedapp.feed.data.LocalFeedCache;
-import com.example.feedapp.feed.data.MockDataGenerator;
+import com.example.feedapp.feed.data.FeedPager;
+import com.example.feedapp.feed.data.FeedSource;
+import com.example.feedapp.feed.data.HttpFeedSource;
+import com.example.feedapp.feed.data.LocalFeedServer;
+import com.example.feedapp.feed.data.MockFeedSource;
 import com.example.feedapp.feed.exposure.ExposureLogger;
 import com.example.feedapp.feed.exposure.ExposureManager;
+import com.example.feedapp.feed.exposure.ExposureMetrics;
+import com.example.feedapp.feed.exposure.ExposurePipeline;
+import com.example.feedapp.feed.exposure.ExposureStateStore;
+import com.example.feedapp.feed.exposure.ExposureUploader;
+import com.example.feedapp.feed.exposure.HttpExposureUploader;
+import com.example.feedapp.feed.exposure.LocalExposureServer;
+import com.example.feedapp.feed.exposure.ViewabilityRule;
+import com.example.feedapp.feed.image.FeedImageLoader;
 import com.example.feedapp.feed.model.FeedItem;
+import com.example.feedapp.feed.player.AutoPlayScheduler;
+import com.example.feedapp.feed.player.LocalMediaServer;
+import com.example.feedapp.feed.player.VideoCache;
 import com.example.feedapp.feed.player.VideoPlayerManager;
+import com.example.feedapp.feed.player.VideoPrefetcher;
+import com.example.feedapp.feed.ui.adapter.CardRegistry;
 import com.example.feedapp.feed.ui.adapter.FeedAdapter;
+import com.example.feedapp.feed.ui.adapter.FeedViewPool;
+import com.example.feedapp.feed.ui.adapter.ViewHolderPrewarmer;
 import com.example.feedapp.feed.ui.factory.BannerCardFactory;
 import com.example.feedapp.debug.DebugExposureActivity;
 
+import java.io.IOException;
 import java.util.List;
 
 public class MainActivity extends AppCompatActivity {
@@ -39,19 +57,56 @@ public class MainActivity extends AppCompatActivity {
     private SwipeRefreshLayout swipeRefreshLayout;
     private RecyclerView recyclerView;
     private FeedAdapter adapter;
+    private ViewHolderPrewarmer viewHolderPrewarmer;
     private RecyclerView.LayoutManager layoutManager;
 
     private boolean isLoadingMore = false;
     private boolean hasMore = true;
-    private int currentPage = 0;
     private static final int PAGE_SIZE = 10;
 
-    private MockDataGenerator mockDataGenerator;
+    private static final String KEY_EXPOSURE_STATE = "exposure_state";
+    /** Bundle 有 1MB 的事务上限，旋转屏幕只带最近的这么多条（约 100KB） */
+    private static final int MAX_BUNDLE_EXPOSURE_RECORDS = 4096;
+    /** 磁盘快照不受 Bundle 限制，多存一些 */
+    private static final int MAX_DISK_EXPOSURE_RECORDS = 32768;
+    /** 超过这么久的磁盘快照当作新会话，重新曝光 */
+    private static final long EXPOSURE_STATE_MAX_AGE_MS = 30 * 60 * 1000L;
+
+    // 数据源：默认是本地伪服务端，也可切到回环 HTTP 服务端
+    private LocalFeedServer localFeedServer;
+    // 曝光事件落盘 + 批量上报；联调时上报给本机回环地址上的 LocalExposureServer
+    private ExposurePipeline exposurePipeline;
+    private LocalExposureServer localExposureServer;
+    // 端上曝光指标聚合，调试页面查看 / 导出
+    private final ExposureMetrics exposureMetrics = ExposureMetrics.getInstance();
+    // 进程被杀后恢复曝光状态用的磁盘快照
+    private ExposureStateStore exposureStateStore;
+    // 分页 + 下一页预取
+    private FeedPager feedPager;
+    // 最近的滚动速度（px/ms，向下为正），用于动态调整加载更多的触发距离
+    private float scrollVelocity = 0f;
+    private long lastScrollTime = 0L;
+    // 最近一次滚动的方向（1 向下，-1 向上），决定预缓冲哪一个视频
+    private int lastScrollDirection = 1;
+    /** 预缓冲下一个视频时最多往后找多少张卡片 */
+    private static final int VIDEO_PREFETCH_LOOKAHEAD = 8;
+    /** 沿滚动方向最多把几个视频的开头预取进磁盘缓存 */
+    private static final int VIDEO_CACHE_PREFETCH_COUNT = 3;
+    private FeedCacheWriter cacheWriter;
+    // 图片请求按可见性排优先级，滑过即取消
+    private FeedImageLoader imageLoader;
     // 视频播放管理器
     private VideoPlayerManager videoPlayerManager;
+    // 决定什么时候自动播放哪个视频：停顿去抖 + 惯性滑动落点预测
+    private AutoPlayScheduler autoPlayScheduler;
+    // 把即将出现的视频开头一段预取进磁盘缓存
+    private VideoPrefetcher videoPrefetcher;
+    // 联调时提供视频文件（支持 Range）的本机替身服务端
+    private LocalMediaServer localMediaServer;
     //测试缓存功能开关。使用方法：先设置为False，启用网络加载;设置为true再次运行，使用的是上一次加载的缓存。
     private boolean debugForceError = false;
-    private final Handler handler = new Handler(Looper.getMainLooper());
+    //联调开关：true 时数据走本机回环地址上的 LocalFeedServer（真实 HTTP + JSON 解析）
+    private boolean debugUseLocalServer = false;
 
     @Override
     protected void onCreate(@Nullable Bundle savedInstanceState) {
@@ -59,10 +114,28 @@ public class MainActivity extends AppCompatActivity {
         setContentView(R.layout.activity_main);
 
         videoPlayerManager = VideoPlayerManager.getInstance(this);
-        mockDataGenerator = new MockDataGenerator();
+        videoPrefetcher = new VideoPrefetcher(VideoCache.getInstance(this));
+        feedPager = new FeedPager(createFeedSource(), PAGE_SIZE, new FeedPager.Listener() {
+            @Override
+            public void onPageLoaded(boolean isRefresh, @NonNull List<FeedItem> page) {
+                onPageSuccess(isRefresh, page);
+            }
+
+            @Override
+            public void onPageFailed(boolean isRefresh) {
+                onPageError(isRefresh);
+            }
+        });
+        cacheWriter = new FeedCacheWriter(this);
+        exposurePipeline = new ExposurePipeline(this, createExposureUploader());
+        exposureStateStore = new ExposureStateStore(this);
+        imageLoader = FeedImageLoader.getInstance(this);
 
         setupToolbar();
         setupRecyclerView();
+        // 恢复曝光状态要用到 exposureManager，必须在它创建之后
+        setupExposureManager();
+        restoreExposureState(savedInstanceState);
         setupListeners();
 
         // 首次进入自动刷新
@@ -70,6 +143,52 @@ public class MainActivity extends AppCompatActivity {
         refreshData();
     }
 
+    /**
+     * 没有真实的上报服务，默认只落盘；打开 debugUseLocalServer 时上报给本机的替身服务端。
+     */
+    @Nullable
+    private ExposureUploader createExposureUploader() {
+        if (!debugUseLocalServer) return null;
+        try {
+            localExposureServer = new LocalExposureServer();
+            localExposureServer.start();
+            return new HttpExposureUploader(localExposureServer.getUploadUrl());
+        } catch (IOException e) {
+            Log.w("MainActivity", "start local exposure server failed, upload disabled", e);
+            return null;
+        }
+    }
+
+    private FeedSource createFeedSource() {
+        if (debugUseLocalServer && !debugForceError) {
+            try {
+                localFeedServer = new LocalFeedServer();
+                localFeedServer.start();
+                startLocalMediaServer();
+                return new HttpFeedSource(localFeedServer.getFeedUrl());
+            } catch (IOException e) {
+                Log.w("MainActivity", "start local feed server failed, fallback to mock", e);
+            }
+        }
+        MockFeedSource mock = new MockFeedSource();
+        mock.setForceError(debugForceError);
+        return mock;
+    }
+
+    /**
+     * 本地 raw 视频改由本机 http 服务端下发，这样视频会走磁盘缓存和预取，便于验证命中率。
+     * 只在播放 / 预取时换地址（{@link #playableUrl}），列表数据和本地缓存里始终是原始地址：
+     * 回环端口每次启动都不同，写进缓存的旧地址离线兜底时放不出来。
+     */
+    private void startLocalMediaServer() {
+        try {
+            localMediaServer = new LocalMediaServer(this);
+            localMediaServer.start();
+        } catch (IOException e) {
+            Log.w("MainActivity", "start local media server failed, videos stay local", e);
+        }
+    }
+
     private void setupToolbar() {
         Toolbar toolbar = findViewById(R.id.myToolbar);
         setSupportActionBar(toolbar);
@@ -78,10 +197,11 @@ public class MainActivity extends AppCompatActivity {
     private void setupRecyclerView() {
         swipeRefreshLayout = findViewById(R.id.swipeRefreshLayout);
         recyclerView = findViewById(R.id.recyclerView);
+        CardRegistry.getInstance().register(new BannerCardFactory());
         adapter = new FeedAdapter(this);
-        adapter.registerCardFactory(new BannerCardFactory());
 
         GridLayoutManager gridLayoutManager = new GridLayoutManager(this, 2);
+        imageLoader.updateLayout(this, gridLayoutManager.getSpanCount());
         gridLayoutManager.setSpanSizeLookup(new GridLayoutManager.SpanSizeLookup() {
             @Override
             public int getSpanSize(int position) {
@@ -100,12 +220,21 @@ public class MainActivity extends AppCompatActivity {
                 return item.layoutType == FeedItem.LAYOUT_SINGLE_COLUMN ? 2 : 1;
             }
         });
+        // 缓存恢复的列表按需解码，避免每次算 span 都从头遍历
+        gridLayoutManager.getSpanSizeLookup().setSpanIndexCacheEnabled(true);
 
 
         recyclerView.setLayoutManager(gridLayoutManager);
         recyclerView.setAdapter(adapter);
         layoutManager = gridLayoutManager;
 
+        // 挂进程共享的回收池（按卡片类型限容），并在首屏数据回来前利用空闲时间预先 inflate
+        FeedViewPool viewPool = FeedViewPool.getShared(this);
+        CardRegistry.getInstance().configureViewPool(viewPool);
+        recyclerView.setRecycledViewPool(viewPool);
+        viewHolderPrewarmer = new ViewHolderPrewarmer(recyclerView, adapter, viewPool);
+        viewHolderPrewarmer.start();
+
         // 一些基础性能优化（可选，但推荐）
         recyclerView.setHasFixedSize(true);
         recyclerView.setItemViewCacheSize(20);
@@ -123,23 +252,26 @@ public class MainActivity extends AppCompatActivity {
                 videoPlayerManager.play(
                         vh,
                         String.valueOf(item.id), // itemKey
-                        item.videoUrl
+                        playableUrl(item)
                 );
             }
         });
+        // 卡片移出窗口 / 被回收时解绑 player，回来时重新等第一帧再撤封面
+        adapter.setOnVideoViewReleasedListener(vh -> {
+            if (videoPlayerManager != null) {
+                videoPlayerManager.unbindView(vh);
+            }
+        });
 
         // ✅ 只保留这一份滚动监听（里面有自动播放 + 预加载）
         recyclerView.addOnScrollListener(new RecyclerView.OnScrollListener() {
 
-            private int lastPreloadPosition = -1;
-
             @Override
             public void onScrollStateChanged(@NonNull RecyclerView rv, int newState) {
                 super.onScrollStateChanged(rv, newState);
-                if (newState == RecyclerView.SCROLL_STATE_IDLE) {
-                    // 列表静止，自动播放当前屏幕中最合适的视频
-                    autoPlayCenterVideo();
-                } else {
+                imageLoader.onScrollStateChanged(newState);
+                // 列表静止后的自动播放由 autoPlayScheduler 处理
+                if (newState != RecyclerView.SCROLL_STATE_IDLE) {
                     // 手指拖动/惯性滑动时一律停播，保证滚动流畅
                     if (videoPlayerManager != null) {
                         videoPlayerManager.stop();
@@ -150,27 +282,30 @@ public class MainActivity extends AppCompatActivity {
             @Override
             public void onScrolled(@NonNull RecyclerView rv, int dx, int dy) {
                 super.onScrolled(rv, dx, dy);
+                if (dy != 0) {
+                    lastScrollDirection = dy > 0 ? 1 : -1;
+                }
 
                 if (!(layoutManager instanceof GridLayoutManager)) return;
 
                 GridLayoutManager glm = (GridLayoutManager) layoutManager;
+                int firstVisible = glm.findFirstVisibleItemPosition();
                 int lastVisible = glm.findLastVisibleItemPosition();
                 int total = adapter.getItemCount();
 
-                // ① 距离底部还有 6 个 item 时预加载「即将出现」的图片
-                if (lastVisible >= 0 && total - lastVisible <= 6) {
-                    int startPreloadPos = Math.max(lastVisible + 1, lastPreloadPosition + 1);
-                    if (startPreloadPos < total) {
-                        int end = Math.min(total, startPreloadPos + 6);
-                        List<FeedItem> sub = adapter.getSubItems(startPreloadPos, end);
-                        preloadImages(sub, sub.size());
-                        lastPreloadPosition = end - 1;
-                    }
-                }
+                // ① 取消滑过位置的图片预加载，并预加载下一屏
+                imageLoader.onVisibleRangeChanged(firstVisible, lastVisible, adapter);
+
+                // 触发距离随滚动速度变化：快速惯性滑动时提前触发，尽量不让 footer 露出来
+                int visibleCount = lastVisible - firstVisible + 1;
+                float avgItemHeight = visibleCount > 0
+                        ? rv.computeVerticalScrollExtent() / (float) visibleCount : 0f;
+                int triggerDistance = feedPager.getTriggerDistance(
+                        updateScrollVelocity(dy), avgItemHeight);
 
                 if (lastVisible >= 0
                         && total > 0
-                        && total - lastVisible <= 3    // 距离底部 3 个以内就触发
+                        && total - lastVisible <= triggerDistance
                         && !isLoadingMore
                         && hasMore) {
 
@@ -182,6 +317,32 @@ public class MainActivity extends AppCompatActivity {
 
         adapter.setFooterRetryListener(this::loadMore);
 
+        autoPlayScheduler = new AutoPlayScheduler(recyclerView, adapter,
+                new AutoPlayScheduler.Listener() {
+                    @Override
+                    public void onPlay(@NonNull FeedAdapter.VideoVH holder,
+                                       @NonNull FeedItem item, int position) {
+                        // 同一个视频再次 play 只接续播放，不会重置进度
+                        videoPlayerManager.play(holder, String.valueOf(item.id), playableUrl(item));
+                        prefetchNextVideo(position);
+                    }
+
+                    @Override
+                    public void onPrepare(@NonNull FeedItem item, int position) {
+                        // 惯性滑动预计停在这里：先缓冲好，停下时直接切换
+                        String url = playableUrl(item);
+                        videoPlayerManager.prefetch(String.valueOf(item.id), url);
+                        videoPrefetcher.prefetch(url);
+                    }
+
+                    @Override
+                    public void onNoCandidate() {
+                        videoPlayerManager.stop();
+                    }
+                });
+    }
+
+    private void setupExposureManager() {
         // 曝光统计保持不变
         exposureManager = new ExposureManager(
                 recyclerView,
@@ -190,16 +351,24 @@ public class MainActivity extends AppCompatActivity {
                 new ExposureManager.ExposureListener() {
                     @Override
                     public void onItemExposed(FeedItem item, int position, float visibleRatio) {
+                        exposurePipeline.record(ExposurePipeline.EVENT_EXPOSED,
+                                item.id, position, visibleRatio, 0L);
+                        ExposureLogger.log(ExposurePipeline.EVENT_EXPOSED,
+                                item.id, position, visibleRatio, 0L);
+                        exposureMetrics.recordExposed(item.cardType, item.layoutType);
                     }
 
                     @Override
                     public void onItemFullyVisible(FeedItem item, int position) {
-                        String msg = "FULL    id=" + item.id + " pos=" + position;
-                        ExposureLogger.log(msg);
-
-                        // 不在这里直接播放视频，只在列表静止时统一处理自动播放
-                        if (recyclerView.getScrollState() == RecyclerView.SCROLL_STATE_IDLE) {
-                            autoPlayCenterVideo();
+                        exposurePipeline.record(ExposurePipeline.EVENT_FULLY_VISIBLE,
+                                item.id, position, 1f, 0L);
+                        ExposureLogger.log(ExposurePipeline.EVENT_FULLY_VISIBLE,
+                                item.id, position, 1f, 0L);
+                        exposureMetrics.recordFullyVisible(item.cardType, item.layoutType);
+
+                        // 不在这里直接播放视频，交给调度器在列表静止时合并处理
+                        if (autoPlayScheduler != null) {
+                            autoPlayScheduler.requestAutoPlay();
                         }
                     }
 
@@ -207,206 +376,223 @@ public class MainActivity extends AppCompatActivity {
                     public void onItemHidden(FeedItem item,
                                              int position,
                                              float lastVisibleRatio,
+                                             long visibleMillis,
                                              long totalVisibleMillis) {
+                        exposurePipeline.record(ExposurePipeline.EVENT_HIDDEN,
+                                item.id, position, lastVisibleRatio, totalVisibleMillis);
+                        ExposureLogger.log(ExposurePipeline.EVENT_HIDDEN,
+                                item.id, position, lastVisibleRatio, totalVisibleMillis);
+                        exposureMetrics.recordHidden(item.cardType, item.layoutType, visibleMillis);
+                    }
+
+                    @Override
+                    public void onViewabilityRuleMet(FeedItem item, int position,
+                                                     float visibleRatio, ViewabilityRule rule) {
+                        // 目前只注册了 Banner 可见曝光一条规则，duration 记规则要求的连续时长
+                        exposurePipeline.record(ExposurePipeline.EVENT_VIEWABLE,
+                                item.id, position, visibleRatio, rule.minContinuousMillis);
+                        ExposureLogger.log(ExposurePipeline.EVENT_VIEWABLE,
+                                item.id, position, visibleRatio, rule.minContinuousMillis);
+                        exposureMetrics.recordViewable(item.cardType, item.layoutType);
                     }
                 }
         );
+        // Banner 的可见曝光口径：至少 50% 像素、连续 1 秒
+        exposureManager.addViewabilityRule(ViewabilityRule.bannerViewable());
+        // 标题栏目前在列表上方不重叠；改成悬浮 / 沉浸式布局后盖住的部分不算可见
+        exposureManager.addOccludingView(findViewById(R.id.myToolbar));
     }
 
-
     /**
-     * 选择当前屏幕中“最合适”的视频卡片并自动播放：
-     * - 只在当前可见范围内查找视频；
-     * - 选择离 RecyclerView 垂直中线最近的一个视频卡。
+     * 旋转屏幕时从 Bundle 恢复；进程被杀后 Bundle 可能没有或被截断，退回磁盘快照。
+     * 已曝光过的 item 回到屏幕上不会重复上报。
      */
-    private void autoPlayCenterVideo() {
-        if (layoutManager == null || adapter == null) return;
-
-        int firstVisible = RecyclerView.NO_POSITION;
-        int lastVisible = RecyclerView.NO_POSITION;
-
-        if (layoutManager instanceof GridLayoutManager) {
-            GridLayoutManager glm = (GridLayoutManager) layoutManager;
-            firstVisible = glm.findFirstVisibleItemPosition();
-            lastVisible = glm.findLastVisibleItemPosition();
-        } else {
+    private void restoreExposureState(@Nullable Bundle savedInstanceState) {
+        byte[] state = savedInstanceState != null
+                ? savedInstanceState.getByteArray(KEY_EXPOSURE_STATE) : null;
+        if (state != null && exposureManager.restoreState(state)) {
             return;
         }
-
-        if (firstVisible == RecyclerView.NO_POSITION
-                || lastVisible == RecyclerView.NO_POSITION) {
-            return;
+        state = exposureStateStore.load(EXPOSURE_STATE_MAX_AGE_MS);
+        if (state != null) {
+            exposureManager.restoreState(state);
         }
+    }
 
-        int rvCenterY = recyclerView.getHeight() / 2;
-
-        FeedAdapter.VideoVH bestVH = null;
-        int bestDistance = Integer.MAX_VALUE;
-
-        for (int pos = firstVisible; pos <= lastVisible; pos++) {
-            RecyclerView.ViewHolder holder =
-                    recyclerView.findViewHolderForAdapterPosition(pos);
-            if (!(holder instanceof FeedAdapter.VideoVH)) {
-                continue;
-            }
-
-            View itemView = holder.itemView;
-            int[] loc = new int[2];
-            itemView.getLocationOnScreen(loc);
-            int itemCenterY = loc[1] + itemView.getHeight() / 2;
-            int distance = Math.abs(itemCenterY - rvCenterY);
-
-            if (distance < bestDistance) {
-                bestDistance = distance;
-                bestVH = (FeedAdapter.VideoVH) holder;
-            }
-        }
-        if (bestVH == null) {
-            videoPlayerManager.stop();
-            return;
+    @Override
+    protected void onSaveInstanceState(@NonNull Bundle outState) {
+        super.onSaveInstanceState(outState);
+        if (exposureManager != null) {
+            outState.putByteArray(KEY_EXPOSURE_STATE,
+                    exposureManager.saveState(MAX_BUNDLE_EXPOSURE_RECORDS));
         }
+    }
 
-        FeedAdapter.VideoVH playingVH = videoPlayerManager.getCurrentViewHolder();
-        if (playingVH != null && playingVH == bestVH) {
-            return;
-        }
 
-        int position = bestVH.getBindingAdapterPosition();
-        if (position == RecyclerView.NO_POSITION) {
-            return;
-        }
-
-        FeedItem item = adapter.getItem(position);
-        if (item == null || item.videoUrl == null) {
-            return;
+    /**
+     * 沿最近的滚动方向找后面的视频卡片：第一个交给播放器提前缓冲好，滑到它时不用等起播；
+     * 前几个的开头预取进磁盘缓存。只在列表静止时调用，不和滚动抢主线程和解码器。
+     */
+    private void prefetchNextVideo(int playingPosition) {
+        int count = adapter.getDataItemCount();
+        int found = 0;
+        for (int i = 1; i <= VIDEO_PREFETCH_LOOKAHEAD && found < VIDEO_CACHE_PREFETCH_COUNT; i++) {
+            int pos = playingPosition + i * lastScrollDirection;
+            if (pos < 0 || pos >= count) return;
+            FeedItem next = adapter.getItem(pos);
+            if (next == null || next.videoUrl == null) continue;
+            if (found == 0) {
+                videoPlayerManager.prefetch(String.valueOf(next.id), playableUrl(next));
+            }
+            videoPrefetcher.prefetch(playableUrl(next));
+            found++;
         }
+    }
 
-        // 正常播放：触发按 itemKey 记忆进度的逻辑
-        videoPlayerManager.play(
-                bestVH,
-                String.valueOf(item.id),
-                item.videoUrl
-        );
+    /**
+     * 播放器实际使用的视频地址：联调时 raw 视频换成本机媒体服务端的 http 地址，其他原样。
+     */
+    private String playableUrl(FeedItem item) {
+        return localMediaServer != null ? localMediaServer.toHttpUrl(item.videoUrl) : item.videoUrl;
     }
 
     private void refreshData() {
-        currentPage = 0;
+        Log.d("MainActivity", "refreshData(), debugForceError=" + debugForceError);
         hasMore = true;
         isLoadingMore = false;
         adapter.setFooterState(FeedAdapter.FOOTER_STATE_HIDDEN);
-        mockDataGenerator.reset();
-        requestPage(true);
+        // 丢弃在途请求和预取好的页
+        feedPager.refresh();
+    }
+
+    private float updateScrollVelocity(int dy) {
+        long now = SystemClock.uptimeMillis();
+        long dt = now - lastScrollTime;
+        lastScrollTime = now;
+        if (dt <= 0 || dt > 100) {
+            // 两次回调隔太久说明是新一轮滚动，不沿用旧速度
+            scrollVelocity = 0f;
+            return 0f;
+        }
+        scrollVelocity = scrollVelocity * 0.5f + (dy / (float) dt) * 0.5f;
+        return scrollVelocity;
     }
 
     private void loadMore() {
-        if (isLoadingMore || !hasMore) {
+        // 刷新请求还没回来时不追加下一页
+        if (isLoadingMore || !hasMore || feedPager.isRefreshing()) {
             return;
         }
         isLoadingMore = true;
         adapter.setFooterState(FeedAdapter.FOOTER_STATE_LOADING);
-        requestPage(false);
+        feedPager.loadMore();
     }
 
-    private void requestPage(boolean isRefresh) {
-        // 这里可以看到每次请求到底是不是在模拟错误
-        Log.d("MainActivity", "requestPage() called, isRefresh=" + isRefresh
-                + ", debugForceError=" + debugForceError);
-
-        handler.postDelayed(() -> {
-
-            boolean simulateError = debugForceError;  // 统一用这个开关
-            Log.d("MainActivity", "requestPage() inner, simulateError="
-                    + simulateError + ", isRefresh=" + isRefresh);
-
-            if (simulateError) {
-                // 网络失败分支：走本地缓存
-                isLoadingMore = false;
-
-                if (isRefresh) {
-                    // 下拉刷新失败，则尝试从本地缓存恢复
-                    List<FeedItem> cached = LocalFeedCache.load(this);
-                    if (cached != null && !cached.isEmpty()) {
-                        Log.d("MainActivity", "use local cache, size=" + cached.size());
-                        adapter.setItems(cached);
-                        hasMore = false;
-                        adapter.setFooterState(FeedAdapter.FOOTER_STATE_NO_MORE);
-                        Toast.makeText(this,
-                                "网络失败，已使用本地缓存",
-                                Toast.LENGTH_SHORT).show();
-                    } else {
-                        Log.d("MainActivity", "no local cache available");
-                        Toast.makeText(this,
-                                "刷新失败，且暂无本地缓存",
-                                Toast.LENGTH_SHORT).show();
-                    }
-                    swipeRefreshLayout.setRefreshing(false);
-
-                } else {
-                    // 加载更多失败，只提示错误，不读缓存
-                    adapter.setFooterState(FeedAdapter.FOOTER_STATE_ERROR);
-                    Toast.makeText(this,
-                            "加载更多失败，可以下拉刷新或稍后重试",
-                            Toast.LENGTH_SHORT).show();
-                }
-                return;
-            }
-
-            // 网络请求成功分支
-            int start = currentPage * PAGE_SIZE;
-            List<FeedItem> page = mockDataGenerator.generatePageData(start, PAGE_SIZE);
-            isLoadingMore = false;
-            //预加载图片
-            preloadImages(page, 8);
-            if (isRefresh) {
-                adapter.setItems(page);
-                swipeRefreshLayout.setRefreshing(false);
-            } else {
-                adapter.setFooterState(FeedAdapter.FOOTER_STATE_HIDDEN);
-                adapter.addItems(page);
-            }
-
-            // 成功时更新本地缓存
-            LocalFeedCache.save(this, adapter.getItemsSnapshot());
+    private void onPageError(boolean isRefresh) {
+        // 网络失败分支：走本地缓存
+        isLoadingMore = false;
 
-            if (page.size() < PAGE_SIZE) {
+        if (isRefresh) {
+            // 下拉刷新失败，则尝试从本地缓存恢复（内存映射，按需解码）
+            List<FeedItem> cached = LocalFeedCache.loadLazily(this);
+            if (cached != null && !cached.isEmpty()) {
+                Log.d("MainActivity", "use local cache, size=" + cached.size());
+                imageLoader.cancelAll();
+                adapter.setItemsNoCopy(cached);
+                autoPlayScheduler.reset();
                 hasMore = false;
                 adapter.setFooterState(FeedAdapter.FOOTER_STATE_NO_MORE);
+                Toast.makeText(this,
+                        "网络失败，已使用本地缓存",
+                        Toast.LENGTH_SHORT).show();
             } else {
-                hasMore = true;
-                currentPage++;
-            }
-        }, 800);
-    }
-    private void preloadImages(List<FeedItem> items, int maxCount) {
-        for (int i = 0; i < items.size() && i < maxCount; i++) {
-            FeedItem fi = items.get(i);
-            Object src = fi.imageUrl != null ? fi.imageUrl : fi.imageRes;
-            // 没图就跳过
-            if (src == null || (src instanceof Integer && ((Integer) src) == 0)) {
-                continue;
+                Log.d("MainActivity", "no local cache available");
+                Toast.makeText(this,
+                        "刷新失败，且暂无本地缓存",
+                        Toast.LENGTH_SHORT).show();
             }
+            swipeRefreshLayout.setRefreshing(false);
 
-            Glide.with(this)
-                    .load(src)
-                    .override(400, 300)   // 随便给个大小，别太大
-                    .preload();
+        } else {
+            // 加载更多失败，只提示错误，不读缓存
+            adapter.setFooterState(FeedAdapter.FOOTER_STATE_ERROR);
+            Toast.makeText(this,
+                    "加载更多失败，可以下拉刷新或稍后重试",
+                    Toast.LENGTH_SHORT).show();
         }
     }
 
+    private void onPageSuccess(boolean isRefresh, List<FeedItem> page) {
+        isLoadingMore = false;
+        // 低优先级预取这一页的图片，位置按加入列表后的算
+        if (isRefresh) {
+            imageLoader.cancelAll();
+            imageLoader.prefetch(page, 0, 8);
+            adapter.setItems(page);
+            autoPlayScheduler.reset();
+            swipeRefreshLayout.setRefreshing(false);
+        } else {
+            adapter.setFooterState(FeedAdapter.FOOTER_STATE_HIDDEN);
+            imageLoader.prefetch(page, adapter.getDataItemCount(), 8);
+            adapter.addItems(page);
+        }
 
+        // 成功时更新本地缓存：刷新覆盖，加载更多只追加新的一页（后台合并写盘）
+        if (isRefresh) {
+            cacheWriter.submitReplace(page);
+        } else {
+            cacheWriter.submitAppend(page);
+        }
 
+        if (page.size() < PAGE_SIZE) {
+            hasMore = false;
+            adapter.setFooterState(FeedAdapter.FOOTER_STATE_NO_MORE);
+        } else {
+            hasMore = true;
+        }
+    }
 
     @Override
     protected void onPause() {
         super.onPause();
+        // 退到后台前把还在合并窗口里的缓存写掉，不在主线程等待
+        cacheWriter.flush();
+        exposurePipeline.flush();
+        if (exposureManager != null) {
+            exposureStateStore.save(exposureManager.saveState(MAX_DISK_EXPOSURE_RECORDS));
+        }
         if (videoPlayerManager != null) {
             videoPlayerManager.stop();
+            videoPlayerManager.persistPositions();
         }
+        Log.d("MainActivity", "video cache: " + VideoCache.getInstance(this).getStats());
     }
 
     @Override
     protected void onDestroy() {
         super.onDestroy();
+        viewHolderPrewarmer.stop();
+        autoPlayScheduler.release();
+        if (exposureManager != null) {
+            exposureManager.release();
+        }
+        imageLoader.cancelAll();
+        // 池里的 View 持有本 Activity，不能留给下一个 Activity 复用
+        FeedViewPool.getShared(this).clear();
+        feedPager.cancel();
+        if (localFeedServer != null) {
+            localFeedServer.stop();
+        }
+        if (localMediaServer != null) {
+            localMediaServer.stop();
+        }
+        videoPrefetcher.shutdown();
+        cacheWriter.shutdown();
+        exposurePipeline.shutdown();
+        exposureStateStore.shutdown();
+        if (localExposureServer != null) {
+            localExposureServer.stop();
+        }
         if (videoPlayerManager != null) {
             videoPlayerManager.release();
         }
@@ -0,0 +1,113 @@
+package com.example.feedapp.common.net;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import androidx.annotation.NonNull;
+
+import com.example.feedapp.common.log.Logger;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+
+/**
+ * LoopbackHttpServer 的请求解析：纯 Java 实现，本地单元测试里直接跑真实连接。
+ */
+public class LoopbackHttpServerTest {
+
+    private static LoopbackHttpServer.Request request(String target) {
+        return new LoopbackHttpServer.Request("GET", target,
+                Collections.emptyMap(), new byte[0]);
+    }
+
+    @Test
+    public void path_stripsQueryAndFragment() {
+        assertEquals("/feed", request("/feed?cursor=0&size=10").getPath());
+        assertEquals("/media/a", request("/media/a#t=1").getPath());
+        assertEquals("/exposure", request("/exposure").getPath());
+        assertNull(request("").getPath());
+        assertNull(request("?a=1").getPath());
+    }
+
+    @Test
+    public void queryParameter_decodesFirstMatch() {
+        LoopbackHttpServer.Request r = request("/feed?cursor=12&size=&q=a%20b+c&cursor=99&flag#x");
+        assertEquals("12", r.getQueryParameter("cursor"));
+        assertEquals("", r.getQueryParameter("size"));
+        assertEquals("a b c", r.getQueryParameter("q"));
+        assertEquals("", r.getQueryParameter("flag"));
+        assertNull(r.getQueryParameter("missing"));
+        assertNull(request("/feed").getQueryParameter("cursor"));
+        // 非法转义保留原文，不抛异常
+        assertEquals("%zz", request("/feed?q=%zz").getQueryParameter("q"));
+    }
+
+    @Test
+    public void serve_passesParsedRequestToHandler() throws Exception {
+        EchoServer server = new EchoServer();
+        server.start();
+        try {
+            HttpURLConnection conn = (HttpURLConnection)
+                    new URL(server.getBaseUrl() + "/feed?cursor=3&size=20").openConnection();
+            assertEquals(200, conn.getResponseCode());
+            assertEquals("GET /feed cursor=3 size=20", read(conn.getInputStream()));
+            conn.disconnect();
+        } finally {
+            server.stop();
+        }
+    }
+
+    @Test
+    public void stalledConnection_doesNotBlockOthers() throws Exception {
+        EchoServer server = new EchoServer();
+        server.start();
+        // 连上但一个字节都不发，模拟停着不动的播放器连接
+        try (Socket idle = new Socket(InetAddress.getLoopbackAddress(),
+                new URL(server.getBaseUrl()).getPort())) {
+            HttpURLConnection conn = (HttpURLConnection)
+                    new URL(server.getBaseUrl() + "/feed?cursor=1").openConnection();
+            conn.setReadTimeout(3000);
+            assertEquals(200, conn.getResponseCode());
+            assertEquals("GET /feed cursor=1 size=null", read(conn.getInputStream()));
+            conn.disconnect();
+        } finally {
+            server.stop();
+        }
+    }
+
+    static String read(InputStream in) throws IOException {
+        try (InputStream is = in) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buf = new byte[1024];
+            int n;
+            while ((n = is.read(buf)) != -1) {
+                out.write(buf, 0, n);
+            }
+            return new String(out.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+
+    /** 把解析结果原样写回响应 */
+    static class EchoServer extends LoopbackHttpServer {
+        EchoServer() throws IOException {
+            super("EchoServer", Logger.NONE);
+        }
+
+        @NonNull
+        @Override
+        protected Response handle(@NonNull Request request) {
+            return Response.text(200, request.method + " " + request.getPath()
+                    + " cursor=" + request.getQueryParameter("cursor")
+                    + " size=" + request.getQueryParameter("size"));
+        }
+    }
+}
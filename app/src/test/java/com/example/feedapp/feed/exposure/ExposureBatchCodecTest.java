@@ -0,0 +1,73 @@
+package com.example.feedapp.feed.exposure;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * ExposureBatchCodec：编码解码往返、多批合并和坏批次识别。
+ */
+public class ExposureBatchCodecTest {
+
+    @Test
+    public void roundTrip_keepsEveryField() {
+        ExposureBatchCodec.RecordWriter writer = new ExposureBatchCodec.RecordWriter();
+        writer.onEvent(1_700_000_000_123L, ExposurePipeline.EVENT_EXPOSED, "item-1", 3, 0.5f, 0L);
+        writer.onEvent(1_700_000_000_456L, ExposurePipeline.EVENT_HIDDEN, "视频-2", 7, 1f, 1234L);
+        writer.onEvent(1_700_000_000_789L, ExposurePipeline.EVENT_VIEWABLE, null, 0, 0f, 1000L);
+        assertEquals(3, writer.count());
+
+        byte[] batch = writer.takeBatch();
+        assertEquals(0, writer.count());
+        assertEquals(3, ExposureBatchCodec.readCount(batch));
+
+        List<String> decoded = new ArrayList<>();
+        assertEquals(3, ExposureBatchCodec.decode(batch, collect(decoded)));
+        assertEquals(Arrays.asList(
+                "1700000000123 1 item-1 3 0.5 0",
+                "1700000000456 3 视频-2 7 1.0 1234",
+                "1700000000789 4  0 0.0 1000"), decoded);
+    }
+
+    @Test
+    public void merge_concatenatesRecordsInOrder() {
+        ExposureBatchCodec.RecordWriter writer = new ExposureBatchCodec.RecordWriter();
+        writer.onEvent(1L, ExposurePipeline.EVENT_EXPOSED, "a", 0, 0.1f, 0L);
+        byte[] first = writer.takeBatch();
+        writer.onEvent(2L, ExposurePipeline.EVENT_EXPOSED, "b", 1, 0.2f, 0L);
+        writer.onEvent(3L, ExposurePipeline.EVENT_HIDDEN, "a", 0, 0f, 2L);
+        byte[] second = writer.takeBatch();
+
+        byte[] merged = ExposureBatchCodec.merge(Arrays.asList(first, second));
+        assertEquals(3, ExposureBatchCodec.readCount(merged));
+        List<String> decoded = new ArrayList<>();
+        ExposureBatchCodec.decode(merged, collect(decoded));
+        assertEquals(Arrays.asList("1 1 a 0 0.1 0", "2 1 b 1 0.2 0", "3 3 a 0 0.0 2"), decoded);
+    }
+
+    @Test
+    public void badBatches_areRejected() {
+        assertEquals(-1, ExposureBatchCodec.readCount(new byte[4]));
+        assertEquals(-1, ExposureBatchCodec.readCount(new byte[ExposureBatchCodec.HEADER_SIZE]));
+
+        ExposureBatchCodec.RecordWriter writer = new ExposureBatchCodec.RecordWriter();
+        writer.onEvent(1L, ExposurePipeline.EVENT_EXPOSED, "item", 0, 1f, 0L);
+        byte[] batch = writer.takeBatch();
+        byte[] truncated = Arrays.copyOf(batch, batch.length - 3);
+        try {
+            ExposureBatchCodec.decode(truncated, collect(new ArrayList<>()));
+            throw new AssertionError("expected IllegalArgumentException");
+        } catch (IllegalArgumentException expected) {
+            // 截断的批次不能当成合法数据
+        }
+    }
+
+    static ExposureEventRing.Sink collect(List<String> out) {
+        return (time, kind, itemId, position, ratio, duration) ->
+                out.add(time + " " + kind + " " + itemId + " " + position + " " + ratio + " " + duration);
+    }
+}
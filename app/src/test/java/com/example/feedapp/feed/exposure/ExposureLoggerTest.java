@@ -0,0 +1,134 @@
+package com.example.feedapp.feed.exposure;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * ExposureLogger 的本地单元测试：读出顺序、写满覆盖、多线程写入、id 驻留，以及写入不分配对象。
+ */
+public class ExposureLoggerTest {
+
+    @Test
+    public void getLogs_newestFirstAndFormatted() {
+        ExposureLogger.clear();
+        ExposureLogger.log(ExposurePipeline.EVENT_EXPOSED, "a", 0, 0.5f, 0L);
+        ExposureLogger.log(ExposurePipeline.EVENT_HIDDEN, "a", 0, 0.25f, 1200L);
+
+        List<String> logs = ExposureLogger.getLogs();
+        assertEquals(2, logs.size());
+        assertTrue(logs.get(0), logs.get(0).endsWith("HIDE    id=a pos=0 ratio=25% dur=1200ms"));
+        assertTrue(logs.get(1), logs.get(1).endsWith("SHOW    id=a pos=0 ratio=50%"));
+
+        ExposureLogger.clear();
+        assertEquals(0, ExposureLogger.getLogs().size());
+    }
+
+    @Test
+    public void pagedReads_filterAndResumeFromCursor() {
+        ExposureLogger.clear();
+        for (int i = 0; i < 10; i++) {
+            int kind = i % 2 == 0 ? ExposurePipeline.EVENT_EXPOSED : ExposurePipeline.EVENT_HIDDEN;
+            ExposureLogger.log(kind, "item_" + i, i, 1f, 0L);
+        }
+        int exposedOnly = ExposureLogger.kindBit(ExposurePipeline.EVENT_EXPOSED);
+
+        List<ExposureLogger.Entry> page = new ArrayList<>();
+        long tail = ExposureLogger.getNextSequence();
+        long cursor = ExposureLogger.readOlder(tail, 3, exposedOnly, null, page);
+        assertEquals(3, page.size());
+        assertEquals(8, page.get(0).position);
+        assertEquals(4, page.get(2).position);
+
+        page.clear();
+        cursor = ExposureLogger.readOlder(cursor, 3, exposedOnly, null, page);
+        assertEquals(2, page.size());
+        assertEquals(0, page.get(1).position);
+        assertEquals(-1L, cursor);
+
+        // 按 id 子串过滤，只读页面打开之后的新记录
+        ExposureLogger.log(ExposurePipeline.EVENT_EXPOSED, "other", 10, 1f, 0L);
+        ExposureLogger.log(ExposurePipeline.EVENT_HIDDEN, "item_11", 11, 1f, 0L);
+        page.clear();
+        tail = ExposureLogger.readNewer(tail, ExposureLogger.ALL_KINDS, "item_", page);
+        assertEquals(1, page.size());
+        assertEquals(11, page.get(0).position);
+        assertEquals(ExposureLogger.getNextSequence(), tail);
+    }
+
+    @Test
+    public void concurrentWriters_keepOnlyLatestCompleteRecords() throws Exception {
+        ExposureLogger.clear();
+        Thread[] writers = new Thread[4];
+        for (int t = 0; t < writers.length; t++) {
+            String id = "t" + t;
+            writers[t] = new Thread(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    ExposureLogger.log(ExposurePipeline.EVENT_FULLY_VISIBLE, id, i, 1f, 0L);
+                }
+            });
+            writers[t].start();
+        }
+        for (Thread w : writers) {
+            w.join();
+        }
+
+        List<String> logs = ExposureLogger.getLogs();
+        assertTrue("size=" + logs.size(), logs.size() > 0 && logs.size() <= 32 * 1024);
+        for (String line : logs) {
+            assertTrue(line, line.contains("FULL    id=t"));
+        }
+    }
+
+    @Test
+    public void internedIds_resolveForEveryRetainedRecord() {
+        ExposureLogger.clear();
+        // 远超缓冲区和驻留表容量的不同 id，中间穿插一个一直在用的 id
+        for (int i = 0; i < 200_000; i++) {
+            if (i % 100 == 0) {
+                ExposureLogger.log(ExposurePipeline.EVENT_EXPOSED, "hot", -1, 1f, 0L);
+            } else {
+                ExposureLogger.log(ExposurePipeline.EVENT_EXPOSED, "item_" + i, i, 1f, 0L);
+            }
+        }
+
+        List<ExposureLogger.Entry> entries = new ArrayList<>();
+        ExposureLogger.readOlder(Long.MAX_VALUE, Integer.MAX_VALUE,
+                ExposureLogger.ALL_KINDS, null, entries);
+        assertEquals(32 * 1024, entries.size());
+        for (ExposureLogger.Entry e : entries) {
+            String expected = e.position < 0 ? "hot" : "item_" + e.position;
+            assertEquals(expected, e.itemId);
+        }
+    }
+
+    @Test
+    public void log_allocatesNothing() {
+        ExposureLogger.clear();
+        com.sun.management.ThreadMXBean bean =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(bean.isThreadAllocatedMemorySupported());
+        String[] ids = {"a", "b", "c", "d"};
+
+        // 预热，避开首次调用时的类加载和 JIT
+        for (int warmup = 0; warmup < 3; warmup++) {
+            for (int i = 0; i < 5_000; i++) {
+                ExposureLogger.log(ExposurePipeline.EVENT_EXPOSED, ids[i & 3], i, 0.5f, 0L);
+            }
+        }
+
+        long tid = Thread.currentThread().getId();
+        long before = bean.getThreadAllocatedBytes(tid);
+        for (int i = 0; i < 5_000; i++) {
+            ExposureLogger.log(ExposurePipeline.EVENT_HIDDEN, ids[i & 3], i, 0.5f, i);
+        }
+        long allocated = bean.getThreadAllocatedBytes(tid) - before;
+        assertEquals(0L, allocated);
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.feedapp.feed.exposure;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.example.feedapp.feed.model.FeedItem;
+
+import org.junit.Test;
+
+/**
+ * ExposureMetrics 的本地单元测试：直方图分桶精度、分位数和转化率。
+ */
+public class ExposureMetricsTest {
+
+    private static final int IMAGE = FeedItem.CARD_TYPE_IMAGE;
+    private static final int DOUBLE = FeedItem.LAYOUT_DOUBLE_COLUMN;
+
+    @Test
+    public void bucketBounds_containValueWithinOneEighth() {
+        for (long v = 0; v < 4_000_000L; v = v < 64 ? v + 1 : v + v / 7) {
+            int index = ExposureMetrics.bucketIndex(v);
+            long lower = ExposureMetrics.bucketLowerBound(index);
+            long upper = ExposureMetrics.bucketUpperBound(index);
+            assertTrue("v=" + v + " [" + lower + "," + upper + ")", lower <= v && v < upper);
+            assertTrue("v=" + v, upper - lower <= Math.max(1L, lower / ExposureMetrics.SUB_BUCKETS));
+        }
+        // 超出范围的落在最后一个桶
+        assertEquals(ExposureMetrics.BUCKETS - 1, ExposureMetrics.bucketIndex(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void snapshot_percentilesAndConversionPerGroup() {
+        ExposureMetrics metrics = new ExposureMetrics();
+        for (int i = 1; i <= 100; i++) {
+            metrics.recordExposed(IMAGE, DOUBLE);
+            if (i % 4 == 0) metrics.recordFullyVisible(IMAGE, DOUBLE);
+            metrics.recordHidden(IMAGE, DOUBLE, i * 100L);
+        }
+        metrics.recordExposed(FeedItem.CARD_TYPE_BANNER, FeedItem.LAYOUT_SINGLE_COLUMN);
+
+        ExposureMetrics.Snapshot snapshot = metrics.snapshot();
+        assertEquals(100, snapshot.getExposedCount(IMAGE, DOUBLE));
+        assertEquals(0.25f, snapshot.getFullyVisibleRate(IMAGE, DOUBLE), 1e-6f);
+        assertEquals(5050, snapshot.getMeanDwellMillis(IMAGE, DOUBLE));
+        assertEquals(10_000, snapshot.getMaxDwellMillis(IMAGE, DOUBLE));
+        assertNear(5000, snapshot.getDwellPercentile(IMAGE, DOUBLE, 50));
+        assertNear(9000, snapshot.getDwellPercentile(IMAGE, DOUBLE, 90));
+        assertEquals(10_000, snapshot.getDwellPercentile(IMAGE, DOUBLE, 100));
+
+        // 其它分组互不影响
+        assertEquals(1, snapshot.getExposedCount(FeedItem.CARD_TYPE_BANNER, FeedItem.LAYOUT_SINGLE_COLUMN));
+        assertEquals(0, snapshot.getExposedCount(IMAGE, FeedItem.LAYOUT_SINGLE_COLUMN));
+
+        // 快照是拷贝，之后的写入和 reset 不影响它
+        metrics.reset();
+        assertEquals(100, snapshot.getHiddenCount(IMAGE, DOUBLE));
+        assertEquals(0, metrics.snapshot().getHiddenCount(IMAGE, DOUBLE));
+    }
+
+    private static void assertNear(long expected, long actual) {
+        assertTrue("expected ~" + expected + " but was " + actual,
+                Math.abs(actual - expected) <= expected / ExposureMetrics.SUB_BUCKETS);
+    }
+}
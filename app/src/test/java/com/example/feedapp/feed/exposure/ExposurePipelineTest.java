@@ -0,0 +1,250 @@
+package com.example.feedapp.feed.exposure;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.example.feedapp.common.log.Logger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * ExposurePipeline 的落盘、合并上报、失败退避和积压上限。定时 tick 关掉，用 tickNow / flush 手动驱动。
+ */
+public class ExposurePipelineTest {
+
+    private File dir;
+    private final AtomicLong clock = new AtomicLong(10_000L);
+    private final FakeUploader uploader = new FakeUploader();
+    private ExposurePipeline pipeline;
+
+    @Before
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("exposure").toFile();
+    }
+
+    @After
+    public void tearDown() {
+        if (pipeline != null) pipeline.shutdown();
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File f : files) f.delete();
+        }
+        dir.delete();
+    }
+
+    private ExposurePipeline newPipeline(@Nullable ExposureUploader uploader) {
+        pipeline = new ExposurePipeline(dir, uploader, clock::get, Logger.NONE, 0L);
+        return pipeline;
+    }
+
+    private void record(int count) {
+        for (int i = 0; i < count; i++) {
+            pipeline.record(ExposurePipeline.EVENT_EXPOSED, "item-" + i, i, 1f, 0L);
+        }
+    }
+
+    private void recordBad() {
+        pipeline.record(ExposurePipeline.EVENT_EXPOSED, FakeUploader.BAD_ID, 0, 1f, 0L);
+    }
+
+    private static void await(Future<?> future) throws Exception {
+        future.get(5, TimeUnit.SECONDS);
+    }
+
+    private int pendingBatches() {
+        String[] names = dir.list((d, name) -> name.endsWith(".bin"));
+        return names == null ? 0 : names.length;
+    }
+
+    @Test
+    public void failedBatches_areMergedIntoOneUpload() throws Exception {
+        newPipeline(uploader);
+        uploader.failures.set(2);
+        record(3);
+        await(pipeline.flush());
+        record(2);
+        await(pipeline.flush());
+        assertEquals(2, pendingBatches());
+        assertEquals(2, uploader.attempts.get());
+
+        await(pipeline.flush());
+        assertEquals(3, uploader.attempts.get());
+        assertEquals(1, uploader.uploads.size());
+        byte[] merged = uploader.uploads.get(0);
+        assertEquals(5, ExposureBatchCodec.readCount(merged));
+        assertEquals(5, ExposureBatchCodec.decode(merged, (t, k, id, p, r, d) -> {
+        }));
+        assertEquals(0, pendingBatches());
+        // 写批次只留下 .bin，临时文件都已 rename 或删除
+        String[] files = dir.list();
+        assertEquals(0, files == null ? 0 : files.length);
+    }
+
+    @Test
+    public void uploadFailure_backsOffExponentially() throws Exception {
+        newPipeline(uploader);
+        uploader.failures.set(Integer.MAX_VALUE);
+        record(1);
+        await(pipeline.flush());
+        assertEquals(1, uploader.attempts.get());
+
+        // 第一次失败退避 1s
+        clock.addAndGet(999);
+        await(pipeline.tickNow());
+        assertEquals(1, uploader.attempts.get());
+        clock.addAndGet(1);
+        await(pipeline.tickNow());
+        assertEquals(2, uploader.attempts.get());
+
+        // 再失败翻倍到 2s
+        clock.addAndGet(1999);
+        await(pipeline.tickNow());
+        assertEquals(2, uploader.attempts.get());
+        clock.addAndGet(1);
+        await(pipeline.tickNow());
+        assertEquals(3, uploader.attempts.get());
+
+        // 恢复后一次传完，退避清零
+        uploader.failures.set(0);
+        clock.addAndGet(4000);
+        await(pipeline.tickNow());
+        assertEquals(4, uploader.attempts.get());
+        assertEquals(0, pendingBatches());
+        record(1);
+        await(pipeline.flush());
+        clock.addAndGet(1);
+        await(pipeline.tickNow());
+        assertEquals(5, uploader.attempts.get());
+        assertEquals(2, uploader.uploads.size());
+    }
+
+    @Test
+    public void rejectedBatch_isDroppedWithoutBlockingOthers() throws Exception {
+        newPipeline(uploader);
+        // 先攒下三批：好 / 被拒 / 好
+        uploader.failures.set(3);
+        record(2);
+        await(pipeline.flush());
+        recordBad();
+        record(1);
+        await(pipeline.flush());
+        record(3);
+        await(pipeline.flush());
+        assertEquals(3, pendingBatches());
+
+        // 合并请求被拒后逐批重发：只丢被拒的那批，另外两批送达，不退避
+        await(pipeline.flush());
+        assertEquals(0, pendingBatches());
+        assertEquals(2, pipeline.getDroppedBatchEventCount());
+        int delivered = 0;
+        for (byte[] batch : uploader.uploads) {
+            delivered += ExposureBatchCodec.readCount(batch);
+        }
+        assertEquals(5, delivered);
+        // 3 次注入失败 + 1 次合并被拒 + 3 次逐批
+        assertEquals(7, uploader.attempts.get());
+    }
+
+    @Test
+    public void httpUpload_malformedBatchRejectedByServerIsDropped() throws Exception {
+        assertTrue(HttpExposureUploader.isRejected(400));
+        assertFalse(HttpExposureUploader.isRejected(429));
+        assertFalse(HttpExposureUploader.isRejected(503));
+
+        LocalExposureServer server = new LocalExposureServer(Logger.NONE);
+        server.start();
+        try {
+            // 头部完好、记录被截断的批次：本地认得出条数，服务端解码失败返回 400
+            ExposureBatchCodec.RecordWriter writer = new ExposureBatchCodec.RecordWriter();
+            writer.onEvent(1L, ExposurePipeline.EVENT_EXPOSED, "item", 0, 1f, 0L);
+            writer.onEvent(2L, ExposurePipeline.EVENT_EXPOSED, "item", 1, 1f, 0L);
+            byte[] batch = writer.takeBatch();
+            Files.write(new File(dir, "batch_0000000000001_0000.bin").toPath(),
+                    Arrays.copyOf(batch, batch.length - 5));
+
+            newPipeline(new HttpExposureUploader(server.getUploadUrl()));
+            record(3);
+            await(pipeline.flush());
+            assertEquals(0, pendingBatches());
+            assertEquals(2, pipeline.getDroppedBatchEventCount());
+            assertEquals(3, server.getReceivedEvents());
+        } finally {
+            server.stop();
+        }
+    }
+
+    @Test
+    public void pendingBatches_areCappedAt64() throws Exception {
+        newPipeline(null);
+        for (int i = 0; i < 70; i++) {
+            record(1);
+            await(pipeline.flush());
+        }
+        assertEquals(64, pendingBatches());
+        assertEquals(64, dir.list().length);
+    }
+
+    @Test
+    public void httpUpload_retriesAgainstLocalServer() throws Exception {
+        LocalExposureServer server = new LocalExposureServer(Logger.NONE);
+        server.start();
+        try {
+            newPipeline(new HttpExposureUploader(server.getUploadUrl()));
+            server.setFailNextRequests(1);
+            record(4);
+            await(pipeline.flush());
+            assertEquals(0, server.getReceivedRequests());
+            assertEquals(1, pendingBatches());
+
+            record(3);
+            await(pipeline.flush());
+            assertEquals(1, server.getReceivedRequests());
+            assertEquals(7, server.getReceivedEvents());
+            assertEquals(0, pendingBatches());
+        } finally {
+            server.stop();
+        }
+    }
+
+    /** 可注入暂时失败；含 {@link #BAD_ID} 事件的请求一律拒收 */
+    static final class FakeUploader implements ExposureUploader {
+        static final String BAD_ID = "bad";
+        final AtomicInteger failures = new AtomicInteger();
+        final AtomicInteger attempts = new AtomicInteger();
+        final List<byte[]> uploads = new ArrayList<>();
+
+        @Override
+        public void upload(@NonNull byte[] batch, int eventCount) throws IOException {
+            attempts.incrementAndGet();
+            if (failures.getAndUpdate(n -> n > 0 ? n - 1 : 0) > 0) {
+                throw new IOException("injected failure");
+            }
+            boolean[] bad = new boolean[1];
+            ExposureBatchCodec.decode(batch, (t, k, id, p, r, d) -> bad[0] |= BAD_ID.equals(id));
+            if (bad[0]) {
+                throw new ExposureRejectedException("rejected");
+            }
+            synchronized (uploads) {
+                uploads.add(batch);
+            }
+            assertEquals(eventCount, ExposureBatchCodec.readCount(batch));
+        }
+    }
+}
@@ -0,0 +1,352 @@
+package com.example.feedapp.feed.exposure;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.example.feedapp.feed.model.FeedItem;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * ExposureStateTable 的本地单元测试：事件语义，以及滚动热路径上不分配对象。
+ */
+public class ExposureStateTableTest {
+
+    private static final int MAX_STATES = 64;
+    private static final int VISIBLE_PER_ROUND = 8;
+    private static final int CARD = FeedItem.CARD_TYPE_IMAGE;
+
+    /** 只计数，不分配 */
+    private static final class CountingCallback implements ExposureStateTable.Callback<String> {
+        int exposed;
+        int fullyVisible;
+        int bannerViewable;
+        int hidden;
+        long lastHiddenMillis;
+        long lastVisitMillis;
+
+        @Override
+        public void onRuleSatisfied(String item, int position, float ratio, ViewabilityRule rule) {
+            if (rule == ViewabilityRule.EXPOSED) {
+                exposed++;
+            } else if (rule == ViewabilityRule.FULLY_VISIBLE) {
+                fullyVisible++;
+            } else {
+                bannerViewable++;
+            }
+        }
+
+        @Override
+        public void onHidden(String item, int position, float lastRatio,
+                             long visibleMillis, long totalVisibleMillis) {
+            hidden++;
+            lastHiddenMillis = totalVisibleMillis;
+            lastVisitMillis = visibleMillis;
+        }
+    }
+
+    @Test
+    public void exposeAndHide_firesOnceAndAccumulatesTime() {
+        CountingCallback cb = new CountingCallback();
+        ExposureStateTable<String> table = newTable(cb);
+
+        table.beginRound(100, 100);
+        table.markVisible("a", "a", CARD, 0, 0.5f);
+        table.endRound();
+
+        table.beginRound(200, 200);
+        table.markVisible("a", "a", CARD, 0, 1f);
+        table.endRound();
+
+        table.beginRound(300, 300);
+        table.endRound();
+
+        assertEquals(1, cb.exposed);
+        assertEquals(1, cb.fullyVisible);
+        assertEquals(1, cb.hidden);
+        assertEquals(200, cb.lastHiddenMillis);
+
+        // 再次出现不重复曝光，时长继续累计
+        table.beginRound(400, 400);
+        table.markVisible("a", "a", CARD, 0, 1f);
+        table.endRound();
+        table.beginRound(450, 450);
+        table.endRound();
+
+        assertEquals(1, cb.exposed);
+        assertEquals(2, cb.hidden);
+        assertEquals(250, cb.lastHiddenMillis);
+        assertEquals(50, cb.lastVisitMillis);
+    }
+
+    @Test
+    public void bannerRule_needsContinuousHalfVisibleSecondAndFiresOnce() {
+        CountingCallback cb = new CountingCallback();
+        ExposureStateTable<String> table = newTable(cb);
+        int banner = FeedItem.CARD_TYPE_BANNER;
+
+        table.beginRound(1000, 1000);
+        table.markVisible("b", "b", banner, 0, 0.6f);
+        table.markVisible("img", "img", CARD, 1, 1f);
+        table.endRound();
+        assertEquals(2000, table.getNextRuleDueTime());
+
+        // 中途跌到 50% 以下，计时重来
+        table.beginRound(1500, 1500);
+        table.markVisible("b", "b", banner, 0, 0.4f);
+        table.endRound();
+        table.beginRound(1600, 1600);
+        table.markVisible("b", "b", banner, 0, 0.5f);
+        table.endRound();
+        table.beginRound(2100, 2100);
+        table.markVisible("b", "b", banner, 0, 0.5f);
+        table.endRound();
+        assertEquals(0, cb.bannerViewable);
+        assertEquals(2600, table.getNextRuleDueTime());
+
+        // 静止后按到期时间补采一次：changeTime 是中点，但按 now 判断
+        table.beginRound(2350, 2600);
+        table.markVisible("b", "b", banner, 0, 0.5f);
+        table.endRound();
+        assertEquals(1, cb.bannerViewable);
+        assertEquals(Long.MAX_VALUE, table.getNextRuleDueTime());
+
+        // 离屏再回来也不重复触发；非 Banner 卡片不受这条规则影响
+        table.beginRound(3000, 3000);
+        table.endRound();
+        table.beginRound(5000, 5000);
+        table.markVisible("b", "b", banner, 0, 1f);
+        table.markVisible("img", "img", CARD, 1, 1f);
+        table.endRound();
+        assertEquals(1, cb.bannerViewable);
+        assertEquals(2, cb.exposed);
+        assertEquals(2, cb.fullyVisible);
+    }
+
+    @Test
+    public void fullTable_evictsHiddenItemsButKeepsVisibleOnes() {
+        CountingCallback cb = new CountingCallback();
+        ExposureStateTable<String> table = newTable(cb);
+        String[] ids = ids(MAX_STATES * 4);
+
+        for (int round = 0; round + VISIBLE_PER_ROUND <= ids.length; round++) {
+            table.beginRound(round, round);
+            for (int i = round; i < round + VISIBLE_PER_ROUND; i++) {
+                table.markVisible(ids[i], ids[i], CARD, i, 1f);
+            }
+            table.endRound();
+            assertTrue(table.size() <= MAX_STATES);
+        }
+
+        // 最后一屏一直可见，不会被淘汰
+        for (int i = ids.length - VISIBLE_PER_ROUND; i < ids.length; i++) {
+            assertTrue(table.contains(ids[i]));
+        }
+        assertFalse(table.contains(ids[0]));
+        assertEquals(ids.length, cb.exposed);
+    }
+
+    @Test
+    public void restore_rehydratesOnlyItemsThatShowUpAgain() {
+        CountingCallback cb = new CountingCallback();
+        ExposureStateTable<String> table = newTable(cb);
+        table.beginRound(100, 100);
+        table.markVisible("a", "a", CARD, 0, 1f);
+        table.markVisible("b", "b", CARD, 1, 0.5f);
+        table.endRound();
+        table.beginRound(300, 300);
+        table.markVisible("b", "b", CARD, 1, 0.5f);
+        table.endRound();
+
+        // b 还在屏幕上：从 100 到 400 已经可见的 300ms 也要算进累计值
+        byte[] snapshot = table.saveState(400, 0, Integer.MAX_VALUE);
+
+        CountingCallback restoredCb = new CountingCallback();
+        ExposureStateTable<String> restored = newTable(restoredCb);
+        restored.restoreState(snapshot);
+        assertEquals(0, restored.size());
+        assertEquals(2, restored.pendingRestoreCount());
+
+        restored.beginRound(1000, 1000);
+        restored.markVisible("b", "b", CARD, 0, 1f);
+        restored.markVisible("c", "c", CARD, 1, 1f);
+        restored.endRound();
+        // b 和 c 分两轮消失，各自核对累计时长
+        restored.beginRound(1100, 1100);
+        restored.markVisible("c", "c", CARD, 1, 1f);
+        restored.endRound();
+
+        // b 不再重复曝光，但之前没完全可见过，这次补上；c 是新 item
+        assertEquals(1, restoredCb.exposed);
+        assertEquals(2, restoredCb.fullyVisible);
+        assertEquals(1, restored.pendingRestoreCount());
+        // b：快照里的 300ms 加上这次的 100ms
+        assertEquals(1, restoredCb.hidden);
+        assertEquals(400, restoredCb.lastHiddenMillis);
+        assertEquals(100, restoredCb.lastVisitMillis);
+
+        restored.beginRound(1150, 1150);
+        restored.endRound();
+        assertEquals(2, restoredCb.hidden);
+        assertEquals(150, restoredCb.lastHiddenMillis);
+
+        // 没用上的 a 原样带到下一次快照里
+        ExposureStateTable<String> again = newTable(new CountingCallback());
+        again.restoreState(restored.saveState(1200, 0, Integer.MAX_VALUE));
+        assertEquals(3, again.pendingRestoreCount());
+        CountingCallback againCb = new CountingCallback();
+        ExposureStateTable<String> third = newTable(againCb);
+        third.restoreState(again.saveState(1300, 0, Integer.MAX_VALUE));
+        third.beginRound(2000, 2000);
+        third.markVisible("a", "a", CARD, 0, 1f);
+        third.endRound();
+        assertEquals(0, againCb.exposed);
+        assertEquals(0, againCb.fullyVisible);
+    }
+
+    @Test
+    public void restore_remapsRulesByName() {
+        CountingCallback cb = new CountingCallback();
+        ExposureStateTable<String> table = newTable(cb);
+        table.beginRound(0, 0);
+        table.markVisible("b", "b", FeedItem.CARD_TYPE_BANNER, 0, 1f);
+        table.endRound();
+        table.beginRound(1500, 1500);
+        table.markVisible("b", "b", FeedItem.CARD_TYPE_BANNER, 0, 1f);
+        table.endRound();
+        assertEquals(1, cb.bannerViewable);
+        byte[] snapshot = table.saveState(1500, 0, Integer.MAX_VALUE);
+
+        // 规则注册顺序变了：Banner 规则排到最前面
+        CountingCallback restoredCb = new CountingCallback();
+        ExposureStateTable<String> restored = new ExposureStateTable<>(MAX_STATES, restoredCb);
+        restored.addRule(ViewabilityRule.bannerViewable());
+        restored.addRule(ViewabilityRule.EXPOSED);
+        restored.addRule(ViewabilityRule.FULLY_VISIBLE);
+        restored.restoreState(snapshot);
+        restored.beginRound(5000, 5000);
+        restored.markVisible("b", "b", FeedItem.CARD_TYPE_BANNER, 0, 1f);
+        restored.endRound();
+        restored.beginRound(7000, 7000);
+        restored.markVisible("b", "b", FeedItem.CARD_TYPE_BANNER, 0, 1f);
+        restored.endRound();
+
+        assertEquals(0, restoredCb.exposed);
+        assertEquals(0, restoredCb.fullyVisible);
+        assertEquals(0, restoredCb.bannerViewable);
+    }
+
+    @Test
+    public void restore_rejectsCorruptSnapshot() {
+        ExposureStateTable<String> table = newTable(new CountingCallback());
+        table.beginRound(0, 0);
+        table.markVisible("a", "a", CARD, 0, 1f);
+        table.endRound();
+        byte[] snapshot = table.saveState(0, 0, Integer.MAX_VALUE);
+
+        byte[] truncated = java.util.Arrays.copyOf(snapshot, snapshot.length - 3);
+        ExposureStateTable<String> restored = newTable(new CountingCallback());
+        try {
+            restored.restoreState(truncated);
+            org.junit.Assert.fail("truncated snapshot accepted");
+        } catch (IllegalArgumentException expected) {
+            // 截断的快照不能半恢复
+        }
+        assertEquals(0, restored.pendingRestoreCount());
+    }
+
+    @Test
+    public void restore_largeSnapshotBuildsIndexWithoutFillingTable() {
+        // 上万条记录：只建索引，不进状态表
+        ExposureStateSnapshot.Writer writer = new ExposureStateSnapshot.Writer(0,
+                new ViewabilityRule[]{ViewabilityRule.EXPOSED}, 1);
+        String[] ids = ids(50_000);
+        for (String id : ids) {
+            writer.writeRecord(id, 1, 10);
+        }
+        byte[] snapshot = writer.toByteArray();
+
+        CountingCallback cb = new CountingCallback();
+        ExposureStateTable<String> table = newTable(cb);
+        table.restoreState(snapshot);
+        assertEquals(ids.length, table.pendingRestoreCount());
+        assertEquals(0, table.size());
+
+        table.beginRound(0, 0);
+        table.markVisible(ids[49_999], ids[49_999], CARD, 0, 0.5f);
+        table.markVisible("new", "new", CARD, 1, 0.5f);
+        table.endRound();
+        assertEquals(1, cb.exposed);
+        assertEquals(ids.length - 1, table.pendingRestoreCount());
+    }
+
+    @Test
+    public void scrollSession_allocatesNothing() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) bean;
+        Assume.assumeTrue(threadBean.isThreadAllocatedMemorySupported());
+        threadBean.setThreadAllocatedMemoryEnabled(true);
+
+        CountingCallback cb = new CountingCallback();
+        ExposureStateTable<String> table = newTable(cb);
+        // id 来自已加载的数据，不算在热路径里
+        String[] ids = ids(MAX_STATES * 8);
+
+        // 先跑几遍：类加载、JIT 编译、String.hash 缓存这些一次性开销不算在内
+        for (int i = 0; i < 6; i++) {
+            simulateScroll(table, ids, i * 1_000_000L);
+        }
+
+        long tid = Thread.currentThread().getId();
+        long baselineStart = threadBean.getThreadAllocatedBytes(tid);
+        long baselineEnd = threadBean.getThreadAllocatedBytes(tid);
+        long overhead = baselineEnd - baselineStart;
+
+        long start = threadBean.getThreadAllocatedBytes(tid);
+        simulateScroll(table, ids, 10_000_000L);
+        long allocated = threadBean.getThreadAllocatedBytes(tid) - start - overhead;
+
+        assertEquals("exposure hot path allocated " + allocated + " bytes", 0, Math.max(0, allocated));
+    }
+
+    /**
+     * 从头到尾滚动若干遍：每轮 VISIBLE_PER_ROUND 个 item 可见，窗口每轮下移一格，
+     * 会走到曝光、完全可见、离屏结算和淘汰的所有分支。
+     */
+    private static void simulateScroll(ExposureStateTable<String> table, String[] ids, long timeBase) {
+        long now = timeBase;
+        for (int pass = 0; pass < 20; pass++) {
+            for (int first = 0; first + VISIBLE_PER_ROUND <= ids.length; first++) {
+                now += 16;
+                table.beginRound(now, now);
+                for (int i = first; i < first + VISIBLE_PER_ROUND; i++) {
+                    float ratio = (i == first || i == first + VISIBLE_PER_ROUND - 1) ? 0.5f : 1f;
+                    int cardType = i % 5 == 0 ? FeedItem.CARD_TYPE_BANNER : CARD;
+                    table.markVisible(ids[i], ids[i], cardType, i, ratio);
+                }
+                table.endRound();
+            }
+        }
+    }
+
+    private static ExposureStateTable<String> newTable(CountingCallback cb) {
+        ExposureStateTable<String> table = new ExposureStateTable<>(MAX_STATES, cb);
+        table.addRule(ViewabilityRule.EXPOSED);
+        table.addRule(ViewabilityRule.FULLY_VISIBLE);
+        table.addRule(ViewabilityRule.bannerViewable());
+        return table;
+    }
+
+    private static String[] ids(int count) {
+        String[] ids = new String[count];
+        for (int i = 0; i < count; i++) {
+            ids[i] = "item_" + i;
+        }
+        return ids;
+    }
+}
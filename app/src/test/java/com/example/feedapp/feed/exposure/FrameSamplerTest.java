@@ -0,0 +1,58 @@
+package com.example.feedapp.feed.exposure;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * FrameSampler：ExposureManager 每帧采不采样的决定。
+ */
+public class FrameSamplerTest {
+
+    private static final long FRAME = 16_666_666L;
+
+    @Test
+    public void idleLayoutFrame_samplesDespiteIntervalAndBudget() {
+        FrameSampler sampler = new FrameSampler(2, FRAME);
+        // 第一页到达后的一次布局：静止、只有这一帧，而且开始得很晚
+        assertTrue(sampler.onFrame(10 * FRAME, 12 * FRAME, false));
+        sampler.onSampled();
+        // 刷新 / 加载更多后的下一次静止布局同样直接采
+        assertTrue(sampler.onFrame(100 * FRAME, 100 * FRAME, false));
+    }
+
+    @Test
+    public void scrollingFrames_followSampleInterval() {
+        FrameSampler sampler = new FrameSampler(2, FRAME);
+        int samples = 0;
+        for (int i = 1; i <= 10; i++) {
+            if (sampler.onFrame(i * FRAME, i * FRAME, true)) {
+                sampler.onSampled();
+                samples++;
+            }
+        }
+        assertEquals(5, samples);
+    }
+
+    @Test
+    public void lateFrames_skipAtMostMaxThenSample() {
+        FrameSampler sampler = new FrameSampler(1, FRAME);
+        long t = FRAME;
+        assertTrue(sampler.onFrame(t, t, true));
+        sampler.onSampled();
+        for (int i = 0; i < FrameSampler.MAX_SKIPPED_FRAMES; i++) {
+            t += FRAME;
+            assertFalse(sampler.onFrame(t, t + FRAME, true));
+        }
+        t += FRAME;
+        assertTrue(sampler.onFrame(t, t + FRAME, true));
+    }
+
+    @Test
+    public void maxGap_coversIntervalPlusSkips() {
+        FrameSampler sampler = new FrameSampler(2, 10_000_000L);
+        assertEquals(10L * (2 + FrameSampler.MAX_SKIPPED_FRAMES + 1), sampler.maxGapMillis());
+    }
+}
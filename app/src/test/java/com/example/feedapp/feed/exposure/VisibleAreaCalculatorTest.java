@@ -0,0 +1,46 @@
+package com.example.feedapp.feed.exposure;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+/**
+ * VisibleAreaCalculator 的本地单元测试：视口裁剪（含横向）和遮挡物扣除。
+ */
+public class VisibleAreaCalculatorTest {
+
+    private static final float EPS = 1e-4f;
+
+    @Test
+    public void clipsAgainstViewportInBothDirections() {
+        VisibleAreaCalculator calc = new VisibleAreaCalculator();
+        calc.setViewport(0, 0, 1000, 2000);
+
+        assertEquals(1f, calc.visibleRatio(0, 0, 500, 400), EPS);
+        // 底部露出一半
+        assertEquals(0.5f, calc.visibleRatio(0, 1800, 500, 2200), EPS);
+        // 双列卡片横向被裁掉四分之一
+        assertEquals(0.75f, calc.visibleRatio(625, 0, 1125, 400), EPS);
+        // 完全在视口外
+        assertEquals(0f, calc.visibleRatio(0, 2000, 500, 2400), EPS);
+    }
+
+    @Test
+    public void subtractsUnionOfOverlappingOccluders() {
+        VisibleAreaCalculator calc = new VisibleAreaCalculator();
+        calc.setViewport(0, 0, 1000, 2000);
+        calc.addOccluder(0, 0, 1000, 100);      // 悬浮标题栏
+        calc.addOccluder(0, 1900, 1000, 2000);  // 底部操作条
+
+        // 卡片 [0,0)-(500,400)：上面 100 被标题栏盖住
+        assertEquals(0.75f, calc.visibleRatio(0, 0, 500, 400), EPS);
+
+        // 再加一个与标题栏重叠的角标 [400,0)-(600,200)：重叠部分不能重复扣
+        calc.addOccluder(400, 0, 600, 200);
+        // 卡片可见部分 500x400 = 200000；被盖住 500x100 + 100x100 = 60000
+        assertEquals(140_000f / 200_000f, calc.visibleRatio(0, 0, 500, 400), EPS);
+
+        calc.clearOccluders();
+        assertEquals(1f, calc.visibleRatio(0, 0, 500, 400), EPS);
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.feedapp.feed.player;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+import com.example.feedapp.common.net.LoopbackHttpServer.Response;
+
+import org.junit.Test;
+
+/**
+ * LocalMediaServer 的 Range 处理：播放器 seek 和预取开头一段都依赖它。
+ */
+public class LocalMediaServerTest {
+
+    private static final byte[] DATA = {0, 1, 2, 3, 4, 5, 6, 7, 8, 9};
+
+    @Test
+    public void noRange_returnsWholeFile() {
+        Response r = LocalMediaServer.rangeResponse(DATA, "video/mp4", null);
+        assertEquals(200, r.code);
+        assertArrayEquals(DATA, r.body);
+    }
+
+    @Test
+    public void closedAndOpenRanges_returnPartialContent() {
+        Response r = LocalMediaServer.rangeResponse(DATA, "video/mp4", "bytes=2-4");
+        assertEquals(206, r.code);
+        assertArrayEquals(new byte[]{2, 3, 4}, r.body);
+        assertEquals("Content-Range: bytes 2-4/10", r.extraHeaders[1]);
+
+        // 预取请求的长度超过文件时截到文件末尾
+        r = LocalMediaServer.rangeResponse(DATA, "video/mp4", "bytes=7-1048575");
+        assertEquals(206, r.code);
+        assertArrayEquals(new byte[]{7, 8, 9}, r.body);
+        assertEquals("Content-Range: bytes 7-9/10", r.extraHeaders[1]);
+
+        r = LocalMediaServer.rangeResponse(DATA, "video/mp4", "bytes=8-");
+        assertArrayEquals(new byte[]{8, 9}, r.body);
+
+        r = LocalMediaServer.rangeResponse(DATA, "video/mp4", "bytes=-3");
+        assertArrayEquals(new byte[]{7, 8, 9}, r.body);
+    }
+
+    @Test
+    public void unsatisfiableRange_returns416() {
+        Response r = LocalMediaServer.rangeResponse(DATA, "video/mp4", "bytes=10-");
+        assertEquals(416, r.code);
+        assertEquals("Content-Range: bytes */10", r.extraHeaders[0]);
+
+        r = LocalMediaServer.rangeResponse(DATA, "video/mp4", "bytes=5-3");
+        assertEquals(416, r.code);
+    }
+
+    @Test
+    public void malformedRange_isIgnored() {
+        Response r = LocalMediaServer.rangeResponse(DATA, "video/mp4", "bytes=abc");
+        assertEquals(200, r.code);
+        assertEquals(DATA.length, r.body.length);
+    }
+
+    @Test
+    public void cacheKey_ignoresLoopbackPort() {
+        String before = LocalMediaServer.cacheKeyFor("http://127.0.0.1:40123/media/2131689472");
+        String after = LocalMediaServer.cacheKeyFor("http://127.0.0.1:51877/media/2131689472");
+        assertEquals(before, after);
+        assertNotEquals(before, LocalMediaServer.cacheKeyFor("http://127.0.0.1:40123/media/2131689473"));
+
+        // 其他地址原样作为 key
+        assertEquals("https://cdn.example.com/v/1.mp4",
+                LocalMediaServer.cacheKeyFor("https://cdn.example.com/v/1.mp4"));
+        assertEquals("http://127.0.0.1:40123/feed",
+                LocalMediaServer.cacheKeyFor("http://127.0.0.1:40123/feed"));
+    }
+}
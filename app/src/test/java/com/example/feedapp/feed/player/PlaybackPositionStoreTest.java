@@ -0,0 +1,145 @@
+package com.example.feedapp.feed.player;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * PlaybackPositionStore 的本地单元测试：LRU 淘汰、落盘后按需读取、合并旧文件。
+ */
+public class PlaybackPositionStoreTest {
+
+    // 不走 logcat，记下来供断言
+    private final List<String> warnings = new ArrayList<>();
+
+    @Test
+    public void evictsLeastRecentlyUsed() throws IOException {
+        PlaybackPositionStore store = newStore(tempFile(), 3);
+        store.put("a", 1);
+        store.put("b", 2);
+        store.put("c", 3);
+        // 访问 a 之后，最久没用的是 b
+        assertEquals(1, store.get("a"));
+        store.put("d", 4);
+
+        assertEquals(3, store.size());
+        assertEquals(PlaybackPositionStore.NO_POSITION, store.get("b"));
+        assertEquals(1, store.get("a"));
+        assertEquals(3, store.get("c"));
+        assertEquals(4, store.get("d"));
+    }
+
+    @Test
+    public void manyEvictions_keepTableConsistent() throws IOException {
+        int capacity = 64;
+        PlaybackPositionStore store = newStore(tempFile(), capacity);
+        for (int i = 0; i < 10_000; i++) {
+            store.put("video_" + i, i);
+            if (i % 7 == 0 && i >= 10) {
+                // 时不时访问较早的 key，打乱淘汰顺序
+                store.get("video_" + (i - 10));
+            }
+        }
+        assertEquals(capacity, store.size());
+        for (int i = 10_000 - 40; i < 10_000; i++) {
+            assertEquals(i, store.get("video_" + i));
+        }
+    }
+
+    @Test
+    public void coldStart_readsOnlyRequestedKeysFromFile() throws IOException {
+        File file = tempFile();
+        PlaybackPositionStore store = newStore(file, 100);
+        for (int i = 0; i < 50; i++) {
+            store.put("video_" + i, i * 1000L);
+        }
+        store.put("视频", 42);
+        store.persistBlocking();
+
+        PlaybackPositionStore restored = newStore(file, 100);
+        assertEquals(0, restored.size());
+        assertEquals(7000, restored.get("video_7"));
+        assertEquals(42, restored.get("视频"));
+        assertEquals(PlaybackPositionStore.NO_POSITION, restored.get("video_999"));
+        // 只有查过且命中的 key 被搬进内存
+        assertEquals(2, restored.size());
+    }
+
+    @Test
+    public void persist_mergesNewPositionsWithUntouchedOldOnes() throws IOException {
+        File file = tempFile();
+        PlaybackPositionStore first = newStore(file, 4);
+        first.put("a", 1);
+        first.put("b", 2);
+        first.put("c", 3);
+        first.persistBlocking();
+
+        // 新进程只改了 b、加了 d：a 和 c 还在文件里，合并后容量内保留最近的
+        PlaybackPositionStore second = newStore(file, 4);
+        second.put("b", 20);
+        second.put("d", 4);
+        second.persistBlocking();
+
+        PlaybackPositionStore third = newStore(file, 4);
+        assertEquals(20, third.get("b"));
+        assertEquals(4, third.get("d"));
+        assertEquals(3, third.get("c"));
+        assertEquals(1, third.get("a"));
+
+        // 超出容量时丢掉最久没用的（b 是最先查的）
+        third.put("e", 5);
+        third.persistBlocking();
+        PlaybackPositionStore fourth = newStore(file, 4);
+        assertEquals(5, fourth.get("e"));
+        assertEquals(1, fourth.get("a"));
+        assertEquals(PlaybackPositionStore.NO_POSITION, fourth.get("b"));
+    }
+
+    @Test
+    public void persist_replacesFileWithoutLeavingTemp() throws IOException {
+        File file = tempFile();
+        PlaybackPositionStore store = newStore(file, 8);
+        store.put("a", 1);
+        store.persistBlocking();
+        store.put("a", 2);
+        store.persistBlocking();
+
+        assertFalse(new File(file.getPath() + ".tmp").exists());
+        assertEquals(2, newStore(file, 8).get("a"));
+        assertTrue(warnings.isEmpty());
+    }
+
+    @Test
+    public void brokenFile_isIgnoredWithWarning() throws IOException {
+        File file = tempFile();
+        Files.write(file.toPath(), new byte[64]);
+
+        PlaybackPositionStore store = newStore(file, 8);
+        assertEquals(PlaybackPositionStore.NO_POSITION, store.get("a"));
+        assertEquals(1, warnings.size());
+
+        // 坏文件下次落盘时被覆盖
+        store.put("a", 7);
+        store.persistBlocking();
+        assertEquals(7, newStore(file, 8).get("a"));
+    }
+
+    private PlaybackPositionStore newStore(File file, int capacity) {
+        return new PlaybackPositionStore(file, capacity,
+                (message, error) -> warnings.add(message));
+    }
+
+    private static File tempFile() throws IOException {
+        File dir = Files.createTempDirectory("positions").toFile();
+        dir.deleteOnExit();
+        return new File(dir, "playback_positions.bin");
+    }
+}